@@ -0,0 +1,69 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import java.util.List;
+
+/**
+ * 自适应重排策略
+ * 根据向量分数分布判断是否需要重排：
+ * 1. 候选数不超过skipBelow：结果很少，重排只会改变顺序，直接跳过
+ * 2. 分数出现陡降（相邻分数差不低于dropOff）：陡降前的头部即为明确的胜出集合，
+ * 头部不超过skipBelow时跳过重排，否则只重排头部
+ * 3. 分数平缓：完整重排，困难查询不受影响
+ * 策略只决定重排哪些候选，不丢弃候选：跳过时全部候选保持向量顺序，缩小时尾部接在重排后的头部之后
+ */
+public class AdaptiveRerankPolicy {
+
+    private final int skipBelow;
+
+    private final double dropOff;
+
+    public AdaptiveRerankPolicy(int skipBelow, double dropOff) {
+        this.skipBelow = skipBelow;
+        this.dropOff = dropOff;
+    }
+
+    /**
+     * 重排决策
+     *
+     * @param type 决策类型
+     * @param size 陡降前头部的候选数（缩小时即送入重排的候选数）
+     */
+    public record Decision(Type type, int size) {
+    }
+
+    public enum Type {
+        SKIP("skip"),
+        SHRINK("shrink"),
+        FULL("full"),
+        ;
+
+        private final String value;
+
+        Type(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 根据降序排列的向量分数做出决策
+     *
+     * @param scores 降序排列的向量分数
+     * @return 重排决策
+     */
+    public Decision decide(List<Double> scores) {
+        int n = scores.size();
+        if (n <= skipBelow) {
+            return new Decision(Type.SKIP, n);
+        }
+        for (int i = 1; i < n; i++) {
+            if (scores.get(i - 1) - scores.get(i) >= dropOff) {
+                return i <= skipBelow ? new Decision(Type.SKIP, i) : new Decision(Type.SHRINK, i);
+            }
+        }
+        return new Decision(Type.FULL, n);
+    }
+}
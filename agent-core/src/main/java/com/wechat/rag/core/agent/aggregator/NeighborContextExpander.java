@@ -0,0 +1,207 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import com.wechat.rag.core.config.RetrievalConfig;
+import com.wechat.rag.datasync.service.ChatlogVectorService;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.query.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 相邻消息上下文扩展
+ * 重排后为前maxHits个命中补充同一会话中前后window条消息，其余命中原样追加在后：
+ * 1. 按（talker, 日期）分组批量获取聊天记录，每组只请求一次，只取覆盖组内命中窗口的消息
+ * 2. 同一组内重叠或相邻的窗口合并为一段连续对话
+ * 3. 按命中的重排顺序输出各段对话，段内按seq升序，命中本身保留重排分数
+ * 窗口不跨天；获取失败或超时时只输出命中本身
+ */
+@Component
+@Slf4j
+public class NeighborContextExpander implements ContentAggregator {
+    private static final String TALKER_KEY = "talker";
+
+    private static final String SEQ_KEY = "seq";
+
+    private static final String TIME_KEY = "time";
+
+    private final RerankContentAggregator delegate;
+
+    private final ChatlogVectorService chatlogVectorService;
+
+    private final RetrievalConfig.Context config;
+
+    public NeighborContextExpander(RerankContentAggregator delegate, ChatlogVectorService chatlogVectorService,
+                                   RetrievalConfig retrievalConfig) {
+        this.delegate = delegate;
+        this.chatlogVectorService = chatlogVectorService;
+        this.config = retrievalConfig.getContext();
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        List<Content> ranked = delegate.aggregate(queryToContents);
+        if (!config.isEnabled() || ranked.isEmpty()) {
+            return ranked;
+        }
+        int maxHits = Math.min(config.getMaxHits(), ranked.size());
+        List<Content> expanded = expand(ranked.subList(0, maxHits));
+        expanded.addAll(ranked.subList(maxHits, ranked.size()));
+        return expanded;
+    }
+
+    private List<Content> expand(List<Content> hits) {
+        Map<DayKey, List<Content>> groups = new LinkedHashMap<>();
+        for (Content hit : hits) {
+            DayKey key = DayKey.of(hit.textSegment());
+            if (key != null) {
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(hit);
+            }
+        }
+
+        Map<DayKey, List<TextSegment>> days = fetchDays(groups);
+
+        // 每个命中所在的对话段
+        Map<Content, List<Content>> sections = new IdentityHashMap<>();
+        groups.forEach((key, groupHits) -> {
+            List<TextSegment> day = days.get(key);
+            if (day != null) {
+                sections.putAll(sections(groupHits, day));
+            }
+        });
+
+        List<Content> expanded = new ArrayList<>();
+        Set<List<Content>> emittedSections = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Content hit : hits) {
+            List<Content> section = sections.get(hit);
+            if (section == null) {
+                expanded.add(hit);
+            } else if (emittedSections.add(section)) {
+                expanded.addAll(section);
+            }
+        }
+        log.info("相邻消息上下文扩展: 命中{}个, 分组{}个, 扩展后{}条", hits.size(), groups.size(), expanded.size());
+        return expanded;
+    }
+
+    /**
+     * 并发获取各组命中窗口所在范围的聊天记录，失败的组不返回
+     */
+    private Map<DayKey, List<TextSegment>> fetchDays(Map<DayKey, List<Content>> groups) {
+        if (groups.isEmpty()) {
+            return Map.of();
+        }
+        return Flux.fromIterable(groups.entrySet())
+                .flatMap(group -> fetchDay(group.getKey(), group.getValue())
+                        .map(segments -> Tuples.of(group.getKey(), segments))
+                        .onErrorResume(e -> {
+                            log.warn("获取相邻消息失败: talker={}, day={}", group.getKey().talker(), group.getKey().day(), e);
+                            return Mono.empty();
+                        }), config.getConcurrency())
+                .collectMap(Tuple2::getT1, Tuple2::getT2)
+                // ContentAggregator为同步接口，在此边界等待
+                .timeout(config.getTimeout(), Mono.fromSupplier(() -> {
+                    log.warn("获取相邻消息超时: {}", config.getTimeout());
+                    return Map.of();
+                }))
+                .block();
+    }
+
+    private Mono<List<TextSegment>> fetchDay(DayKey key, List<Content> hits) {
+        List<Long> seqs = hits.stream().map(hit -> hit.textSegment().metadata().getLong(SEQ_KEY)).toList();
+        return chatlogVectorService.fetchSegmentsAround(key.talker(), key.day(), seqs, config.getWindow(),
+                config.getMaxMessagesPerDay());
+    }
+
+    /**
+     * 为同一（talker, 日期）下的命中构建对话段，重叠或相邻的窗口合并
+     *
+     * @param hits 同组命中
+     * @param day  覆盖命中窗口的按seq升序的消息
+     * @return 命中 -> 所在对话段，找不到命中位置的不返回
+     */
+    private Map<Content, List<Content>> sections(List<Content> hits, List<TextSegment> day) {
+        long[] seqs = day.stream().mapToLong(segment -> segment.metadata().getLong(SEQ_KEY)).toArray();
+        Map<Integer, Content> hitsByPosition = new LinkedHashMap<>();
+        for (Content hit : hits) {
+            int position = Arrays.binarySearch(seqs, hit.textSegment().metadata().getLong(SEQ_KEY));
+            if (position >= 0) {
+                hitsByPosition.putIfAbsent(position, hit);
+            }
+        }
+
+        Map<Content, List<Content>> sections = new IdentityHashMap<>();
+        for (Window window : mergeWindows(hitsByPosition.keySet(), config.getWindow(), day.size())) {
+            List<Content> section = new ArrayList<>(window.to() - window.from());
+            for (int i = window.from(); i < window.to(); i++) {
+                Content hit = hitsByPosition.get(i);
+                section.add(hit != null ? hit : Content.from(day.get(i)));
+                if (hit != null) {
+                    sections.put(hit, section);
+                }
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * 以每个位置为中心取前后radius条，合并重叠或相邻的窗口
+     *
+     * @param positions 命中位置
+     * @param radius    前后各取的条数
+     * @param size      消息总数
+     * @return 按位置升序的不相交窗口
+     */
+    static List<Window> mergeWindows(Collection<Integer> positions, int radius, int size) {
+        List<Window> windows = new ArrayList<>();
+        positions.stream().sorted().forEach(position -> {
+            int from = Math.max(0, position - radius);
+            int to = Math.min(size, position + radius + 1);
+            if (!windows.isEmpty() && windows.get(windows.size() - 1).to() >= from) {
+                Window last = windows.remove(windows.size() - 1);
+                windows.add(new Window(last.from(), Math.max(last.to(), to)));
+            } else {
+                windows.add(new Window(from, to));
+            }
+        });
+        return windows;
+    }
+
+    /**
+     * 消息区间[from, to)
+     */
+    record Window(int from, int to) {
+    }
+
+    /**
+     * 分组键：会话 + 日期（YYYY-MM-DD）
+     */
+    private record DayKey(String talker, String day) {
+        static DayKey of(TextSegment segment) {
+            if (segment == null || segment.metadata().getLong(SEQ_KEY) == null) {
+                return null;
+            }
+            String talker = segment.metadata().getString(TALKER_KEY);
+            String time = segment.metadata().getString(TIME_KEY);
+            if (talker == null || time == null || time.length() < 10) {
+                return null;
+            }
+            return new DayKey(talker, time.substring(0, 10));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import com.wechat.rag.core.config.RerankConfig;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.ReRankingContentAggregator;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 重排内容聚合器
+ * 只把向量分数最高的maxCandidates条候选交给重排模型，无论检索返回多少条，重排成本都有上限
+ * 启用自适应策略时，向量分数已给出明确胜出集合的查询会跳过或缩小重排，未重排的候选保持检索顺序（融合结果为RRF顺序）
+ * 向量分数为ContentMetadata.SCORE中的向量相似度；只有全文检索命中的候选没有向量分数，
+ * 截断时排在有分数的候选之后，自适应策略无法判断它们，总是交给重排
+ */
+@Component
+@Slf4j
+public class RerankContentAggregator implements ContentAggregator {
+    private static final String DECISION_METRIC = "rag.rerank.decision";
+
+    private static final String RERANKED_METRIC = "rag.rerank.candidates";
+
+    private final ReRankingContentAggregator delegate;
+
+    private final int maxCandidates;
+
+    private final AdaptiveRerankPolicy adaptivePolicy;
+
+    private final Map<AdaptiveRerankPolicy.Type, Counter> decisionCounters = new EnumMap<>(AdaptiveRerankPolicy.Type.class);
+
+    private final DistributionSummary rerankedCandidates;
+
+    public RerankContentAggregator(ScoringModel scoringModel, RerankConfig rerankConfig, MeterRegistry meterRegistry) {
+        this.maxCandidates = rerankConfig.getMaxCandidates();
+        this.delegate = ReRankingContentAggregator.builder()
+                .scoringModel(scoringModel)
+                .minScore(rerankConfig.getMinScore())
+                .build();
+        RerankConfig.Adaptive adaptive = rerankConfig.getAdaptive();
+        this.adaptivePolicy = adaptive.isEnabled()
+                ? new AdaptiveRerankPolicy(adaptive.getSkipBelow(), adaptive.getDropOff())
+                : null;
+        for (AdaptiveRerankPolicy.Type type : AdaptiveRerankPolicy.Type.values()) {
+            decisionCounters.put(type, Counter.builder(DECISION_METRIC)
+                    .description("重排决策次数")
+                    .tag("decision", type.getValue())
+                    .register(meterRegistry));
+        }
+        this.rerankedCandidates = DistributionSummary.builder(RERANKED_METRIC)
+                .description("送入重排的候选数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        Map<Query, Collection<List<Content>>> candidates = new LinkedHashMap<>();
+        queryToContents.forEach((query, contentLists) -> candidates.put(query,
+                contentLists.stream().map(this::topByVectorScore).toList()));
+
+        // 自适应策略只作用于单查询单检索器（默认链路），多路结果需要重排做融合
+        List<Content> contents = singleList(candidates);
+        if (adaptivePolicy == null || contents == null) {
+            return rerank(candidates, AdaptiveRerankPolicy.Type.FULL);
+        }
+
+        List<Content> byScore = contents.stream()
+                .filter(RerankContentAggregator::hasVectorScore)
+                .sorted(Comparator.comparingDouble(RerankContentAggregator::vectorScore).reversed())
+                .toList();
+        List<Content> unscored = contents.stream().filter(content -> !hasVectorScore(content)).toList();
+        AdaptiveRerankPolicy.Decision decision = adaptivePolicy.decide(
+                byScore.stream().map(RerankContentAggregator::vectorScore).toList());
+        log.info("自适应重排决策: {}, 候选数 {} -> {}, 无向量分数 {}",
+                decision.type(), contents.size(), decision.size(), unscored.size());
+        if (decision.type() == AdaptiveRerankPolicy.Type.FULL) {
+            return rerank(candidates, AdaptiveRerankPolicy.Type.FULL);
+        }
+
+        // 陡降前的头部（按向量分数）；陡降后的尾部不参与重排，保持检索顺序接在后面
+        List<Content> head = byScore.subList(0, decision.size());
+        Set<Content> headSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        headSet.addAll(head);
+        headSet.addAll(unscored);
+        List<Content> tail = contents.stream().filter(content -> !headSet.contains(content)).toList();
+        if (decision.type() == AdaptiveRerankPolicy.Type.SKIP && unscored.isEmpty()) {
+            // 跳过的只是重排调用，全部候选返回
+            decisionCounters.get(AdaptiveRerankPolicy.Type.SKIP).increment();
+            List<Content> result = new ArrayList<>(head);
+            result.addAll(tail);
+            return result;
+        }
+        List<Content> rerankSet = new ArrayList<>(head);
+        rerankSet.addAll(unscored);
+        List<Content> reranked = new ArrayList<>(rerank(
+                Map.of(candidates.keySet().iterator().next(), List.of(rerankSet)), AdaptiveRerankPolicy.Type.SHRINK));
+        reranked.addAll(tail);
+        return reranked;
+    }
+
+    private List<Content> rerank(Map<Query, Collection<List<Content>>> candidates, AdaptiveRerankPolicy.Type type) {
+        decisionCounters.get(type).increment();
+        rerankedCandidates.record(candidates.values().stream()
+                .flatMap(Collection::stream)
+                .mapToInt(List::size)
+                .sum());
+        return delegate.aggregate(candidates);
+    }
+
+    /**
+     * 仅有一个查询且一个结果列表时返回该列表，否则返回null
+     */
+    private static List<Content> singleList(Map<Query, Collection<List<Content>>> candidates) {
+        if (candidates.size() != 1) {
+            return null;
+        }
+        Collection<List<Content>> contentLists = candidates.values().iterator().next();
+        return contentLists.size() == 1 ? contentLists.iterator().next() : null;
+    }
+
+    /**
+     * 按向量分数截取前maxCandidates条（没有向量分数的排在最后），截取结果保持原有顺序
+     */
+    private List<Content> topByVectorScore(List<Content> contents) {
+        if (contents.size() <= maxCandidates) {
+            return contents;
+        }
+        log.info("重排候选截断: {} -> {}", contents.size(), maxCandidates);
+        Set<Content> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        contents.stream()
+                .sorted(Comparator.comparing(RerankContentAggregator::hasVectorScore).reversed()
+                        .thenComparing(Comparator.comparingDouble(RerankContentAggregator::vectorScore).reversed()))
+                .limit(maxCandidates)
+                .forEach(kept::add);
+        return contents.stream().filter(kept::contains).toList();
+    }
+
+    static boolean hasVectorScore(Content content) {
+        return content.metadata().get(ContentMetadata.SCORE) instanceof Number;
+    }
+
+    static double vectorScore(Content content) {
+        Object score = content.metadata().get(ContentMetadata.SCORE);
+        return score instanceof Number number ? number.doubleValue() : 0.0;
+    }
+}
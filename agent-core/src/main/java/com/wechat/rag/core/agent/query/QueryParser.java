@@ -3,6 +3,7 @@ package com.wechat.rag.core.agent.query;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wechat.rag.core.config.RetrievalConfig;
 import com.wechat.rag.core.constants.CommonConstant;
 import com.wechat.rag.datasync.chatlog.ChatlogApi;
 import com.wechat.rag.datasync.chatlog.response.ChatRoomResponse;
@@ -11,6 +12,7 @@ import dev.langchain4j.store.embedding.filter.Filter;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -20,6 +22,7 @@ import reactor.core.scheduler.Schedulers;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -29,6 +32,7 @@ import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metad
 /**
  * 查询解析器
  * 解析结构化查询并生成过滤条件和搜索查询
+ * 启用多查询扩展时，同一次LLM调用中一并生成改写查询
  */
 @Component
 @Slf4j
@@ -37,16 +41,20 @@ public class QueryParser {
 
     private final TimeParser timeParser;
 
+    private final RetrievalConfig retrievalConfig;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
 
     @Qualifier("wechatParseModel")
     private ChatModel wechatParseModel;
 
-    public QueryParser(ChatlogApi chatlogApi, TimeParser timeParser, ChatModel wechatParseModel) {
+    public QueryParser(ChatlogApi chatlogApi, TimeParser timeParser, ChatModel wechatParseModel,
+                       RetrievalConfig retrievalConfig) {
         this.chatlogApi = chatlogApi;
         this.timeParser = timeParser;
         this.wechatParseModel = wechatParseModel;
+        this.retrievalConfig = retrievalConfig;
     }
 
     private final String PARSING_PROMPT_TEMPLATE = """
@@ -63,9 +71,12 @@ public class QueryParser {
                 - 绝对时间：2024-01-15, "上个月10号" 等
                 - 时间段：上午、下午、晚上等
                 - 最近表达：最近、近期、最近3天、最近一周、这几天、这段时间等
+            6.  给出{paraphrase_count}个与search_query意思相同但用词不同的改写(paraphrases)，
+                可以是同义说法、口语化说法或拆分出的子问题，不要包含人名、群聊名和时间；数量为0时输出空数组。
             
             {
               "search_query": "用户关心的核心内容",
+              "paraphrases": ["改写1", "改写2"],
               "filters": {
                 "senderName": "识别出的发送者姓名",
                 "talkerName": "识别出的群聊名称",
@@ -84,6 +95,18 @@ public class QueryParser {
      * @return 解析结果
      */
     public QueryParseResult parseQuery(String query) {
+        return parseQuery(query, this::extract);
+    }
+
+    /**
+     * 解析查询字符串，LLM抽取由extractor提供（可缓存）
+     * 过滤条件每次重新构建，相对时间（如"最近3天"）的范围以本次调用的当前时间计算
+     *
+     * @param query     原始查询字符串 可能包含 [CONTEXT]...[/CONTEXT] 块
+     * @param extractor 去除上下文后的用户问题 -> LLM抽取结果，失败时返回null
+     * @return 解析结果
+     */
+    public QueryParseResult parseQuery(String query, Function<String, JsonNode> extractor) {
         if (query == null || query.trim().isEmpty()) {
             throw new IllegalArgumentException("查询字符串不能为空");
         }
@@ -106,16 +129,8 @@ public class QueryParser {
         }
 
         // 2. 使用LLM解析剩余的自然语言查询
-        String prompt = PARSING_PROMPT_TEMPLATE.replace("{user_query}", userQuery);
-        String jsonResponse = wechatParseModel.chat(prompt).replaceAll("(?s)^```json\n|\\n```$", "");
-
-
-        JsonNode llmParseNode;
-        try {
-            llmParseNode = objectMapper.readTree(jsonResponse);
-            log.debug("LLM解析查询结果: {}", llmParseNode);
-        } catch (JsonProcessingException e) {
-            log.error("LLM解析查询结果失败: {}. 将使用原始查询。", e.getMessage());
+        JsonNode llmParseNode = extractor.apply(userQuery);
+        if (llmParseNode == null) {
             // 如果LLM解析失败，则将整个用户问题作为搜索词
             return QueryParseResult.builder()
                     .originalQuery(query)
@@ -148,13 +163,68 @@ public class QueryParser {
         QueryParseResult result = QueryParseResult.builder()
                 .originalQuery(userQuery)
                 .searchQuery(searchQuery)
+                .paraphrases(parseParaphrases(llmParseNode, searchQuery, paraphraseCount()))
                 .filter(finalFilter)
                 .hasFilter(finalFilter != null)
                 .build();
-        log.debug("查询解析结果 - 搜索查询: '{}', 有过滤条件: {}", result.getSearchQuery(), result.isHasFilter());
+        log.debug("查询解析结果 - 搜索查询: '{}', 改写查询: {}, 有过滤条件: {}",
+                result.getSearchQuery(), result.getParaphrases(), result.isHasFilter());
         return result;
     }
 
+    /**
+     * 使用LLM从用户问题中抽取搜索查询、改写查询和过滤条件的原始文本
+     * 结果只包含问题中的文字，不依赖当前时间，可以缓存
+     *
+     * @param userQuery 去除上下文后的用户问题
+     * @return LLM抽取结果，解析失败时返回null
+     */
+    public JsonNode extract(String userQuery) {
+        String prompt = PARSING_PROMPT_TEMPLATE.replace("{user_query}", userQuery)
+                .replace("{paraphrase_count}", String.valueOf(paraphraseCount()));
+        String jsonResponse = wechatParseModel.chat(prompt).replaceAll("(?s)^```json\n|\\n```$", "");
+        try {
+            JsonNode llmParseNode = objectMapper.readTree(jsonResponse);
+            log.debug("LLM解析查询结果: {}", llmParseNode);
+            return llmParseNode;
+        } catch (JsonProcessingException e) {
+            log.error("LLM解析查询结果失败: {}. 将使用原始查询。", e.getMessage());
+            return null;
+        }
+    }
+
+    private int paraphraseCount() {
+        RetrievalConfig.MultiQuery multiQuery = retrievalConfig.getMultiQuery();
+        return multiQuery.isEnabled() ? Math.max(0, multiQuery.getParaphrases()) : 0;
+    }
+
+    /**
+     * 提取改写查询：合并空白后去除空串、与搜索查询相同和重复的改写，最多保留maxCount条
+     *
+     * @param llmParseNode LLM抽取结果
+     * @param searchQuery  搜索查询
+     * @param maxCount     最多保留的改写数
+     * @return 改写查询列表，缺少或格式错误时返回空列表
+     */
+    static List<String> parseParaphrases(JsonNode llmParseNode, String searchQuery, int maxCount) {
+        JsonNode paraphrasesNode = llmParseNode.get("paraphrases");
+        if (paraphrasesNode == null || !paraphrasesNode.isArray()) {
+            return List.of();
+        }
+        String normalizedSearchQuery = StringUtils.normalizeSpace(searchQuery);
+        List<String> paraphrases = new ArrayList<>();
+        for (JsonNode paraphraseNode : paraphrasesNode) {
+            if (paraphrases.size() >= maxCount) {
+                break;
+            }
+            String paraphrase = StringUtils.normalizeSpace(paraphraseNode.isTextual() ? paraphraseNode.asText() : "");
+            if (!paraphrase.isEmpty() && !paraphrase.equals(normalizedSearchQuery) && !paraphrases.contains(paraphrase)) {
+                paraphrases.add(paraphrase);
+            }
+        }
+        return paraphrases;
+    }
+
     /**
      * 从前端传入的CONTEXT JSON中构建过滤器
      */
@@ -303,6 +373,11 @@ public class QueryParser {
     public static class QueryParseResult {
         private String originalQuery;
         private String searchQuery;
+        /**
+         * 改写查询，未启用多查询扩展时为空
+         */
+        @Builder.Default
+        private List<String> paraphrases = List.of();
         private Filter filter;
         private boolean hasFilter;
     }
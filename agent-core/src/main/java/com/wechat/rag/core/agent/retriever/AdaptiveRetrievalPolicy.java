@@ -0,0 +1,158 @@
+package com.wechat.rag.core.agent.retriever;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 自适应检索策略
+ * 1. 预算：根据过滤条件估算选择度，过滤越严格，允许取回的候选越少
+ * 2. 扩展：先取initialK个候选，若结果已取满且尾部分数与头部分数接近（差值小于expandScoreGap），
+ * 说明后面可能还有同样相关的结果，按growthFactor倍扩大k，直到分数下降或达到预算
+ */
+public class AdaptiveRetrievalPolicy {
+    static final String TALKER_KEY = "talker";
+
+    static final String SENDER_KEY = "sender";
+
+    static final String SEQ_KEY = "seq";
+
+    private final int initialK;
+
+    private final int growthFactor;
+
+    private final double expandScoreGap;
+
+    private final double talkerSelectivity;
+
+    private final double senderSelectivity;
+
+    private final Duration referenceWindow;
+
+    public AdaptiveRetrievalPolicy(int initialK, int growthFactor, double expandScoreGap,
+                                   double talkerSelectivity, double senderSelectivity, Duration referenceWindow) {
+        this.initialK = initialK;
+        this.growthFactor = Math.max(2, growthFactor);
+        this.expandScoreGap = expandScoreGap;
+        this.talkerSelectivity = talkerSelectivity;
+        this.senderSelectivity = senderSelectivity;
+        this.referenceWindow = referenceWindow;
+    }
+
+    /**
+     * 根据过滤条件计算本次查询的候选预算
+     *
+     * @param filter     过滤条件，可为null
+     * @param maxResults 最大结果数
+     * @return 候选预算，介于initialK和maxResults之间
+     */
+    public int budget(Filter filter, int maxResults) {
+        double selectivity = filter == null ? 1.0 : selectivity(filter);
+        int budget = (int) Math.ceil(maxResults * selectivity);
+        return Math.min(maxResults, Math.max(initialK, budget));
+    }
+
+    /**
+     * 首次检索的k
+     */
+    public int initialK(int budget) {
+        return Math.min(initialK, budget);
+    }
+
+    /**
+     * 根据本轮结果决定下一轮的k
+     *
+     * @param scores 本轮降序排列的分数
+     * @param k      本轮请求的k
+     * @param budget 候选预算
+     * @return 下一轮的k，无需扩展时返回-1
+     */
+    public int nextK(List<Double> scores, int k, int budget) {
+        // 结果不足k个说明满足条件的候选已取完
+        if (scores.size() < k || k >= budget) {
+            return -1;
+        }
+        double top = scores.get(0);
+        double tail = scores.get(scores.size() - 1);
+        if (top - tail >= expandScoreGap) {
+            return -1;
+        }
+        return Math.min(budget, k * growthFactor);
+    }
+
+    /**
+     * 估算过滤条件的选择度（保留的文档比例）
+     * And取乘积，Or取和，无法识别的条件视为不过滤
+     */
+    double selectivity(Filter filter) {
+        if (filter instanceof And and) {
+            Range range = Range.of(and);
+            if (range != null) {
+                return rangeSelectivity(range.end() - range.start());
+            }
+            return selectivity(and.left()) * selectivity(and.right());
+        }
+        if (filter instanceof Or or) {
+            return Math.min(1.0, selectivity(or.left()) + selectivity(or.right()));
+        }
+        if (filter instanceof IsIn isIn) {
+            return keySelectivity(isIn.key(), isIn.comparisonValues().size());
+        }
+        if (filter instanceof IsEqualTo isEqualTo) {
+            return keySelectivity(isEqualTo.key(), 1);
+        }
+        if (isSeqBound(filter)) {
+            // 单侧时间范围，按参考窗口的一半估算
+            return 0.5;
+        }
+        return 1.0;
+    }
+
+    private double keySelectivity(String key, int values) {
+        if (TALKER_KEY.equals(key)) {
+            return Math.min(1.0, values * talkerSelectivity);
+        }
+        if (SENDER_KEY.equals(key)) {
+            return Math.min(1.0, values * senderSelectivity);
+        }
+        return 1.0;
+    }
+
+    private double rangeSelectivity(long millis) {
+        if (millis <= 0) {
+            return 0.0;
+        }
+        return Math.min(1.0, (double) millis / referenceWindow.toMillis());
+    }
+
+    private static boolean isSeqBound(Filter filter) {
+        return (filter instanceof IsGreaterThan f && SEQ_KEY.equals(f.key()))
+                || (filter instanceof IsGreaterThanOrEqualTo f2 && SEQ_KEY.equals(f2.key()))
+                || (filter instanceof IsLessThan f3 && SEQ_KEY.equals(f3.key()))
+                || (filter instanceof IsLessThanOrEqualTo f4 && SEQ_KEY.equals(f4.key()));
+    }
+
+    /**
+     * seq的闭区间，对应QueryParser生成的时间过滤条件
+     */
+    private record Range(long start, long end) {
+        static Range of(And and) {
+            if (and.left() instanceof IsGreaterThanOrEqualTo lower && SEQ_KEY.equals(lower.key())
+                    && and.right() instanceof IsLessThanOrEqualTo upper && SEQ_KEY.equals(upper.key())
+                    && lower.comparisonValue() instanceof Number start
+                    && upper.comparisonValue() instanceof Number end) {
+                return new Range(start.longValue(), end.longValue());
+            }
+            return null;
+        }
+    }
+}
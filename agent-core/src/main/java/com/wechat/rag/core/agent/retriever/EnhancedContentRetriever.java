@@ -1,9 +1,11 @@
 package com.wechat.rag.core.agent.retriever;
 
 import com.wechat.rag.core.agent.query.QueryParser;
+import com.wechat.rag.core.config.RetrievalConfig;
+import com.wechat.rag.core.embedding.QueryEmbeddingCache;
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.ContentMetadata;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
@@ -12,10 +14,14 @@ import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import lombok.RequiredArgsConstructor;
+import dev.langchain4j.store.embedding.filter.Filter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -23,22 +29,51 @@ import java.util.stream.Collectors;
 /**
  * 增强的内容检索器
  * 支持元数据过滤的高级RAG检索
+ * 启用混合检索时，全文检索与向量检索并行执行，结果按倒数排名融合
+ * 启用多查询扩展时，搜索查询与改写查询批量向量化后并行检索，各路结果一并融合
+ * 候选数按AdaptiveRetrievalPolicy自适应确定，窄问题只取少量候选
+ * 检索结果经ResultDiversifier去重和多样化后再交给重排
+ * 查询解析和检索结果由RetrievalResultCache缓存
  */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class EnhancedContentRetriever implements ContentRetriever {
 
-    private final EmbeddingModel embeddingModel;
+    private final QueryEmbeddingCache queryEmbeddingCache;
 
     private final EmbeddingStore<TextSegment> embeddingStore;
 
     private final QueryParser queryParser;
 
-    // 默认配置
-    private static final int DEFAULT_MAX_RESULTS = 500;
+    private final RetrievalConfig retrievalConfig;
 
-    private static final double DEFAULT_MIN_SCORE = 0.7;
+    private final AdaptiveRetrievalPolicy adaptivePolicy;
+
+    private final ResultDiversifier diversifier;
+
+    private final RetrievalResultCache resultCache;
+
+    public EnhancedContentRetriever(QueryEmbeddingCache queryEmbeddingCache,
+                                    EmbeddingStore<TextSegment> embeddingStore,
+                                    QueryParser queryParser,
+                                    RetrievalConfig retrievalConfig,
+                                    RetrievalResultCache resultCache) {
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.embeddingStore = embeddingStore;
+        this.queryParser = queryParser;
+        this.retrievalConfig = retrievalConfig;
+        this.resultCache = resultCache;
+        RetrievalConfig.Adaptive adaptive = retrievalConfig.getAdaptive();
+        this.adaptivePolicy = adaptive.isEnabled()
+                ? new AdaptiveRetrievalPolicy(adaptive.getInitialK(), adaptive.getGrowthFactor(),
+                adaptive.getExpandScoreGap(), adaptive.getTalkerSelectivity(), adaptive.getSenderSelectivity(),
+                adaptive.getReferenceWindow())
+                : null;
+        RetrievalConfig.Diversity diversity = retrievalConfig.getDiversity();
+        this.diversifier = diversity.isEnabled()
+                ? new ResultDiversifier(diversity.getMaxHammingDistance(), diversity.getLambda(), diversity.getMaxResults())
+                : null;
+    }
 
     @Override
     public List<Content> retrieve(Query query) {
@@ -46,45 +81,188 @@ public class EnhancedContentRetriever implements ContentRetriever {
         String queryText = query.text();
 
         // 解析查询
-        QueryParser.QueryParseResult queryParseResult = queryParser.parseQuery(queryText);
+        QueryParser.QueryParseResult queryParseResult = queryParser.parseQuery(queryText,
+                userQuery -> resultCache.extract(userQuery, queryParser::extract));
         log.info("解析查询结果: {}", queryParseResult);
 
-        log.info("执行向量相似度搜索");
-        return performVectorSearch(queryParseResult);
+        return resultCache.retrieve(queryParseResult, () -> search(queryParseResult));
+    }
+
+    private List<Content> search(QueryParser.QueryParseResult queryParseResult) {
+        List<EmbeddingMatch<TextSegment>> matches;
+        if (isHybridEnabled()) {
+            log.info("执行混合检索");
+            matches = performHybridSearch(queryParseResult);
+        } else {
+            log.info("执行向量相似度搜索");
+            List<List<EmbeddingMatch<TextSegment>>> rankings =
+                    performVectorSearches(queryParseResult, retrievalConfig.getMaxResults());
+            matches = rankings.size() == 1 ? rankings.getFirst()
+                    : RankFusion.fuse(rankings, List.of(), retrievalConfig.getMultiQuery().getRrfK(),
+                    retrievalConfig.getMaxResults());
+        }
+        return convertToContent(diversify(matches));
+    }
+
+    /**
+     * 参与检索的查询：搜索查询在前，其后为改写查询
+     */
+    private List<String> searchQueries(QueryParser.QueryParseResult queryParseResult) {
+        List<String> queries = new ArrayList<>();
+        queries.add(queryParseResult.getSearchQuery());
+        if (retrievalConfig.getMultiQuery().isEnabled() && queryParseResult.getParaphrases() != null) {
+            queries.addAll(queryParseResult.getParaphrases());
+        }
+        return queries;
+    }
+
+    private List<EmbeddingMatch<TextSegment>> diversify(List<EmbeddingMatch<TextSegment>> matches) {
+        if (diversifier == null) {
+            return matches;
+        }
+        List<EmbeddingMatch<TextSegment>> diversified = diversifier.diversify(matches);
+        log.info("结果多样化: {} -> {}", matches.size(), diversified.size());
+        return diversified;
+    }
+
+    private boolean isHybridEnabled() {
+        return retrievalConfig.getHybrid().isEnabled()
+                && embeddingStore instanceof LexicalSearcher lexicalSearcher
+                && lexicalSearcher.supportsLexicalSearch();
+    }
+
+    /**
+     * 执行混合检索：向量检索与全文检索并行，全文检索失败时只使用向量检索结果
+     */
+    private List<EmbeddingMatch<TextSegment>> performHybridSearch(QueryParser.QueryParseResult queryParseResult) {
+        RetrievalConfig.Hybrid hybrid = retrievalConfig.getHybrid();
+        LexicalSearcher lexicalSearcher = (LexicalSearcher) embeddingStore;
+        Filter filter = queryParseResult.isHasFilter() ? queryParseResult.getFilter() : null;
+
+        Mono<List<List<EmbeddingMatch<TextSegment>>>> vectorRankings = Mono.fromCallable(() ->
+                        performVectorSearches(queryParseResult, hybrid.getVectorMaxResults()))
+                .subscribeOn(Schedulers.boundedElastic());
+        int lexicalMaxResults = adaptivePolicy == null ? hybrid.getLexicalMaxResults()
+                : adaptivePolicy.budget(filter, hybrid.getLexicalMaxResults());
+        Mono<List<EmbeddingMatch<TextSegment>>> lexicalMatches = Mono.fromCallable(() ->
+                        lexicalSearcher.searchLexical(queryParseResult.getSearchQuery(), lexicalMaxResults, filter))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("全文检索失败，仅使用向量检索结果", e);
+                    return Mono.just(List.of());
+                });
+
+        // ContentRetriever为同步接口，在此边界等待两路结果
+        return Mono.zip(vectorRankings, lexicalMatches)
+                .map(results -> {
+                    List<EmbeddingMatch<TextSegment>> fused = RankFusion.fuse(
+                            results.getT1(), results.getT2(), hybrid.getRrfK(), hybrid.getMaxResults());
+                    log.info("混合检索完成: 向量{}路, 全文{}个, 融合后{}个",
+                            results.getT1().size(), results.getT2().size(), fused.size());
+                    return fused;
+                })
+                .block();
+    }
+
+    /**
+     * 执行各查询的向量搜索
+     * 所有查询一次批量向量化，各查询并行检索；改写查询检索失败或超时时丢弃其结果
+     *
+     * @return 各查询的排名列表（无结果的查询不返回，全部无结果时返回一个空列表）
+     */
+    List<List<EmbeddingMatch<TextSegment>>> performVectorSearches(QueryParser.QueryParseResult queryParseResult,
+                                                                  int maxResults) {
+        List<String> queries = searchQueries(queryParseResult);
+        Filter filter = queryParseResult.isHasFilter() ? queryParseResult.getFilter() : null;
+        log.info("生成查询向量: {}个查询", queries.size());
+        // ContentRetriever为同步接口，在此边界等待响应式向量化结果
+        List<Embedding> queryEmbeddings = queries.size() == 1
+                ? List.of(queryEmbeddingCache.embed(queries.getFirst()).block())
+                : queryEmbeddingCache.embedAll(queries).block();
+        if (queryEmbeddings.size() == 1) {
+            return List.of(performVectorSearch(queryEmbeddings.getFirst(), filter, maxResults));
+        }
+
+        List<Mono<List<EmbeddingMatch<TextSegment>>>> searches = new ArrayList<>(queryEmbeddings.size());
+        for (int i = 0; i < queryEmbeddings.size(); i++) {
+            Embedding queryEmbedding = queryEmbeddings.get(i);
+            Mono<List<EmbeddingMatch<TextSegment>>> search = Mono.fromCallable(() ->
+                            performVectorSearch(queryEmbedding, filter, maxResults))
+                    .subscribeOn(Schedulers.boundedElastic());
+            if (i > 0) {
+                String paraphrase = queries.get(i);
+                search = search.timeout(retrievalConfig.getMultiQuery().getTimeout())
+                        .onErrorResume(e -> {
+                            log.warn("改写查询检索失败，忽略该查询: {}", paraphrase, e);
+                            return Mono.just(List.of());
+                        });
+            }
+            searches.add(search);
+        }
+        List<List<EmbeddingMatch<TextSegment>>> rankings = Flux.mergeSequential(searches)
+                .filter(ranking -> !ranking.isEmpty())
+                .collectList()
+                .block();
+        log.info("多查询向量检索完成: {}个查询, 有结果{}个", queries.size(), rankings.size());
+        return rankings.isEmpty() ? List.of(List.of()) : rankings;
     }
 
     /**
      * 执行向量搜索
+     * 启用自适应候选数时从较小的k开始，按需扩展
      */
-    private List<Content> performVectorSearch(QueryParser.QueryParseResult queryParseResult) {
-        log.info("生成查询向量");
-        Embedding queryEmbedding = embeddingModel.embed(queryParseResult.getSearchQuery()).content();
+    private List<EmbeddingMatch<TextSegment>> performVectorSearch(Embedding queryEmbedding, Filter filter,
+                                                                  int maxResults) {
+        if (adaptivePolicy == null) {
+            return search(queryEmbedding, filter, maxResults);
+        }
 
-        log.info("构建搜索请求");
+        int budget = adaptivePolicy.budget(filter, maxResults);
+        int k = adaptivePolicy.initialK(budget);
+        int rounds = 1;
+        List<EmbeddingMatch<TextSegment>> matches = search(queryEmbedding, filter, k);
+        int nextK;
+        while ((nextK = adaptivePolicy.nextK(scores(matches), k, budget)) > 0) {
+            k = nextK;
+            rounds++;
+            matches = search(queryEmbedding, filter, k);
+        }
+        log.info("自适应向量检索完成: 预算={}, k={}, 轮次={}, 结果={}个", budget, k, rounds, matches.size());
+        return matches;
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, Filter filter, int maxResults) {
         EmbeddingSearchRequest.EmbeddingSearchRequestBuilder requestBuilder = EmbeddingSearchRequest.builder()
                 .queryEmbedding(queryEmbedding)
-                .maxResults(DEFAULT_MAX_RESULTS)
-                .minScore(DEFAULT_MIN_SCORE);
-        if (queryParseResult.isHasFilter()) {
-            requestBuilder.filter(queryParseResult.getFilter());
+                .maxResults(maxResults)
+                .minScore(retrievalConfig.getMinScore());
+        if (filter != null) {
+            requestBuilder.filter(filter);
         }
 
-        EmbeddingSearchRequest request = requestBuilder.build();
-        EmbeddingSearchResult<TextSegment> ebdStoreSearchResult = embeddingStore.search(request);
-        log.info("向量搜索完成，返回{}个结果", ebdStoreSearchResult.matches().size());
-        return convertToContent(ebdStoreSearchResult.matches());
+        EmbeddingSearchResult<TextSegment> ebdStoreSearchResult = embeddingStore.search(requestBuilder.build());
+        log.debug("向量搜索完成: k={}, 返回{}个结果", maxResults, ebdStoreSearchResult.matches().size());
+        return ebdStoreSearchResult.matches();
+    }
+
+    private static List<Double> scores(List<EmbeddingMatch<TextSegment>> matches) {
+        List<Double> scores = new ArrayList<>(matches.size());
+        matches.forEach(match -> scores.add(match.score()));
+        return scores;
     }
 
     /**
      * 将搜索结果转换为Content
+     * 分数为向量相似度，只有全文检索命中（没有向量相似度）的结果不带分数
      */
-    private List<Content> convertToContent(List<EmbeddingMatch<TextSegment>> matches) {
+    static List<Content> convertToContent(List<EmbeddingMatch<TextSegment>> matches) {
         return matches.stream()
                 .map(match -> {
                     TextSegment segment = match.embedded();
 
                     // 构建增强的内容，包含元数据信息
-                    return Content.from(segment, Map.of(ContentMetadata.SCORE, match.score()));
+                    return Double.isNaN(match.score()) ? Content.from(segment)
+                            : Content.from(segment, Map.of(ContentMetadata.SCORE, match.score()));
                 })
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,75 @@
+package com.wechat.rag.core.agent.retriever;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（RRF）
+ * 每个排名列表中第r名（从1开始）贡献 1 / (k + r)，按文档ID累加
+ * 只依赖排名，不同检索方式的分数尺度无需对齐
+ * <p>
+ * RRF分数只决定融合后的顺序，写入文本片段元数据的{@link #SCORE_KEY}；
+ * 结果的分数仍是各路向量检索中最高的向量相似度，自适应重排和重排候选截断据此判断，
+ * 只出现在全文检索结果中的文档没有向量相似度，分数为NaN
+ */
+public final class RankFusion {
+
+    /**
+     * RRF分数的元数据键
+     */
+    public static final String SCORE_KEY = "rrfScore";
+
+    private RankFusion() {
+    }
+
+    /**
+     * 融合多个向量检索排名列表和一个全文检索排名列表
+     *
+     * @param vectorRankings 按相似度降序的向量检索排名列表
+     * @param lexicalRanking 按BM25分数降序的全文检索结果，可为空
+     * @param k              融合常数
+     * @param maxResults     最大结果数
+     * @return 按RRF分数降序的结果，分数为最高的向量相似度
+     */
+    public static List<EmbeddingMatch<TextSegment>> fuse(List<List<EmbeddingMatch<TextSegment>>> vectorRankings,
+                                                         List<EmbeddingMatch<TextSegment>> lexicalRanking,
+                                                         int k, int maxResults) {
+        List<List<EmbeddingMatch<TextSegment>>> rankings = new ArrayList<>(vectorRankings);
+        rankings.add(lexicalRanking);
+        Map<String, Double> rrfScores = new LinkedHashMap<>();
+        Map<String, Double> similarities = new HashMap<>();
+        // 同一文档保留最先出现的结果（向量检索结果带有向量）
+        Map<String, EmbeddingMatch<TextSegment>> matches = new LinkedHashMap<>();
+        for (int i = 0; i < rankings.size(); i++) {
+            boolean vector = i < vectorRankings.size();
+            List<EmbeddingMatch<TextSegment>> ranking = rankings.get(i);
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                EmbeddingMatch<TextSegment> match = ranking.get(rank);
+                rrfScores.merge(match.embeddingId(), 1.0 / (k + rank + 1), Double::sum);
+                matches.putIfAbsent(match.embeddingId(), match);
+                if (vector) {
+                    similarities.merge(match.embeddingId(), match.score(), Math::max);
+                }
+            }
+        }
+        return rrfScores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(maxResults)
+                .map(entry -> {
+                    EmbeddingMatch<TextSegment> match = matches.get(entry.getKey());
+                    TextSegment segment = match.embedded();
+                    TextSegment fused = segment == null ? null
+                            : TextSegment.from(segment.text(), segment.metadata().copy().put(SCORE_KEY, entry.getValue()));
+                    return new EmbeddingMatch<>(similarities.getOrDefault(entry.getKey(), Double.NaN),
+                            match.embeddingId(), match.embedding(), fused);
+                })
+                .toList();
+    }
+}
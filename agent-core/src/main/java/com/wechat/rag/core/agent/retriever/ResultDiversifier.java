@@ -0,0 +1,226 @@
+package com.wechat.rag.core.agent.retriever;
+
+import com.wechat.rag.datasync.vectorstore.lexical.BigramTokenizer;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 检索结果多样化
+ * 1. 近重复去重：按字符二元组计算64位SimHash，同一会话同一天内与已保留结果的汉明距离不超过maxHammingDistance的
+ * 视为重复（表情包文本、转发的公告、“+1”接龙），只保留排名最高的一条；不同会话或不同日期的相同短句
+ * （如“好的”“收到”）各自是独立的事实，不互相去重
+ * 2. MMR：候选多于maxResults时，按 lambda * 相关度 - (1 - lambda) * 与已选结果的最大余弦相似度 逐个选取，
+ * 相关度为排序分数（融合结果的RRF分数，否则为向量分数）的min-max归一化，缺少向量的候选（如全文检索结果）相似度按0计
+ */
+public class ResultDiversifier {
+    private static final String TALKER_KEY = "talker";
+
+    private static final String TIME_KEY = "time";
+
+    /**
+     * time字段"yyyy-MM-dd HH:mm:ss"中日期部分的长度
+     */
+    private static final int DAY_LENGTH = 10;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int maxHammingDistance;
+
+    private final double lambda;
+
+    private final int maxResults;
+
+    public ResultDiversifier(int maxHammingDistance, double lambda, int maxResults) {
+        this.maxHammingDistance = maxHammingDistance;
+        this.lambda = lambda;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * 去重并多样化
+     *
+     * @param matches 按相关度降序的检索结果
+     * @return 去重后按MMR顺序选出的结果
+     */
+    public List<EmbeddingMatch<TextSegment>> diversify(List<EmbeddingMatch<TextSegment>> matches) {
+        List<EmbeddingMatch<TextSegment>> unique = deduplicate(matches);
+        if (unique.size() <= maxResults) {
+            return unique;
+        }
+        return mmr(unique);
+    }
+
+    /**
+     * 近重复去重，只在同一会话同一天内比较，保留排名靠前的结果
+     */
+    List<EmbeddingMatch<TextSegment>> deduplicate(List<EmbeddingMatch<TextSegment>> matches) {
+        List<EmbeddingMatch<TextSegment>> unique = new ArrayList<>(matches.size());
+        Map<String, List<Long>> keptByScope = new HashMap<>();
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            long hash = simHash(match.embedded() == null ? "" : match.embedded().text());
+            List<Long> kept = keptByScope.computeIfAbsent(scope(match.embedded()), key -> new ArrayList<>());
+            boolean duplicate = false;
+            for (int i = 0; i < kept.size() && !duplicate; i++) {
+                duplicate = Long.bitCount(kept.get(i) ^ hash) <= maxHammingDistance;
+            }
+            if (!duplicate) {
+                kept.add(hash);
+                unique.add(match);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * 去重范围：会话 + 日期，缺少的字段按空串计
+     */
+    private static String scope(TextSegment segment) {
+        if (segment == null) {
+            return "";
+        }
+        String talker = Objects.toString(segment.metadata().getString(TALKER_KEY), "");
+        String day = StringUtils.left(segment.metadata().getString(TIME_KEY), DAY_LENGTH);
+        return talker + "|" + Objects.toString(day, "");
+    }
+
+    /**
+     * 最大边际相关（MMR）选取maxResults条
+     */
+    private List<EmbeddingMatch<TextSegment>> mmr(List<EmbeddingMatch<TextSegment>> candidates) {
+        int n = candidates.size();
+        double[] relevance = normalizedScores(candidates);
+        float[][] vectors = new float[n][];
+        for (int i = 0; i < n; i++) {
+            Embedding embedding = candidates.get(i).embedding();
+            vectors[i] = embedding == null ? null : normalize(embedding.vector());
+        }
+
+        double[] maxSimilarity = new double[n];
+        boolean[] selected = new boolean[n];
+        List<EmbeddingMatch<TextSegment>> result = new ArrayList<>(maxResults);
+        while (result.size() < maxResults) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
+                    continue;
+                }
+                double score = lambda * relevance[i] - (1 - lambda) * maxSimilarity[i];
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            selected[best] = true;
+            result.add(candidates.get(best));
+            if (vectors[best] == null) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (!selected[i] && vectors[i] != null) {
+                    maxSimilarity[i] = Math.max(maxSimilarity[i], dot(vectors[i], vectors[best]));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[] normalizedScores(List<EmbeddingMatch<TextSegment>> candidates) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double[] scores = new double[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = rankingScore(candidates.get(i));
+            min = Math.min(min, scores[i]);
+            max = Math.max(max, scores[i]);
+        }
+        double range = max - min;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = range > 0 ? (scores[i] - min) / range : 1.0;
+        }
+        return scores;
+    }
+
+    /**
+     * 排序分数：融合结果取RRF分数，否则取向量分数
+     */
+    private static double rankingScore(EmbeddingMatch<TextSegment> match) {
+        Double rrfScore = match.embedded() == null ? null : match.embedded().metadata().getDouble(RankFusion.SCORE_KEY);
+        return rrfScore != null ? rrfScore : match.score();
+    }
+
+    /**
+     * 64位SimHash，词项为字符二元组
+     */
+    static long simHash(String text) {
+        String normalized = text.toLowerCase().replaceAll("\\s+", "");
+        List<String> terms = BigramTokenizer.tokenize(normalized);
+        if (terms.isEmpty()) {
+            // 纯符号/表情文本没有词项，直接按原文哈希，完全相同才视为重复
+            return fnv(normalized);
+        }
+        int[] weights = new int[64];
+        for (String term : terms) {
+            long hash = fnv(term);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    private static long fnv(String text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // FNV低位扩散较弱，再做一次混合
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,153 @@
+package com.wechat.rag.core.agent.retriever;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wechat.rag.core.agent.query.QueryParser;
+import com.wechat.rag.core.config.RetrievalConfig;
+import com.wechat.rag.datasync.model.CheckpointAdvancedEvent;
+import com.wechat.rag.datasync.vectorstore.FilterSupport;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.store.embedding.filter.Filter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 检索结果缓存
+ * 1. LLM抽取结果按规范化用户问题缓存，相同问题不再重复调用LLM解析；过滤条件每次按当前时间重新构建
+ * 2. 检索结果按（规范化搜索查询, 规范化过滤条件）缓存，命中时跳过向量化和检索
+ * talker同步推进检查点后，过滤条件涉及该talker（或不限talker）的检索结果立即失效，缓存结果不会落后于同步
+ */
+@Component
+@Slf4j
+public class RetrievalResultCache {
+    private static final String PARSE_CACHE_NAME = "rag.retrieval.parse";
+
+    private static final String RESULT_CACHE_NAME = "rag.retrieval.result";
+
+    private final boolean enabled;
+
+    private final Cache<String, JsonNode> parseCache;
+
+    private final Cache<Key, Entry> resultCache;
+
+    /**
+     * 每次失效递增，检索期间发生失效的结果不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public RetrievalResultCache(RetrievalConfig retrievalConfig, MeterRegistry meterRegistry) {
+        RetrievalConfig.ResultCache config = retrievalConfig.getResultCache();
+        this.enabled = config.isEnabled();
+        this.parseCache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        this.resultCache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, parseCache, PARSE_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, resultCache, RESULT_CACHE_NAME);
+        log.info("检索结果缓存: enabled={}, maxSize={}, ttl={}", enabled, config.getMaxSize(), config.getTtl());
+    }
+
+    /**
+     * 获取LLM抽取结果
+     * 只缓存问题中的文字抽取，时间范围等过滤条件由调用方每次按当前时间重新构建，
+     * "最近N天"的上界不会停留在首次解析的时刻
+     *
+     * @param userQuery 去除[CONTEXT]块后的用户问题
+     * @param extractor 未命中时的抽取方法，失败时返回null（不缓存）
+     * @return LLM抽取结果
+     */
+    public JsonNode extract(String userQuery, Function<String, JsonNode> extractor) {
+        if (!enabled) {
+            return extractor.apply(userQuery);
+        }
+        return parseCache.get(StringUtils.normalizeSpace(userQuery), k -> extractor.apply(userQuery));
+    }
+
+    /**
+     * 获取检索结果
+     *
+     * @param parseResult 查询解析结果
+     * @param loader      未命中时的检索方法
+     * @return 检索结果
+     */
+    public List<Content> retrieve(QueryParser.QueryParseResult parseResult, Supplier<List<Content>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Filter filter = parseResult.isHasFilter() ? parseResult.getFilter() : null;
+        Key key = new Key(StringUtils.normalizeSpace(parseResult.getSearchQuery()), FilterSupport.canonical(filter));
+        Entry cached = resultCache.getIfPresent(key);
+        if (cached != null) {
+            log.info("检索结果缓存命中: {}", key);
+            return cached.contents();
+        }
+
+        long loadGeneration = generation.get();
+        List<Content> contents = List.copyOf(loader.get());
+        resultCache.put(key, new Entry(contents, FilterSupport.talkers(filter)));
+        if (generation.get() != loadGeneration) {
+            // 检索期间有talker推进了检查点，结果可能已过期
+            resultCache.invalidate(key);
+        }
+        return contents;
+    }
+
+    /**
+     * talker推进检查点或被删除时，失效涉及该talker的检索结果
+     */
+    @EventListener
+    public void onCheckpointAdvanced(CheckpointAdvancedEvent event) {
+        generation.incrementAndGet();
+        String talker = event.getTalker();
+        resultCache.asMap().entrySet().removeIf(entry -> {
+            Set<String> talkers = entry.getValue().talkers();
+            return talkers == null || talkers.contains(talker);
+        });
+        log.debug("检查点推进，失效检索结果缓存: talker={}, lastSeq={}", talker, event.getLastSeq());
+    }
+
+    /**
+     * 清空缓存（切换Embedding模型和集合时调用）
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        parseCache.invalidateAll();
+        resultCache.invalidateAll();
+        log.info("已清空检索结果缓存");
+    }
+
+    /**
+     * 缓存键
+     *
+     * @param searchQuery 规范化搜索查询
+     * @param filter      规范化过滤条件
+     */
+    private record Key(String searchQuery, String filter) {
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param contents 检索结果
+     * @param talkers  过滤条件限定的talker，null表示不限talker
+     */
+    private record Entry(List<Content> contents, Set<String> talkers) {
+    }
+}
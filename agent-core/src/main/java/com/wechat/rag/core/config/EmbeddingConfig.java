@@ -1,9 +1,14 @@
 package com.wechat.rag.core.config;
 
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 嵌入模型配置类
  */
@@ -31,6 +36,182 @@ public class EmbeddingConfig {
      */
     private String baseUrl;
 
+    /**
+     * 查询向量缓存配置
+     */
+    private QueryCache queryCache = new QueryCache();
+
+    /**
+     * 磁盘向量缓存配置
+     */
+    private DiskCache diskCache = new DiskCache();
+
+    /**
+     * 本地ONNX模型配置（provider为local时生效）
+     */
+    private Local local = new Local();
+
+    /**
+     * 额外的同模型端点，与base-url一起参与路由（仅siliconflow等OpenAI兼容接口）
+     */
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * 多端点路由配置
+     */
+    private Routing routing = new Routing();
+
+    /**
+     * 模型迁移配置
+     */
+    private Migration migration = new Migration();
+
+    /**
+     * 查询向量缓存配置
+     */
+    @Data
+    public static class QueryCache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条数
+         */
+        private long maxSize = 1000;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
+    /**
+     * 磁盘向量缓存配置
+     */
+    @Data
+    public static class DiskCache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存目录
+         */
+        private String path = "./data/embedding-cache";
+
+        /**
+         * 单个分段文件大小（MB），范围1~2047
+         */
+        private int segmentSizeMb = 64;
+    }
+
+    /**
+     * 本地ONNX模型配置
+     */
+    @Data
+    public static class Local {
+        /**
+         * ONNX模型文件路径
+         */
+        private String modelPath;
+
+        /**
+         * tokenizer.json路径
+         */
+        private String tokenizerPath;
+
+        /**
+         * 池化方式（bge系列为CLS）
+         */
+        private PoolingMode poolingMode = PoolingMode.CLS;
+
+        /**
+         * 推理线程数，即同时推理的文本数上限，默认等于CPU核数
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Embedding端点
+     */
+    @Data
+    public static class Endpoint {
+        /**
+         * 端点名称（用于日志）
+         */
+        private String name;
+
+        /**
+         * 基础URL
+         */
+        private String baseUrl;
+
+        /**
+         * API密钥
+         */
+        private String apiKey;
+
+        /**
+         * 路由权重
+         */
+        private double weight = 1.0;
+    }
+
+    /**
+     * 多端点路由配置
+     */
+    @Data
+    public static class Routing {
+        /**
+         * 单次路由的文本数，大批量输入拆分后分摊到不同端点
+         */
+        private int batchSize = 32;
+
+        /**
+         * 单次请求超时，超时后切换端点
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * 连续失败多少次后熔断
+         */
+        private int failureThreshold = 3;
+
+        /**
+         * 熔断冷却时间
+         */
+        private Duration cooldown = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 模型迁移配置
+     */
+    @Data
+    public static class Migration {
+        /**
+         * 回填批次间隔，用于限制迁移对Embedding API和向量库的压力
+         */
+        private Duration batchDelay = Duration.ofMillis(200);
+
+        /**
+         * 回填起始日期，回填范围为该日期至今
+         */
+        private String backfillStartDate = "2011-01-01";
+
+        /**
+         * 回填完成后是否自动切换
+         */
+        private boolean autoCutover = true;
+
+        /**
+         * 切换时等待进行中的增量写入批次完成的最长时间
+         */
+        private Duration cutoverTimeout = Duration.ofSeconds(60);
+    }
+
     public enum Provider {
         HUGGINGFACE("huggingface"),
         LOCAL("local"),
@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * 重排器配置
  */
@@ -31,6 +33,135 @@ public class RerankConfig {
      */
     private String apiKey;
 
+    /**
+     * 本地ONNX模型配置（provider为local时生效）
+     */
+    private Local local = new Local();
+
+    /**
+     * 进入重排的最大候选数，按向量分数截取
+     */
+    private int maxCandidates = 100;
+
+    /**
+     * 重排分数阈值
+     */
+    private double minScore = 0.001;
+
+    /**
+     * 单次重排请求的文档数
+     */
+    private int chunkSize = 32;
+
+    /**
+     * 重排请求并发数
+     */
+    private int concurrency = 4;
+
+    /**
+     * 重排分数缓存配置
+     */
+    private ScoreCache scoreCache = new ScoreCache();
+
+    /**
+     * 级联预排序配置
+     */
+    private Cascade cascade = new Cascade();
+
+    /**
+     * 自适应重排配置
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    /**
+     * 本地ONNX交叉编码器配置
+     */
+    @Data
+    public static class Local {
+        /**
+         * ONNX模型文件路径
+         */
+        private String modelPath;
+
+        /**
+         * tokenizer.json路径
+         */
+        private String tokenizerPath;
+
+        /**
+         * 查询+文档的最大token数，超出部分截断
+         */
+        private int maxLength = 512;
+
+        /**
+         * 推理线程数，默认等于CPU核数
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 每批打分的文档数
+         */
+        private int batchSize = 16;
+    }
+
+    /**
+     * 重排分数缓存配置
+     */
+    @Data
+    public static class ScoreCache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条数（查询-文档对）
+         */
+        private long maxSize = 100_000;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    /**
+     * 级联预排序配置
+     */
+    @Data
+    public static class Cascade {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * BM25预排序后交给重排模型的候选数
+         */
+        private int topK = 50;
+    }
+
+    /**
+     * 自适应重排配置
+     */
+    @Data
+    public static class Adaptive {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 候选数（或陡降前的头部）不超过该值时跳过重排
+         */
+        private int skipBelow = 3;
+
+        /**
+         * 相邻向量分数差不低于该值视为陡降
+         */
+        private double dropOff = 0.05;
+    }
+
     public enum Provider {
         LOCAL("local"),
         SILICON_FLOW("siliconflow"),
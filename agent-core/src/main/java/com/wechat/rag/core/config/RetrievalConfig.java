@@ -0,0 +1,236 @@
+package com.wechat.rag.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 检索配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.retrieval")
+@Data
+public class RetrievalConfig {
+    /**
+     * 向量检索最大结果数
+     */
+    private int maxResults = 200;
+
+    /**
+     * 向量检索最低分数
+     */
+    private double minScore = 0.7;
+
+    /**
+     * 自适应候选数配置
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    /**
+     * 混合检索配置
+     */
+    private Hybrid hybrid = new Hybrid();
+
+    /**
+     * 多查询扩展配置
+     */
+    private MultiQuery multiQuery = new MultiQuery();
+
+    /**
+     * 结果多样化配置
+     */
+    private Diversity diversity = new Diversity();
+
+    /**
+     * 相邻消息上下文配置
+     */
+    private Context context = new Context();
+
+    /**
+     * 检索结果缓存配置
+     */
+    private ResultCache resultCache = new ResultCache();
+
+    /**
+     * 自适应候选数配置：从较小的k开始，尾部分数仍接近头部时才扩大k，预算随过滤条件的选择度缩小
+     */
+    @Data
+    public static class Adaptive {
+        /**
+         * 是否启用，关闭时直接按maxResults检索
+         */
+        private boolean enabled = true;
+
+        /**
+         * 首次检索的k
+         */
+        private int initialK = 50;
+
+        /**
+         * 每次扩展k的倍数
+         */
+        private int growthFactor = 2;
+
+        /**
+         * 头部与尾部分数差小于该值时继续扩展
+         */
+        private double expandScoreGap = 0.05;
+
+        /**
+         * 每个talker约束保留的文档比例估计
+         */
+        private double talkerSelectivity = 0.2;
+
+        /**
+         * 每个发送者约束保留的文档比例估计
+         */
+        private double senderSelectivity = 0.1;
+
+        /**
+         * 时间范围的参考窗口，范围长度与该窗口之比即为时间约束的选择度
+         */
+        private Duration referenceWindow = Duration.ofDays(90);
+    }
+
+    /**
+     * 混合检索配置：全文检索与向量检索并行，按倒数排名融合
+     */
+    @Data
+    public static class Hybrid {
+        /**
+         * 是否启用（Vector Store不支持全文检索时自动退化为纯向量检索）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 向量检索结果数
+         */
+        private int vectorMaxResults = 150;
+
+        /**
+         * 全文检索结果数
+         */
+        private int lexicalMaxResults = 100;
+
+        /**
+         * 融合后的最大结果数
+         */
+        private int maxResults = 200;
+
+        /**
+         * 倒数排名融合常数
+         */
+        private int rrfK = 60;
+    }
+
+    /**
+     * 多查询扩展配置：查询解析时顺带生成改写查询，批量向量化后并行检索，结果按倒数排名融合
+     */
+    @Data
+    public static class MultiQuery {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 改写查询数（不含原搜索查询）
+         */
+        private int paraphrases = 2;
+
+        /**
+         * 倒数排名融合常数（未启用混合检索时使用，混合检索统一按hybrid.rrf-k融合）
+         */
+        private int rrfK = 60;
+
+        /**
+         * 改写查询检索的超时时间，超时的改写查询结果丢弃，原搜索查询不受影响
+         */
+        private Duration timeout = Duration.ofSeconds(3);
+    }
+
+    /**
+     * 结果多样化配置：SimHash近重复去重后，用MMR选出多样化的子集再交给重排
+     */
+    @Data
+    public static class Diversity {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * SimHash汉明距离不超过该值视为近重复
+         */
+        private int maxHammingDistance = 3;
+
+        /**
+         * MMR中相关度的权重，越小越偏向多样性
+         */
+        private double lambda = 0.7;
+
+        /**
+         * MMR选取的结果数，不超过该值时只去重
+         */
+        private int maxResults = 100;
+    }
+
+    /**
+     * 相邻消息上下文配置：重排后为头部命中按seq补充同一会话前后的消息，重叠窗口合并
+     */
+    @Data
+    public static class Context {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个命中前后各补充的消息数
+         */
+        private int window = 3;
+
+        /**
+         * 补充上下文的命中数，其余命中原样追加在后
+         */
+        private int maxHits = 20;
+
+        /**
+         * 每个会话每天最多翻阅的消息数，取到命中之后window条消息即停止翻页
+         */
+        private int maxMessagesPerDay = 2000;
+
+        /**
+         * 获取聊天记录的并发数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 获取聊天记录的超时时间，超时只使用命中本身
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 检索结果缓存配置：按（规范化查询, 规范化过滤条件）缓存检索结果，talker同步推进检查点时失效
+     */
+    @Data
+    public static class ResultCache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maxSize = 1000;
+
+        /**
+         * 过期时间
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+}
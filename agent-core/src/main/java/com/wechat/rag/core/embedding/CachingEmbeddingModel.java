@@ -0,0 +1,90 @@
+package com.wechat.rag.core.embedding;
+
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带磁盘缓存的Embedding模型
+ * 先查询PersistentEmbeddingCache，仅将未命中的文本交给底层模型，结果在弹性线程上回写缓存
+ * 同一批次内的重复文本只会向量化一次
+ */
+@Slf4j
+public class CachingEmbeddingModel implements ReactiveEmbeddingModel, AutoCloseable {
+    private final EmbeddingModel delegate;
+
+    private final String modelName;
+
+    private final PersistentEmbeddingCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, PersistentEmbeddingCache cache) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.cache = cache;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(embedAllAsync(textSegments).block());
+    }
+
+    @Override
+    public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
+        Embedding[] results = new Embedding[textSegments.size()];
+        // 未命中文本 -> 其在批次中的位置
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < textSegments.size(); i++) {
+            String text = textSegments.get(i).text();
+            float[] vector = cache.get(modelName, text);
+            if (vector != null) {
+                results[i] = Embedding.from(vector);
+            } else {
+                misses.computeIfAbsent(text, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        log.debug("Embedding磁盘缓存: 总数={}, 未命中={}", textSegments.size(), misses.size());
+        if (misses.isEmpty()) {
+            return Mono.just(Arrays.asList(results));
+        }
+
+        List<String> missTexts = new ArrayList<>(misses.keySet());
+        List<TextSegment> missSegments = missTexts.stream().map(TextSegment::from).toList();
+        return ReactiveEmbeddingModel.embedAll(delegate, missSegments)
+                // 写入内存映射文件可能因缺页阻塞，不在响应式线程上执行
+                .publishOn(Schedulers.boundedElastic())
+                .map(embeddings -> {
+                    for (int i = 0; i < missTexts.size(); i++) {
+                        String text = missTexts.get(i);
+                        Embedding embedding = embeddings.get(i);
+                        cache.put(modelName, text, embedding.vector());
+                        misses.get(text).forEach(position -> results[position] = embedding);
+                    }
+                    return Arrays.asList(results);
+                });
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public void close() throws Exception {
+        cache.close();
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
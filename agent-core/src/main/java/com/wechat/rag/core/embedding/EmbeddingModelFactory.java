@@ -4,13 +4,16 @@ import com.wechat.rag.core.config.EmbeddingConfig;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.huggingface.HuggingFaceEmbeddingModel;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Embedding模型工厂类
@@ -20,54 +23,153 @@ import java.time.Duration;
 @Slf4j
 public class EmbeddingModelFactory {
 
+    /**
+     * 单个分段文件的上限（MB），整个分段映射为一个MappedByteBuffer，不能超过2GB
+     */
+    private static final int MAX_SEGMENT_SIZE_MB = 2047;
+
     @Autowired
     private EmbeddingConfig embeddingConfig;
 
+    /**
+     * 所有模型共享的磁盘缓存（同一目录只能有一个写入者）
+     */
+    private PersistentEmbeddingCache diskCache;
+
     @Bean
-    public EmbeddingModel createEmbeddingModel() {
+    public SwitchableEmbeddingModel createEmbeddingModel() {
+        return new SwitchableEmbeddingModel(embeddingConfig.getModel(), createModel(embeddingConfig.getModel()));
+    }
+
+    /**
+     * 使用当前提供商配置创建指定名称的模型（模型迁移时创建目标模型）
+     *
+     * @param modelName 模型名称
+     * @return EmbeddingModel实例
+     */
+    public EmbeddingModel createModel(String modelName) {
         String providerValue = embeddingConfig.getProvider();
         EmbeddingConfig.Provider provider = EmbeddingConfig.Provider.fromValue(providerValue);
 
-        log.info("创建EmbeddingModel: {}", provider);
+        log.info("创建EmbeddingModel: {}, model={}", provider, modelName);
 
-        return switch (provider) {
-            case HUGGINGFACE -> createHuggingFaceModel();
-            case LOCAL -> null;
-            case SILICON_FLOW -> createSiliconFlowModel();
+        EmbeddingModel embeddingModel = switch (provider) {
+            case HUGGINGFACE -> createHuggingFaceModel(modelName);
+            case LOCAL -> createLocalModel(modelName);
+            case SILICON_FLOW -> createSiliconFlowModel(modelName);
         };
+        return wrapWithDiskCache(embeddingModel, modelName);
+    }
+
+    /**
+     * 启用磁盘缓存时包装Embedding模型
+     *
+     * @param embeddingModel 原始模型
+     * @param modelName      模型名称，作为缓存键的一部分
+     * @return 包装后的模型
+     */
+    private EmbeddingModel wrapWithDiskCache(EmbeddingModel embeddingModel, String modelName) {
+        EmbeddingConfig.DiskCache config = embeddingConfig.getDiskCache();
+        if (embeddingModel == null || !config.isEnabled()) {
+            return embeddingModel;
+        }
+        return new CachingEmbeddingModel(embeddingModel, modelName, getDiskCache(config));
+    }
+
+    private synchronized PersistentEmbeddingCache getDiskCache(EmbeddingConfig.DiskCache config) {
+        if (diskCache == null) {
+            int segmentSizeMb = config.getSegmentSizeMb();
+            if (segmentSizeMb < 1 || segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+                throw new IllegalArgumentException(String.format(
+                        "Embedding磁盘缓存的segment-size-mb必须在1~%d之间: %d", MAX_SEGMENT_SIZE_MB, segmentSizeMb));
+            }
+            diskCache = new PersistentEmbeddingCache(Path.of(config.getPath()), Math.multiplyExact(segmentSizeMb, 1024 * 1024));
+            log.info("启用Embedding磁盘缓存: path={}", config.getPath());
+        }
+        return diskCache;
     }
 
     /**
      * 创建HuggingFace Embedding模型
      *
+     * @param modelName 模型名称
      * @return HuggingFaceEmbeddingModel实例
      */
-    private EmbeddingModel createHuggingFaceModel() {
+    private EmbeddingModel createHuggingFaceModel(String modelName) {
         HuggingFaceEmbeddingModel.HuggingFaceEmbeddingModelBuilder builder = HuggingFaceEmbeddingModel.builder()
                 .baseUrl(embeddingConfig.getBaseUrl())
                 .accessToken(embeddingConfig.getApiKey())
-                .modelId(embeddingConfig.getModel())
+                .modelId(modelName)
                 .timeout(Duration.ofSeconds(60));
-        log.info("创建HuggingFace Embedding模型: modelName={}", embeddingConfig.getModel());
+        log.info("创建HuggingFace Embedding模型: modelName={}", modelName);
         return builder.build();
     }
 
+    /**
+     * 创建本地ONNX Embedding模型
+     * 本地模型文件由local.model-path指定，只对应配置的模型名称；
+     * 创建其他名称的模型（如迁移到新模型）时拒绝，避免以新模型的名义加载旧模型文件
+     *
+     * @param modelName 模型名称
+     * @return LocalOnnxEmbeddingModel实例
+     */
+    private EmbeddingModel createLocalModel(String modelName) {
+        if (!StringUtils.equals(modelName, embeddingConfig.getModel())) {
+            throw new IllegalArgumentException(String.format(
+                    "provider为local时只能使用local.model-path对应的模型%s，不支持创建模型: %s",
+                    embeddingConfig.getModel(), modelName));
+        }
+        EmbeddingConfig.Local local = embeddingConfig.getLocal();
+        if (StringUtils.isAnyBlank(local.getModelPath(), local.getTokenizerPath())) {
+            throw new IllegalArgumentException("本地Embedding模型需要配置model-path和tokenizer-path");
+        }
+        return new LocalOnnxEmbeddingModel(local.getModelPath(), local.getTokenizerPath(),
+                local.getPoolingMode(), local.getThreads());
+    }
+
     /**
      * 创建SiliconFlow Embedding模型
+     * 配置了额外端点时返回多端点路由模型
+     *
+     * @param modelName 模型名称
+     * @return EmbeddingModel实例
+     */
+    private EmbeddingModel createSiliconFlowModel(String modelName) {
+        EmbeddingModel primary = createSiliconFlowModel(modelName, embeddingConfig.getBaseUrl(), embeddingConfig.getApiKey());
+        if (embeddingConfig.getEndpoints().isEmpty()) {
+            return primary;
+        }
+
+        List<RoutingEmbeddingModel.Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(new RoutingEmbeddingModel.Endpoint("primary", primary, 1.0));
+        for (int i = 0; i < embeddingConfig.getEndpoints().size(); i++) {
+            EmbeddingConfig.Endpoint endpoint = embeddingConfig.getEndpoints().get(i);
+            String name = StringUtils.defaultIfBlank(endpoint.getName(), "endpoint-" + (i + 1));
+            endpoints.add(new RoutingEmbeddingModel.Endpoint(name,
+                    createSiliconFlowModel(modelName, endpoint.getBaseUrl(), endpoint.getApiKey()), endpoint.getWeight()));
+        }
+
+        EmbeddingConfig.Routing routing = embeddingConfig.getRouting();
+        log.info("创建多端点路由Embedding模型: 端点数={}", endpoints.size());
+        return new RoutingEmbeddingModel(endpoints, routing.getBatchSize(), routing.getTimeout(),
+                routing.getFailureThreshold(), routing.getCooldown());
+    }
+
+    /**
+     * 创建单个SiliconFlow端点的Embedding模型
      *
+     * @param modelName 模型名称
+     * @param baseUrl   基础URL
+     * @param apiKey    API密钥
      * @return SiliconflowEmbeddingModel实例
      */
-    private EmbeddingModel createSiliconFlowModel() {
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                // 设置最大内存大小为1MB
-                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(1024 * 1024))
-                .build();
+    private EmbeddingModel createSiliconFlowModel(String modelName, String baseUrl, String apiKey) {
+        // 响应体由EmbeddingResponseDecoder流式解码，无需设置maxInMemorySize
         WebClient webClient = WebClient.builder()
-                .baseUrl(embeddingConfig.getBaseUrl())
-                .exchangeStrategies(strategies)
-                .defaultHeader("Authorization", "Bearer " + embeddingConfig.getApiKey())
+                .baseUrl(baseUrl)
+                .defaultHeader("Authorization", "Bearer " + apiKey)
                 .build();
-        return new SiliconflowEmbeddingModel(embeddingConfig.getModel(), webClient);
+        return new SiliconflowEmbeddingModel(modelName, webClient);
     }
 
 }
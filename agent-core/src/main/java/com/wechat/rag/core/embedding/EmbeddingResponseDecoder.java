@@ -0,0 +1,183 @@
+package com.wechat.rag.core.embedding;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import dev.langchain4j.data.embedding.Embedding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * OpenAI兼容 /embeddings 响应的流式解码器
+ * 基于Jackson非阻塞解析器按块消费响应体，向量直接写入float[]：
+ * 1. 不产生List&lt;Float&gt;装箱对象，也没有Embedding.from(List)的二次拷贝
+ * 2. 不需要把整个响应体缓冲在内存中，因此不受WebClient maxInMemorySize限制
+ * 3. 直接读取DataBuffer底层的ByteBuffer，不为每个数据块拷贝一份byte[]
+ * <p>
+ * 非线程安全，每个响应使用一个实例
+ */
+public class EmbeddingResponseDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 向量缓冲区初始容量（bge-m3为1024维）
+     */
+    private static final int INITIAL_VECTOR_CAPACITY = 1024;
+
+    // JSON层级：1=根对象 2=data数组 3=data元素 4=embedding数组
+    private static final int ROOT_DEPTH = 1;
+    private static final int ITEM_DEPTH = 3;
+    private static final int VECTOR_DEPTH = 4;
+
+    private final JsonParser parser;
+
+    private final ByteBufferFeeder feeder;
+
+    private final List<IndexedVector> vectors = new ArrayList<>();
+
+    private int depth;
+
+    private String rootField;
+
+    private String itemField;
+
+    private boolean inVector;
+
+    private float[] vectorBuffer = new float[INITIAL_VECTOR_CAPACITY];
+
+    private int vectorSize;
+
+    private float[] itemVector;
+
+    private int itemIndex;
+
+    public EmbeddingResponseDecoder() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建Embedding响应解析器失败", e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 输入一段响应字节
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * 输入一段响应字节
+     * 返回时buffer中的内容已全部解析，调用方可以立即释放或复用该buffer
+     *
+     * @param buffer 字节缓冲区，从position读到limit
+     */
+    public void feed(ByteBuffer buffer) {
+        try {
+            feeder.feedInput(buffer);
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析Embedding响应失败", e);
+        }
+    }
+
+    /**
+     * 结束输入并返回按index排序的嵌入向量
+     *
+     * @return 嵌入向量列表
+     */
+    public List<Embedding> finish() {
+        try {
+            feeder.endOfInput();
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析Embedding响应失败", e);
+        }
+        if (depth != 0) {
+            throw new IllegalStateException("Embedding响应不完整");
+        }
+        return vectors.stream()
+                .sorted(Comparator.comparingInt(IndexedVector::index))
+                .map(vector -> Embedding.from(vector.vector()))
+                .toList();
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT -> {
+                    depth++;
+                    if (depth == ITEM_DEPTH && inData()) {
+                        itemField = null;
+                        itemVector = null;
+                        itemIndex = vectors.size();
+                    }
+                }
+                case START_ARRAY -> {
+                    depth++;
+                    if (depth == VECTOR_DEPTH && inData() && "embedding".equals(itemField)) {
+                        inVector = true;
+                        vectorSize = 0;
+                    }
+                }
+                case END_ARRAY -> {
+                    if (inVector && depth == VECTOR_DEPTH) {
+                        itemVector = Arrays.copyOf(vectorBuffer, vectorSize);
+                        inVector = false;
+                    }
+                    depth--;
+                }
+                case END_OBJECT -> {
+                    if (depth == ITEM_DEPTH && inData() && itemVector != null) {
+                        vectors.add(new IndexedVector(itemIndex, itemVector));
+                    }
+                    depth--;
+                }
+                case FIELD_NAME -> {
+                    if (depth == ROOT_DEPTH) {
+                        rootField = parser.currentName();
+                    } else if (depth == ITEM_DEPTH) {
+                        itemField = parser.currentName();
+                    }
+                }
+                case VALUE_NUMBER_FLOAT, VALUE_NUMBER_INT -> {
+                    if (inVector) {
+                        appendVectorValue(parser.getFloatValue());
+                    } else if (depth == ITEM_DEPTH && inData() && "index".equals(itemField)) {
+                        itemIndex = parser.getIntValue();
+                    }
+                }
+                default -> {
+                    // 其他字段（model、usage等）无需解析
+                }
+            }
+        }
+    }
+
+    private boolean inData() {
+        return "data".equals(rootField);
+    }
+
+    private void appendVectorValue(float value) {
+        if (vectorSize == vectorBuffer.length) {
+            vectorBuffer = Arrays.copyOf(vectorBuffer, vectorBuffer.length * 2);
+        }
+        vectorBuffer[vectorSize++] = value;
+    }
+
+    private record IndexedVector(int index, float[] vector) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.wechat.rag.core.embedding;
+
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.onnx.OnnxEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内ONNX Embedding模型
+ * 基于ONNX Runtime在本地推理，无网络延迟和按token计费，适用于离线部署和大批量回填
+ * <p>
+ * OnnxEmbeddingModel每次会话调用只推理一条文本，不会把多条文本补齐成一个[batch, seqLen]张量，
+ * 因此这里不做批量推理，而是一个有界并发的逐条执行器：每条文本作为一个任务提交到固定大小的推理线程池，
+ * 最多threads条同时推理（线程数默认等于CPU核数），避免弹性线程池无限制地抢占CPU，结果按输入顺序返回
+ */
+@Slf4j
+public class LocalOnnxEmbeddingModel implements ReactiveEmbeddingModel, AutoCloseable {
+    private final OnnxEmbeddingModel delegate;
+
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    private final Scheduler scheduler;
+
+    public LocalOnnxEmbeddingModel(String modelPath, String tokenizerPath, PoolingMode poolingMode,
+                                   int threads) {
+        this.threads = threads;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-embedding-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Schedulers.fromExecutorService(executor, "onnx-embedding");
+        // 在调用线程内推理，并行度完全由外层线程池控制
+        this.delegate = new OnnxEmbeddingModel(modelPath, tokenizerPath, poolingMode, Runnable::run);
+        log.info("本地ONNX Embedding模型已加载: modelPath={}, threads={}", modelPath, threads);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(embedAllAsync(textSegments).block());
+    }
+
+    @Override
+    public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
+        if (textSegments.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return Flux.fromIterable(textSegments)
+                .flatMapSequential(segment -> Mono.fromCallable(() -> delegate.embed(segment).content())
+                        .subscribeOn(scheduler), threads)
+                .collectList();
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+        executor.shutdown();
+        log.info("本地ONNX Embedding模型推理线程池已关闭");
+    }
+}
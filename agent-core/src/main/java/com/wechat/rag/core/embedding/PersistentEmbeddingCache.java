@@ -0,0 +1,253 @@
+package com.wechat.rag.core.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * 持久化的嵌入向量缓存
+ * 以 (模型, sha256(文本)) 为键，将float[]向量追加写入内存映射的分段文件
+ * 重建索引或更换向量库时可以直接复用已有向量，无需再次调用付费API
+ * <p>
+ * 记录格式: [int 提交标记][32字节 key][int 维度][float * 维度]
+ * 提交标记在记录其余部分写完后才写入，启动扫描遇到未提交的记录即停止，保证崩溃后不会读到半条记录
+ */
+@Slf4j
+public class PersistentEmbeddingCache implements AutoCloseable {
+    private static final int COMMIT_MARKER = 0x45434331;
+
+    private static final int KEY_BYTES = 32;
+
+    private static final int HEADER_BYTES = Integer.BYTES + KEY_BYTES + Integer.BYTES;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * 下一个新建分段文件的编号，大于已有分段文件的最大编号
+     */
+    private int nextSegmentNumber;
+
+    /**
+     * key -> (段序号 << 32 | 段内偏移)
+     */
+    private final Map<Key, Long> index = new ConcurrentHashMap<>();
+
+    /**
+     * 当前写入段的写入位置
+     */
+    private int writePosition;
+
+    public PersistentEmbeddingCache(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开Embedding磁盘缓存失败: " + directory, e);
+        }
+        log.info("Embedding磁盘缓存已加载: path={}, 段数={}, 条目数={}", directory, segments.size(), index.size());
+    }
+
+    /**
+     * 读取缓存的向量
+     *
+     * @param model 模型名称
+     * @param text  文本
+     * @return 向量，未命中时返回null
+     */
+    public float[] get(String model, String text) {
+        Long location = index.get(Key.of(model, text));
+        if (location == null) {
+            return null;
+        }
+        MappedByteBuffer segment = segments.get((int) (location >>> 32));
+        int offset = (int) (location & 0xFFFFFFFFL);
+        int dimension = segment.getInt(offset + Integer.BYTES + KEY_BYTES);
+        float[] vector = new float[dimension];
+        int position = offset + HEADER_BYTES;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = segment.getFloat(position + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    /**
+     * 写入向量，已存在时忽略
+     *
+     * @param model  模型名称
+     * @param text   文本
+     * @param vector 向量
+     */
+    public synchronized void put(String model, String text, float[] vector) {
+        Key key = Key.of(model, text);
+        if (index.containsKey(key)) {
+            return;
+        }
+        int recordBytes = HEADER_BYTES + vector.length * Float.BYTES;
+        if (recordBytes > segmentBytes) {
+            log.warn("向量过大，无法写入磁盘缓存: 维度={}", vector.length);
+            return;
+        }
+        try {
+            if (segments.isEmpty() || writePosition + recordBytes > segmentBytes) {
+                segments.add(mapSegment(segmentFile(nextSegmentNumber++)));
+                writePosition = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建Embedding磁盘缓存段失败", e);
+        }
+
+        int segmentIndex = segments.size() - 1;
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        int offset = writePosition;
+        key.writeTo(segment, offset + Integer.BYTES);
+        segment.putInt(offset + Integer.BYTES + KEY_BYTES, vector.length);
+        int position = offset + HEADER_BYTES;
+        for (int i = 0; i < vector.length; i++) {
+            segment.putFloat(position + i * Float.BYTES, vector[i]);
+        }
+        // 最后写入提交标记
+        segment.putInt(offset, COMMIT_MARKER);
+
+        writePosition += recordBytes;
+        index.put(key, ((long) segmentIndex << 32) | offset);
+    }
+
+    /**
+     * 缓存条目数
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.forEach(MappedByteBuffer::force);
+        log.info("Embedding磁盘缓存已落盘: path={}, 条目数={}", directory, index.size());
+    }
+
+    /**
+     * 按文件名映射已有的分段文件并重建内存索引
+     * 分段文件按编号排序后依次加载，编号可以不连续（如某个分段文件被删除）
+     */
+    private void load() throws IOException {
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files
+                    .filter(file -> segmentNumber(file) >= 0)
+                    .sorted(Comparator.comparingInt(PersistentEmbeddingCache::segmentNumber))
+                    .toList();
+        }
+        for (Path file : segmentFiles) {
+            int segmentIndex = segments.size();
+            MappedByteBuffer segment = mapSegment(file);
+            segments.add(segment);
+            writePosition = scanSegment(segment, segmentIndex);
+            nextSegmentNumber = segmentNumber(file) + 1;
+        }
+    }
+
+    /**
+     * 分段文件编号，不是分段文件时返回-1
+     */
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        return NumberUtils.toInt(number, -1);
+    }
+
+    private Path segmentFile(int segmentNumber) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 扫描分段内已提交的记录
+     *
+     * @return 下一条记录的写入位置
+     */
+    private int scanSegment(MappedByteBuffer segment, int segmentIndex) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentBytes && segment.getInt(offset) == COMMIT_MARKER) {
+            int dimension = segment.getInt(offset + Integer.BYTES + KEY_BYTES);
+            int recordBytes = HEADER_BYTES + dimension * Float.BYTES;
+            if (dimension <= 0 || offset + recordBytes > segmentBytes) {
+                log.warn("Embedding磁盘缓存段损坏，忽略后续记录: segment={}, offset={}", segmentIndex, offset);
+                break;
+            }
+            index.put(Key.readFrom(segment, offset + Integer.BYTES), ((long) segmentIndex << 32) | offset);
+            offset += recordBytes;
+        }
+        return offset;
+    }
+
+    private MappedByteBuffer mapSegment(Path file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            if (randomAccessFile.length() < segmentBytes) {
+                randomAccessFile.setLength(segmentBytes);
+            }
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * sha256(模型 + 文本)，以4个long保存以减少内存占用
+     */
+    private record Key(long a, long b, long c, long d) {
+
+        static Key of(String model, String text) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(model.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(text.getBytes(StandardCharsets.UTF_8));
+                ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+                return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256不可用", e);
+            }
+        }
+
+        static Key readFrom(ByteBuffer buffer, int offset) {
+            return new Key(buffer.getLong(offset), buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+        }
+
+        void writeTo(ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, a);
+            buffer.putLong(offset + 8, b);
+            buffer.putLong(offset + 16, c);
+            buffer.putLong(offset + 24, d);
+        }
+    }
+}
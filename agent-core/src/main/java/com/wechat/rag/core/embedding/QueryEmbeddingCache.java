@@ -0,0 +1,108 @@
+package com.wechat.rag.core.embedding;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wechat.rag.core.config.EmbeddingConfig;
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询向量缓存
+ * 重复提问、刷新和前端重试时复用查询向量，省去一次远程向量化调用
+ * 同一查询的并发请求只会触发一次向量化（single-flight）
+ */
+@Component
+@Slf4j
+public class QueryEmbeddingCache {
+    private static final String CACHE_NAME = "rag.query.embedding";
+
+    private final EmbeddingModel embeddingModel;
+
+    private final boolean enabled;
+
+    private final AsyncCache<String, Embedding> cache;
+
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel, EmbeddingConfig embeddingConfig, MeterRegistry meterRegistry) {
+        EmbeddingConfig.QueryCache config = embeddingConfig.getQueryCache();
+        this.embeddingModel = embeddingModel;
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .buildAsync();
+        // 命中/未命中/淘汰等指标
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("查询向量缓存: enabled={}, maxSize={}, ttl={}", enabled, config.getMaxSize(), config.getTtl());
+    }
+
+    /**
+     * 获取查询文本的嵌入向量
+     *
+     * @param query 查询文本
+     * @return 嵌入向量
+     */
+    public Mono<Embedding> embed(String query) {
+        String normalizedQuery = normalize(query);
+        if (!enabled) {
+            return ReactiveEmbeddingModel.embed(embeddingModel, normalizedQuery);
+        }
+        // 加载失败的Future会被自动移出缓存，下次请求重新加载
+        return Mono.fromFuture(() -> cache.get(normalizedQuery,
+                (key, executor) -> ReactiveEmbeddingModel.embed(embeddingModel, key).toFuture()));
+    }
+
+    /**
+     * 批量获取多个查询文本的嵌入向量
+     * 未命中的查询合并为一次向量化调用
+     *
+     * @param queries 查询文本列表
+     * @return 与输入顺序一致的嵌入向量列表
+     */
+    public Mono<List<Embedding>> embedAll(List<String> queries) {
+        List<String> normalizedQueries = queries.stream().map(this::normalize).toList();
+        if (!enabled) {
+            return ReactiveEmbeddingModel.embedAll(embeddingModel, normalizedQueries.stream().map(TextSegment::from).toList());
+        }
+        return Mono.fromFuture(() -> cache.getAll(normalizedQueries, (keys, executor) -> {
+                    List<String> misses = List.copyOf(keys);
+                    return ReactiveEmbeddingModel.embedAll(embeddingModel, misses.stream().map(TextSegment::from).toList())
+                            .map(embeddings -> {
+                                Map<String, Embedding> loaded = new HashMap<>();
+                                for (int i = 0; i < misses.size(); i++) {
+                                    loaded.put(misses.get(i), embeddings.get(i));
+                                }
+                                return loaded;
+                            })
+                            .toFuture();
+                }))
+                .map(embeddings -> normalizedQueries.stream().map(embeddings::get).toList());
+    }
+
+    /**
+     * 清空缓存（切换Embedding模型时调用）
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        log.info("已清空查询向量缓存");
+    }
+
+    /**
+     * 规范化查询文本：去除首尾空白并合并连续空白
+     */
+    private String normalize(String query) {
+        return StringUtils.normalizeSpace(query);
+    }
+}
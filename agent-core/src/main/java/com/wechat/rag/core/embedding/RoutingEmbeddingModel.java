@@ -0,0 +1,227 @@
+package com.wechat.rag.core.embedding;
+
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多端点路由Embedding模型
+ * 将请求分摊到同一模型的多个端点上：
+ * 1. 按 权重 / (平均延迟 * (进行中请求数 + 1)) 加权随机选择端点，慢的端点自动分到更少流量
+ * 2. 连续失败达到阈值的端点熔断一段时间，冷却后放行请求试探恢复
+ * 3. 单次请求超时、连接失败或返回429/5xx后切换到其他端点重试；其他错误（如400参数错误）换端点也不会成功，
+ * 直接返回且不计入熔断
+ * 大批量输入按routingBatchSize拆分后分别路由，吞吐随端点数扩展
+ */
+@Slf4j
+public class RoutingEmbeddingModel implements ReactiveEmbeddingModel {
+    /**
+     * 延迟EWMA平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.3;
+
+    /**
+     * 尚无延迟样本时的初始估计（毫秒）
+     */
+    private static final double INITIAL_LATENCY_MS = 500;
+
+    private final List<Endpoint> endpoints;
+
+    private final int routingBatchSize;
+
+    private final Duration timeout;
+
+    private final int failureThreshold;
+
+    private final Duration cooldown;
+
+    public RoutingEmbeddingModel(List<Endpoint> endpoints, int routingBatchSize, Duration timeout,
+                                 int failureThreshold, Duration cooldown) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个Embedding端点");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.routingBatchSize = routingBatchSize;
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.cooldown = cooldown;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(embedAllAsync(textSegments).block());
+    }
+
+    @Override
+    public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
+        if (textSegments.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<List<TextSegment>> batches = new ArrayList<>();
+        for (int i = 0; i < textSegments.size(); i += routingBatchSize) {
+            batches.add(textSegments.subList(i, Math.min(i + routingBatchSize, textSegments.size())));
+        }
+        return Flux.fromIterable(batches)
+                .flatMapSequential(batch -> route(batch, new HashSet<>()), endpoints.size())
+                .concatMapIterable(embeddings -> embeddings)
+                .collectList();
+    }
+
+    @Override
+    public int dimension() {
+        return endpoints.getFirst().getModel().dimension();
+    }
+
+    /**
+     * 选择端点执行请求，失败时排除该端点后重试
+     */
+    private Mono<List<Embedding>> route(List<TextSegment> batch, Set<Endpoint> excluded) {
+        Endpoint endpoint = choose(excluded);
+        if (endpoint == null) {
+            return Mono.error(new IllegalStateException("没有可用的Embedding端点"));
+        }
+        return Mono.defer(() -> {
+                    endpoint.inFlight.incrementAndGet();
+                    long start = System.nanoTime();
+                    return ReactiveEmbeddingModel.embedAll(endpoint.getModel(), batch)
+                            .timeout(timeout)
+                            .doOnSuccess(embeddings -> endpoint.recordSuccess((System.nanoTime() - start) / 1_000_000.0))
+                            .doFinally(signal -> endpoint.inFlight.decrementAndGet());
+                })
+                .onErrorResume(RoutingEmbeddingModel::isTransient, e -> {
+                    endpoint.recordFailure(failureThreshold, cooldown);
+                    excluded.add(endpoint);
+                    log.warn("Embedding端点请求失败，切换端点重试: endpoint={}, 已尝试={}/{}, error={}",
+                            endpoint.getName(), excluded.size(), endpoints.size(), e.getMessage());
+                    if (excluded.size() >= endpoints.size()) {
+                        return Mono.error(e);
+                    }
+                    return route(batch, excluded);
+                });
+    }
+
+    /**
+     * 是否为端点暂时不可用导致的失败：超时、连接错误、429、5xx
+     */
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = Exceptions.unwrap(e); cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException response) {
+                HttpStatusCode status = response.getStatusCode();
+                return status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.is5xxServerError();
+            }
+            if (cause instanceof TimeoutException || cause instanceof WebClientRequestException
+                    || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在未熔断的端点中按健康分加权随机选择
+     * 所有端点都熔断时退化为选择最早恢复的端点，避免整体不可用
+     */
+    private Endpoint choose(Set<Endpoint> excluded) {
+        long now = System.currentTimeMillis();
+        List<Endpoint> candidates = endpoints.stream()
+                .filter(endpoint -> !excluded.contains(endpoint))
+                .toList();
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        List<Endpoint> available = candidates.stream()
+                .filter(endpoint -> endpoint.openUntil <= now)
+                .toList();
+        if (available.isEmpty()) {
+            return candidates.stream()
+                    .min((a, b) -> Long.compare(a.openUntil, b.openUntil))
+                    .orElse(null);
+        }
+
+        double[] scores = new double[available.size()];
+        double total = 0;
+        for (int i = 0; i < available.size(); i++) {
+            scores[i] = available.get(i).score();
+            total += scores[i];
+        }
+        double target = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < available.size(); i++) {
+            target -= scores[i];
+            if (target < 0) {
+                return available.get(i);
+            }
+        }
+        return available.getLast();
+    }
+
+    /**
+     * 路由端点及其健康状态
+     */
+    public static class Endpoint {
+        @Getter
+        private final String name;
+
+        @Getter
+        private final EmbeddingModel model;
+
+        private final double weight;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile double latencyMs = INITIAL_LATENCY_MS;
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private volatile long openUntil;
+
+        public Endpoint(String name, EmbeddingModel model, double weight) {
+            this.name = name;
+            this.model = model;
+            this.weight = weight;
+        }
+
+        boolean isOpen() {
+            return openUntil > System.currentTimeMillis();
+        }
+
+        double score() {
+            return weight / (latencyMs * (inFlight.get() + 1));
+        }
+
+        void recordSuccess(double elapsedMs) {
+            latencyMs = EWMA_ALPHA * elapsedMs + (1 - EWMA_ALPHA) * latencyMs;
+            if (consecutiveFailures.getAndSet(0) > 0) {
+                log.info("Embedding端点已恢复: endpoint={}", name);
+            }
+        }
+
+        void recordFailure(int failureThreshold, Duration cooldown) {
+            int failures = consecutiveFailures.incrementAndGet();
+            if (failures >= failureThreshold) {
+                openUntil = System.currentTimeMillis() + cooldown.toMillis();
+                log.warn("Embedding端点连续失败{}次，熔断{}秒: endpoint={}", failures, cooldown.toSeconds(), name);
+            }
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.wechat.rag.core.embedding;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.wechat.rag.core.config.EmbeddingConfig;
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,7 +22,7 @@ import java.util.List;
  */
 @Slf4j
 @Builder
-public class SiliconflowEmbeddingModel implements EmbeddingModel {
+public class SiliconflowEmbeddingModel implements ReactiveEmbeddingModel {
     /**
      * API批次大小限制（默认32）
      */
@@ -36,6 +38,11 @@ public class SiliconflowEmbeddingModel implements EmbeddingModel {
      */
     private final double tokenEstimationRatio = 4.0;
 
+    /**
+     * 子批次最大并发请求数
+     */
+    private final int maxConcurrency = 4;
+
     private final String model;
 
     private final WebClient webClient;
@@ -58,50 +65,43 @@ public class SiliconflowEmbeddingModel implements EmbeddingModel {
         }
     }
 
-    @Data
-    private static class EmbedResponse {
-        /**
-         * The name of the model used to generate the embedding.
-         */
-        private String model;
-
-        private List<EmbeddingData> data;
-
-        private Usage usage;
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(embedAllAsync(textSegments).block());
     }
 
     @Override
-    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+    public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
         if (textSegments == null || textSegments.isEmpty()) {
-            return Response.from(new ArrayList<>());
+            return Mono.just(new ArrayList<>());
         }
 
         List<String> texts = textSegments.stream().map(TextSegment::text).toList();
-        
+
         // 1. 验证文本长度
 //        validateTextLengths(texts);
-        
+
         // 2. 分割为子批次
         List<List<String>> subBatches = partitionTexts(texts);
-        
-        // 3. 处理每个子批次并聚合结果
-        List<Embedding> allEmbeddings = new ArrayList<>();
-        for (int i = 0; i < subBatches.size(); i++) {
-            List<String> batch = subBatches.get(i);
-            log.debug("处理子批次 {}/{}, 大小: {}", i + 1, subBatches.size(), batch.size());
-            
-            List<Embedding> batchEmbeddings = processSingleBatch(batch);
-            allEmbeddings.addAll(batchEmbeddings);
-        }
-        
-        // 5. 验证结果完整性
-        if (allEmbeddings.size() != texts.size()) {
-            throw new RuntimeException(String.format("嵌入结果数量不匹配: 输入%d个文本，生成%d个嵌入", 
-                texts.size(), allEmbeddings.size()));
-        }
-        
-        log.debug("成功处理 {} 个文本段，分 {} 个子批次", texts.size(), subBatches.size());
-        return Response.from(allEmbeddings);
+
+        // 3. 并发处理子批次，按原始顺序聚合结果
+        return Flux.range(0, subBatches.size())
+                .flatMapSequential(i -> {
+                    List<String> batch = subBatches.get(i);
+                    log.debug("处理子批次 {}/{}, 大小: {}", i + 1, subBatches.size(), batch.size());
+                    return processSingleBatch(batch);
+                }, maxConcurrency)
+                .flatMapIterable(batchEmbeddings -> batchEmbeddings)
+                .collectList()
+                .map(allEmbeddings -> {
+                    // 4. 验证结果完整性
+                    if (allEmbeddings.size() != texts.size()) {
+                        throw new RuntimeException(String.format("嵌入结果数量不匹配: 输入%d个文本，生成%d个嵌入",
+                                texts.size(), allEmbeddings.size()));
+                    }
+                    log.debug("成功处理 {} 个文本段，分 {} 个子批次", texts.size(), subBatches.size());
+                    return allEmbeddings;
+                });
     }
 
     /**
@@ -141,13 +141,13 @@ public class SiliconflowEmbeddingModel implements EmbeddingModel {
     /**
      * 处理单个批次的API请求
      */
-    private List<Embedding> processSingleBatch(List<String> texts) {
+    private Mono<List<Embedding>> processSingleBatch(List<String> texts) {
         EmbedRequest requestBody = EmbedRequest.builder()
                 .model(this.model)
                 .input(texts)
                 .build();
 
-        EmbedResponse embedResponse = webClient.post()
+        return webClient.post()
                 .uri(uriBuilder ->
                         uriBuilder.path("/embeddings")
                                 .build()
@@ -155,55 +155,24 @@ public class SiliconflowEmbeddingModel implements EmbeddingModel {
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(EmbedResponse.class)
-                .block();
-
-        if (embedResponse == null || embedResponse.getData() == null) {
-            log.error("Embedding响应为空");
-            throw new RuntimeException("Embedding响应为空");
-        }
-
-        List<Embedding> embeddings = embedResponse.getData().stream()
-                .map(e -> Embedding.from(e.getEmbedding()))
-                .toList();
-
-        log.debug("成功生成 {} 个嵌入向量", embeddings.size());
-        return embeddings;
-    }
-
-    /**
-     * The usage information for the request.
-     */
-    @Data
-    private static class Usage {
-        /**
-         * The number of tokens used by the prompt.
-         */
-        @JsonProperty("prompt_tokens")
-        private Integer promptTokens;
-
-        /**
-         * The number of tokens used by the completion.
-         */
-        @JsonProperty("completion_tokens")
-        private Integer completionTokens;
-
-        /**
-         * The total number of tokens used in the request.
-         */
-        @JsonProperty("total_tokens")
-        private Integer totalTokens;
-    }
-
-    /**
-     * The list of embeddings generated by the model.
-     */
-    @Data
-    private static class EmbeddingData {
-        private List<Float> embedding;
-
-        private Integer index;
-
-        private String object;
+                // 流式解码响应体，向量直接写入float[]，不受maxInMemorySize限制
+                .bodyToFlux(DataBuffer.class)
+                .collect(EmbeddingResponseDecoder::new, (decoder, dataBuffer) -> {
+                    // 直接解析底层ByteBuffer，不拷贝到byte[]
+                    try (DataBuffer.ByteBufferIterator buffers = dataBuffer.readableByteBuffers()) {
+                        buffers.forEachRemaining(decoder::feed);
+                    } finally {
+                        DataBufferUtils.release(dataBuffer);
+                    }
+                })
+                .map(decoder -> {
+                    List<Embedding> embeddings = decoder.finish();
+                    if (embeddings.isEmpty()) {
+                        log.error("Embedding响应为空");
+                        throw new RuntimeException("Embedding响应为空");
+                    }
+                    log.debug("成功生成 {} 个嵌入向量", embeddings.size());
+                    return embeddings;
+                });
     }
 }
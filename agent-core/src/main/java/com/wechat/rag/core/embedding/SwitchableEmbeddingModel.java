@@ -0,0 +1,80 @@
+package com.wechat.rag.core.embedding;
+
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 可切换的Embedding模型
+ * 模型迁移完成后原子地切换到新模型，所有持有该Bean的组件无需重建
+ */
+@Slf4j
+public class SwitchableEmbeddingModel implements ReactiveEmbeddingModel, AutoCloseable {
+
+    @Getter
+    private volatile String modelName;
+
+    private volatile EmbeddingModel delegate;
+
+    public SwitchableEmbeddingModel(String modelName, EmbeddingModel delegate) {
+        this.modelName = modelName;
+        this.delegate = delegate;
+    }
+
+    /**
+     * 切换到新模型，旧模型持有的资源随之释放
+     *
+     * @param modelName      模型名称
+     * @param embeddingModel 新模型
+     */
+    public synchronized void switchTo(String modelName, EmbeddingModel embeddingModel) {
+        EmbeddingModel previous = this.delegate;
+        String previousName = this.modelName;
+        this.delegate = embeddingModel;
+        this.modelName = modelName;
+        log.info("Embedding模型已切换: {} -> {}", previousName, modelName);
+        closeQuietly(previous);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
+        return ReactiveEmbeddingModel.embedAll(delegate, textSegments);
+    }
+
+    @Override
+    public Mono<Embedding> embedAsync(String text) {
+        return ReactiveEmbeddingModel.embed(delegate, text);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(delegate);
+    }
+
+    private void closeQuietly(EmbeddingModel embeddingModel) {
+        if (embeddingModel instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("关闭Embedding模型失败: {}", e.getMessage());
+            }
+        }
+    }
+}
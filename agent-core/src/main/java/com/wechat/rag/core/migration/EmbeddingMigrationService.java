@@ -0,0 +1,327 @@
+package com.wechat.rag.core.migration;
+
+import com.wechat.rag.core.agent.retriever.RetrievalResultCache;
+import com.wechat.rag.core.config.EmbeddingConfig;
+import com.wechat.rag.core.embedding.EmbeddingModelFactory;
+import com.wechat.rag.core.embedding.QueryEmbeddingCache;
+import com.wechat.rag.core.embedding.SwitchableEmbeddingModel;
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import com.wechat.rag.datasync.model.ProgressStatus;
+import com.wechat.rag.datasync.model.SyncIncrementCheckpoint;
+import com.wechat.rag.datasync.service.ChatlogVectorService;
+import com.wechat.rag.datasync.service.ProgressService;
+import com.wechat.rag.datasync.service.RedisSyncStateService;
+import com.wechat.rag.datasync.vectorstore.ShadowIndexWriter;
+import com.wechat.rag.datasync.vectorstore.SwitchableEmbeddingStore;
+import com.wechat.rag.datasync.vectorstore.VectorStoreFactory;
+import com.wechat.rag.datasync.vectorstore.VectorStoreService;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedding模型迁移服务
+ * 1. 用新模型在后台回填影子集合，按批次限速
+ * 2. 回填期间增量同步双写：主集合照常写入，同一批文本再用新模型写入影子集合
+ * 3. 回填完成后等待进行中的增量批次写完，再一并切换Embedding模型和Vector Store，检索全程不中断
+ * 切换结果保存在Redis中，重启时在初始化阶段同步恢复
+ */
+@Service
+@Slf4j
+public class EmbeddingMigrationService implements ShadowIndexWriter {
+    private static final String ACTIVE_KEY = "migration:active";
+
+    private static final String ALL_TALKERS = "*";
+
+    private static final Duration RESTORE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final EmbeddingModelFactory embeddingModelFactory;
+
+    private final SwitchableEmbeddingModel embeddingModel;
+
+    private final VectorStoreFactory vectorStoreFactory;
+
+    private final SwitchableEmbeddingStore embeddingStore;
+
+    private final QueryEmbeddingCache queryEmbeddingCache;
+
+    private final RetrievalResultCache retrievalResultCache;
+
+    private final ChatlogVectorService chatlogVectorService;
+
+    private final VectorStoreService vectorStoreService;
+
+    private final RedisSyncStateService redisSyncStateService;
+
+    private final ProgressService progressService;
+
+    private final ReactiveRedisTemplate<String, Object> redisTemplate;
+
+    private final EmbeddingConfig.Migration config;
+
+    private volatile Migration migration;
+
+    public EmbeddingMigrationService(EmbeddingModelFactory embeddingModelFactory,
+                                     SwitchableEmbeddingModel embeddingModel,
+                                     VectorStoreFactory vectorStoreFactory,
+                                     SwitchableEmbeddingStore embeddingStore,
+                                     QueryEmbeddingCache queryEmbeddingCache,
+                                     RetrievalResultCache retrievalResultCache,
+                                     ChatlogVectorService chatlogVectorService,
+                                     VectorStoreService vectorStoreService,
+                                     RedisSyncStateService redisSyncStateService,
+                                     ProgressService progressService,
+                                     ReactiveRedisTemplate<String, Object> redisTemplate,
+                                     EmbeddingConfig embeddingConfig) {
+        this.embeddingModelFactory = embeddingModelFactory;
+        this.embeddingModel = embeddingModel;
+        this.vectorStoreFactory = vectorStoreFactory;
+        this.embeddingStore = embeddingStore;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.retrievalResultCache = retrievalResultCache;
+        this.chatlogVectorService = chatlogVectorService;
+        this.vectorStoreService = vectorStoreService;
+        this.redisSyncStateService = redisSyncStateService;
+        this.progressService = progressService;
+        this.redisTemplate = redisTemplate;
+        this.config = embeddingConfig.getMigration();
+    }
+
+    /**
+     * 开始迁移
+     *
+     * @param modelName      目标模型
+     * @param collectionName 影子集合名称
+     * @return 任务ID
+     */
+    public synchronized String start(String modelName, String collectionName) {
+        if (migration != null) {
+            throw new MigrationStateException("已有迁移任务在进行中: taskId=" + migration.taskId);
+        }
+        if (StringUtils.equals(collectionName, embeddingStore.getCollectionName())) {
+            throw new IllegalArgumentException("影子集合不能与当前集合相同: " + collectionName);
+        }
+
+        EmbeddingModel targetModel = embeddingModelFactory.createModel(modelName);
+        EmbeddingStore<TextSegment> targetStore = vectorStoreFactory.createStore(collectionName, targetModel.dimension());
+        String taskId = UUID.randomUUID().toString();
+        progressService.initProgress(taskId, ALL_TALKERS, embeddingModel.getModelName() + " -> " + modelName);
+
+        // 赋值后增量同步即开始双写
+        Migration current = new Migration(taskId, modelName, collectionName, targetModel, targetStore);
+        migration = current;
+        log.info("开始Embedding模型迁移: {} -> {}, 影子集合={}, taskId={}",
+                embeddingModel.getModelName(), modelName, collectionName, taskId);
+
+        current.task = backfill(current)
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        v -> {
+                        },
+                        e -> {
+                            log.error("Embedding模型迁移回填失败: taskId={}", taskId, e);
+                            progressService.failProgress(taskId, e.getMessage());
+                            clear(current);
+                        },
+                        () -> onBackfillCompleted(current));
+        return taskId;
+    }
+
+    /**
+     * 切换到影子集合和新模型
+     */
+    public synchronized Mono<Void> cutover() {
+        Migration current = migration;
+        if (current == null) {
+            return Mono.error(new MigrationStateException("没有进行中的迁移任务"));
+        }
+        if (!current.backfilled) {
+            return Mono.error(new MigrationStateException("影子集合尚未回填完成"));
+        }
+
+        // 等待进行中的增量批次写完后再切换，切换期间到达的批次切换后用新模型写入新集合
+        String previousCollection = embeddingStore.getCollectionName();
+        return vectorStoreService.switchExclusively(() -> {
+                    if (migration != current) {
+                        throw new MigrationStateException("迁移已取消: taskId=" + current.taskId);
+                    }
+                    embeddingModel.switchTo(current.modelName, current.model);
+                    embeddingStore.switchTo(current.collectionName, current.store);
+                    queryEmbeddingCache.invalidateAll();
+                    retrievalResultCache.invalidateAll();
+                    clear(current);
+                    log.info("Embedding模型迁移已切换: model={}, collection={}，旧集合{}可在确认后手动删除",
+                            current.modelName, current.collectionName, previousCollection);
+                }, config.getCutoverTimeout())
+                .then(redisTemplate.opsForHash()
+                        .putAll(ACTIVE_KEY, Map.of("model", current.modelName, "collection", current.collectionName)))
+                .then();
+    }
+
+    /**
+     * 取消迁移，停止回填和双写，影子集合保留
+     */
+    public synchronized void cancel() {
+        Migration current = migration;
+        if (current == null) {
+            throw new MigrationStateException("没有进行中的迁移任务");
+        }
+        if (current.task != null) {
+            current.task.dispose();
+        }
+        progressService.failProgress(current.taskId, "迁移已取消");
+        clear(current);
+        log.info("Embedding模型迁移已取消: taskId={}", current.taskId);
+    }
+
+    /**
+     * 当前迁移状态
+     */
+    public MigrationStatus getStatus() {
+        Migration current = migration;
+        MigrationStatus.MigrationStatusBuilder builder = MigrationStatus.builder()
+                .activeModel(embeddingModel.getModelName())
+                .activeCollection(embeddingStore.getCollectionName());
+        if (current != null) {
+            builder.taskId(current.taskId)
+                    .targetModel(current.modelName)
+                    .targetCollection(current.collectionName)
+                    .backfilled(current.backfilled)
+                    .progress(progressService.getProgress(current.taskId).orElse(null));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Mono<Void> write(List<TextSegment> textSegments) {
+        Migration current = migration;
+        if (current == null) {
+            return Mono.empty();
+        }
+        return ReactiveEmbeddingModel.embedAll(current.model, textSegments)
+                .flatMap(embeddings -> Mono.fromRunnable(() -> current.store.addAll(
+                                textSegments.stream().map(VectorStoreService::documentId).toList(), embeddings, textSegments))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> delete(Filter filter) {
+        Migration current = migration;
+        if (current == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> current.store.removeAll(filter))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * 初始化时同步恢复已切换的模型和集合，同步和检索开始前即使用迁移后的向量空间
+     */
+    @PostConstruct
+    public void restoreActive() {
+        Map<String, String> active = redisTemplate.opsForHash().entries(ACTIVE_KEY)
+                .collectMap(entry -> entry.getKey().toString(), entry -> entry.getValue().toString())
+                .block(RESTORE_TIMEOUT);
+        if (active == null || !active.containsKey("model") || !active.containsKey("collection")) {
+            return;
+        }
+        String modelName = active.get("model");
+        String collectionName = active.get("collection");
+        if (StringUtils.equals(collectionName, embeddingStore.getCollectionName())) {
+            return;
+        }
+        log.info("恢复迁移后的Embedding模型和集合: model={}, collection={}", modelName, collectionName);
+        EmbeddingModel model = embeddingModelFactory.createModel(modelName);
+        embeddingModel.switchTo(modelName, model);
+        embeddingStore.switchTo(collectionName, vectorStoreFactory.createStore(collectionName, model.dimension()));
+        queryEmbeddingCache.invalidateAll();
+        retrievalResultCache.invalidateAll();
+    }
+
+    /**
+     * 逐个talker回填影子集合
+     */
+    private Mono<Void> backfill(Migration current) {
+        String time = config.getBackfillStartDate() + "~" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        return redisSyncStateService.getAllCheckpoints()
+                .map(SyncIncrementCheckpoint::getTalker)
+                .collectList()
+                .flatMap(talkers -> {
+                    int total = talkers.size();
+                    AtomicInteger finished = new AtomicInteger();
+                    progressService.updateProgress(current.taskId, ProgressStatus.PROCESSING, 0, total, 0);
+                    return Flux.fromIterable(talkers)
+                            .concatMap(talker -> chatlogVectorService.backfillChatlog(
+                                            talker, time, current.model, current.store, config.getBatchDelay())
+                                    .doOnSuccess(count -> {
+                                        int done = finished.incrementAndGet();
+                                        progressService.updateProgress(current.taskId, ProgressStatus.PROCESSING,
+                                                done * 100 / total, total, done);
+                                    }))
+                            .then();
+                });
+    }
+
+    private void onBackfillCompleted(Migration current) {
+        current.backfilled = true;
+        progressService.completeProgress(current.taskId);
+        log.info("影子集合回填完成: collection={}, taskId={}", current.collectionName, current.taskId);
+        if (config.isAutoCutover()) {
+            cutover().subscribe(null, e -> log.error("自动切换失败: taskId={}", current.taskId, e));
+        }
+    }
+
+    private synchronized void clear(Migration current) {
+        if (migration == current) {
+            migration = null;
+        }
+    }
+
+    /**
+     * 进行中的迁移
+     */
+    private static class Migration {
+        private final String taskId;
+
+        private final String modelName;
+
+        private final String collectionName;
+
+        private final EmbeddingModel model;
+
+        private final EmbeddingStore<TextSegment> store;
+
+        private volatile boolean backfilled;
+
+        private volatile Disposable task;
+
+        Migration(String taskId, String modelName, String collectionName,
+                  EmbeddingModel model, EmbeddingStore<TextSegment> store) {
+            this.taskId = taskId;
+            this.modelName = modelName;
+            this.collectionName = collectionName;
+            this.model = model;
+            this.store = store;
+        }
+    }
+}
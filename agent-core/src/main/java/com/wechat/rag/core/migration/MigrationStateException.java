@@ -0,0 +1,12 @@
+package com.wechat.rag.core.migration;
+
+/**
+ * 迁移状态冲突异常
+ * 当前迁移状态不允许该操作时抛出（已有迁移在进行、没有进行中的迁移、影子集合尚未回填完成等）
+ */
+public class MigrationStateException extends RuntimeException {
+
+    public MigrationStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,47 @@
+package com.wechat.rag.core.migration;
+
+import com.wechat.rag.datasync.model.Progress;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Embedding模型迁移状态
+ */
+@Data
+@Builder
+public class MigrationStatus {
+    /**
+     * 当前生效的模型
+     */
+    private String activeModel;
+
+    /**
+     * 当前生效的集合
+     */
+    private String activeCollection;
+
+    /**
+     * 迁移任务ID（无迁移时为空）
+     */
+    private String taskId;
+
+    /**
+     * 目标模型
+     */
+    private String targetModel;
+
+    /**
+     * 影子集合
+     */
+    private String targetCollection;
+
+    /**
+     * 影子集合是否已回填完成
+     */
+    private boolean backfilled;
+
+    /**
+     * 回填进度
+     */
+    private Progress progress;
+}
@@ -3,9 +3,17 @@ package com.wechat.rag.core.rerank;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * 重排模型基类
+ * 所有重排模型都对去除[CONTEXT]块后的查询打分：对话上下文不是检索意图，交给交叉编码器只会稀释相关度，
+ * 还会占用本地模型的maxLength
+ */
 public class BaseRerankModel {
     private static final Pattern CONTEXT_PATTERN = Pattern.compile("\\[CONTEXT\\](.*?)\\[/CONTEXT\\]\\n?", Pattern.DOTALL);
 
+    /**
+     * 去除查询中的[CONTEXT]块，得到交给重排模型的查询
+     */
     protected String processQueryText(String queryText) {
         Matcher contextMatcher = CONTEXT_PATTERN.matcher(queryText);
         if (contextMatcher.find()) {
@@ -0,0 +1,68 @@
+package com.wechat.rag.core.rerank;
+
+import com.wechat.rag.datasync.vectorstore.lexical.BigramTokenizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于字符二元组的BM25打分器
+ * 词项由BigramTokenizer切分，IDF基于传入的候选集合计算，适合对一次检索的候选做轻量预排序
+ */
+public final class Bm25Scorer {
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private Bm25Scorer() {
+    }
+
+    /**
+     * 为候选文档打分
+     *
+     * @param query     查询文本
+     * @param documents 候选文档
+     * @return 与输入顺序一致的BM25分数
+     */
+    public static double[] score(String query, List<String> documents) {
+        List<String> queryTerms = BigramTokenizer.tokenize(query);
+        double[] scores = new double[documents.size()];
+        if (queryTerms.isEmpty() || documents.isEmpty()) {
+            return scores;
+        }
+
+        List<Map<String, Integer>> termFrequencies = new ArrayList<>(documents.size());
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        long totalLength = 0;
+        int[] lengths = new int[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            List<String> terms = BigramTokenizer.tokenize(documents.get(i));
+            Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+            termFrequencies.add(frequencies);
+            lengths[i] = terms.size();
+            totalLength += terms.size();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / documents.size());
+
+        int n = documents.size();
+        for (String term : queryTerms) {
+            int df = documentFrequencies.getOrDefault(term, 0);
+            if (df == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < n; i++) {
+                Integer tf = termFrequencies.get(i).get(term);
+                if (tf != null) {
+                    double norm = K1 * (1 - B + B * lengths[i] / averageLength);
+                    scores[i] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+        }
+        return scores;
+    }
+}
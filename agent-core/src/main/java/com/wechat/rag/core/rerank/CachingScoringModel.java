@@ -0,0 +1,103 @@
+package com.wechat.rag.core.rerank;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带分数缓存的重排模型
+ * 以（查询哈希, 文档文本哈希）为键缓存重排分数，仅将未见过的文档交给底层模型
+ * 键与交给底层模型的内容完全一致：查询为原始字符串，文档为文本内容，
+ * 查询的任何差异或消息文本被修改后都不会复用旧分数
+ */
+@Slf4j
+public class CachingScoringModel implements ReactiveScoringModel {
+    private final ScoringModel delegate;
+
+    private final Cache<Key, Double> cache;
+
+    public CachingScoringModel(ScoringModel delegate, Cache<Key, Double> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * 缓存键
+     */
+    public record Key(long queryHash, long documentHash) {
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> textSegments, String query) {
+        return Response.from(scoreAllAsync(textSegments, query).block());
+    }
+
+    @Override
+    public Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query) {
+        long queryHash = hash(query);
+        Double[] results = new Double[textSegments.size()];
+        // 未命中键 -> 其在批次中的位置
+        Map<Key, List<Integer>> misses = new LinkedHashMap<>();
+        Map<Key, TextSegment> missSegments = new LinkedHashMap<>();
+        for (int i = 0; i < textSegments.size(); i++) {
+            TextSegment segment = textSegments.get(i);
+            Key key = new Key(queryHash, hash(segment.text()));
+            Double score = cache.getIfPresent(key);
+            if (score != null) {
+                results[i] = score;
+            } else {
+                misses.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                missSegments.putIfAbsent(key, segment);
+            }
+        }
+
+        log.debug("重排分数缓存: 总数={}, 未命中={}", textSegments.size(), misses.size());
+        if (misses.isEmpty()) {
+            return Mono.just(Arrays.asList(results));
+        }
+
+        List<Key> missKeys = new ArrayList<>(missSegments.keySet());
+        return ReactiveScoringModel.scoreAll(delegate, new ArrayList<>(missSegments.values()), query)
+                .map(scores -> {
+                    for (int i = 0; i < missKeys.size(); i++) {
+                        Key key = missKeys.get(i);
+                        Double score = scores.get(i);
+                        cache.put(key, score);
+                        misses.get(key).forEach(position -> results[position] = score);
+                    }
+                    return Arrays.asList(results);
+                });
+    }
+
+    /**
+     * 清空缓存（切换重排模型时调用）
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * SHA-256的前8字节
+     */
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.wechat.rag.core.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 级联重排模型
+ * 先用进程内的BM25字符二元组打分预排序，仅将前topK个候选交给昂贵的重排模型
+ * 预排序按倒数排名融合BM25排名和输入顺序（即向量分数排名），避免误剪没有字面重合的语义匹配
+ * 被剪枝的候选得分为0，会被重排阈值过滤
+ */
+@Slf4j
+public class CascadingScoringModel extends BaseRerankModel implements ReactiveScoringModel {
+    private static final double PRUNED_SCORE = 0.0;
+
+    /**
+     * 倒数排名融合常数
+     */
+    private static final int RRF_K = 60;
+
+    private final ScoringModel delegate;
+
+    private final int topK;
+
+    public CascadingScoringModel(ScoringModel delegate, int topK) {
+        this.delegate = delegate;
+        this.topK = topK;
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> textSegments, String query) {
+        return Response.from(scoreAllAsync(textSegments, query).block());
+    }
+
+    @Override
+    public Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query) {
+        if (textSegments.size() <= topK) {
+            return ReactiveScoringModel.scoreAll(delegate, textSegments, query);
+        }
+
+        double[] lexicalScores = Bm25Scorer.score(processQueryText(query),
+                textSegments.stream().map(TextSegment::text).toList());
+        int[] lexicalRanks = new int[textSegments.size()];
+        int[] byLexical = IntStream.range(0, textSegments.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> lexicalScores[i]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int rank = 0; rank < byLexical.length; rank++) {
+            lexicalRanks[byLexical[rank]] = rank;
+        }
+        double[] fused = new double[textSegments.size()];
+        for (int i = 0; i < fused.length; i++) {
+            fused[i] = 1.0 / (RRF_K + lexicalRanks[i] + 1) + 1.0 / (RRF_K + i + 1);
+        }
+        int[] survivors = IntStream.range(0, textSegments.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> fused[i]).reversed())
+                .limit(topK)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        log.debug("级联预排序: {} -> {}", textSegments.size(), survivors.length);
+
+        List<TextSegment> survivorSegments = Arrays.stream(survivors).mapToObj(textSegments::get).toList();
+        return ReactiveScoringModel.scoreAll(delegate, survivorSegments, query)
+                .map(scores -> {
+                    Double[] results = new Double[textSegments.size()];
+                    Arrays.fill(results, PRUNED_SCORE);
+                    for (int i = 0; i < survivors.length; i++) {
+                        results[survivors[i]] = scores.get(i);
+                    }
+                    return Arrays.asList(results);
+                });
+    }
+}
@@ -0,0 +1,96 @@
+package com.wechat.rag.core.rerank;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.onnx.OnnxScoringModel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内ONNX交叉编码器重排模型
+ * 候选按batchSize分批，在固定大小的推理线程池中并行打分，延迟只取决于本地CPU
+ * <p>
+ * 每个推理会话的算子内线程数 = CPU核数 / 推理线程数，避免多批并行时线程过度订阅
+ */
+@Slf4j
+public class LocalOnnxRerankModel extends BaseRerankModel implements ReactiveScoringModel, AutoCloseable {
+    private final OnnxScoringModel delegate;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    private final Scheduler scheduler;
+
+    public LocalOnnxRerankModel(String modelPath, String tokenizerPath, int maxLength, int threads, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("本地Rerank模型的batch-size必须大于0: " + batchSize);
+        }
+        this.threads = threads;
+        this.batchSize = batchSize;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-rerank-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Schedulers.fromExecutorService(executor, "onnx-rerank");
+        this.delegate = new OnnxScoringModel(modelPath, sessionOptions(threads), tokenizerPath, maxLength, true);
+        log.info("本地ONNX Rerank模型已加载: modelPath={}, maxLength={}, threads={}, batchSize={}",
+                modelPath, maxLength, threads, batchSize);
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> textSegments, String query) {
+        return Response.from(scoreAllAsync(textSegments, query).block());
+    }
+
+    @Override
+    public Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query) {
+        if (textSegments.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        String queryText = processQueryText(query);
+        log.info("开始本地Rerank，查询文本: {}, 文档数量: {}", queryText, textSegments.size());
+
+        List<List<TextSegment>> batches = new ArrayList<>();
+        for (int i = 0; i < textSegments.size(); i += batchSize) {
+            batches.add(textSegments.subList(i, Math.min(i + batchSize, textSegments.size())));
+        }
+        return Flux.fromIterable(batches)
+                .flatMapSequential(batch -> Mono.fromCallable(() -> delegate.scoreAll(batch, queryText).content())
+                        .subscribeOn(scheduler), threads)
+                .concatMapIterable(scores -> scores)
+                .collectList();
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+        executor.shutdown();
+        log.info("本地ONNX Rerank模型推理线程池已关闭");
+    }
+
+    private static OrtSession.SessionOptions sessionOptions(int threads) {
+        try {
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setIntraOpNumThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / threads));
+            return options;
+        } catch (OrtException e) {
+            throw new IllegalStateException("创建ONNX会话配置失败", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.wechat.rag.core.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.scoring.ScoringModel;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 响应式重排模型
+ * 在LangChain4j阻塞接口之外提供非阻塞的打分能力
+ */
+public interface ReactiveScoringModel extends ScoringModel {
+
+    /**
+     * 异步为文本片段打分
+     *
+     * @param textSegments 文本片段列表
+     * @param query        查询文本
+     * @return 与输入顺序一致的分数列表
+     */
+    Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query);
+
+    /**
+     * 以响应式方式调用任意ScoringModel
+     * 非响应式实现退化为在弹性线程池中执行阻塞调用
+     *
+     * @param scoringModel 重排模型
+     * @param textSegments 文本片段列表
+     * @param query        查询文本
+     * @return 分数列表
+     */
+    static Mono<List<Double>> scoreAll(ScoringModel scoringModel, List<TextSegment> textSegments, String query) {
+        if (scoringModel instanceof ReactiveScoringModel reactiveModel) {
+            return reactiveModel.scoreAllAsync(textSegments, query);
+        }
+        return Mono.fromCallable(() -> scoringModel.scoreAll(textSegments, query).content())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
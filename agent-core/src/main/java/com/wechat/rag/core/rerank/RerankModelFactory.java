@@ -1,8 +1,13 @@
 package com.wechat.rag.core.rerank;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.wechat.rag.core.config.RerankConfig;
 import dev.langchain4j.model.scoring.ScoringModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
@@ -13,9 +18,14 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Slf4j
 public class RerankModelFactory {
 
+    private static final String SCORE_CACHE_NAME = "rag.rerank.score";
+
     @Autowired
     private RerankConfig rerankConfig;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
     public ScoringModel createScoringModel() {
         String providerValue = rerankConfig.getProvider();
@@ -23,11 +33,43 @@ public class RerankModelFactory {
 
         log.info("创建RerankModel: {}", provider);
 
-        return switch (provider) {
+        ScoringModel scoringModel = switch (provider) {
             case LOCAL -> createLocalModel();
             case SILICON_FLOW -> createSiliconFlowModel();
             default -> throw new IllegalArgumentException("不支持的Rerank模型提供者: " + provider);
         };
+        // 级联在外层：被剪枝的候选分数与候选集合有关，不能进入分数缓存
+        return wrapWithCascade(wrapWithCache(scoringModel));
+    }
+
+    /**
+     * 启用级联时在重排模型前加BM25预排序
+     */
+    private ScoringModel wrapWithCascade(ScoringModel scoringModel) {
+        RerankConfig.Cascade config = rerankConfig.getCascade();
+        if (!config.isEnabled()) {
+            return scoringModel;
+        }
+        log.info("重排级联预排序: topK={}", config.getTopK());
+        return new CascadingScoringModel(scoringModel, config.getTopK());
+    }
+
+    /**
+     * 启用分数缓存时包装为CachingScoringModel
+     */
+    private ScoringModel wrapWithCache(ScoringModel scoringModel) {
+        RerankConfig.ScoreCache config = rerankConfig.getScoreCache();
+        if (!config.isEnabled()) {
+            return scoringModel;
+        }
+        Cache<CachingScoringModel.Key, Double> cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, SCORE_CACHE_NAME);
+        log.info("重排分数缓存: maxSize={}, ttl={}", config.getMaxSize(), config.getTtl());
+        return new CachingScoringModel(scoringModel, cache);
     }
 
     private ScoringModel createSiliconFlowModel() {
@@ -40,10 +82,20 @@ public class RerankModelFactory {
                 .exchangeStrategies(strategies)
                 .defaultHeader("Authorization", "Bearer " + rerankConfig.getApiKey())
                 .build();
-        return new SiliconflowRerankModel(rerankConfig.getModel(), webClient);
+        return SiliconflowRerankModel.builder()
+                .model(rerankConfig.getModel())
+                .webClient(webClient)
+                .chunkSize(rerankConfig.getChunkSize())
+                .concurrency(rerankConfig.getConcurrency())
+                .build();
     }
 
     private ScoringModel createLocalModel() {
-        throw new IllegalArgumentException("本地Rerank模型未实现");
+        RerankConfig.Local local = rerankConfig.getLocal();
+        if (StringUtils.isAnyBlank(local.getModelPath(), local.getTokenizerPath())) {
+            throw new IllegalArgumentException("本地Rerank模型需要配置model-path和tokenizer-path");
+        }
+        return new LocalOnnxRerankModel(local.getModelPath(), local.getTokenizerPath(),
+                local.getMaxLength(), local.getThreads(), local.getBatchSize());
     }
 }
@@ -3,54 +3,108 @@ package com.wechat.rag.core.rerank;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.output.Response;
-import dev.langchain4j.model.scoring.ScoringModel;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Slf4j
-@Builder
-public class SiliconflowRerankModel extends BaseRerankModel implements ScoringModel {
+public class SiliconflowRerankModel extends BaseRerankModel implements ReactiveScoringModel {
     private final String model;
 
     private final WebClient webClient;
 
+    /**
+     * 单次请求的文档数
+     */
+    private final int chunkSize;
+
+    /**
+     * 并发请求数
+     */
+    private final int concurrency;
+
     @Builder
-    private record Request(String model, String query, List<String> documents) {
+    private SiliconflowRerankModel(String model, WebClient webClient, int chunkSize, int concurrency) {
+        if (chunkSize < 1 || concurrency < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Rerank的chunk-size和concurrency必须大于0: chunkSize=%d, concurrency=%d", chunkSize, concurrency));
+        }
+        this.model = model;
+        this.webClient = webClient;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+    }
+
+    @Builder
+    private record Request(String model, String query, List<String> documents,
+                           @JsonProperty("return_documents") Boolean returnDocuments) {
     }
 
     private record RerankResponse(List<Result> results) {
     }
 
-    private record Result(@JsonProperty("relevance_score") Double relevanceScore) {
+    private record Result(Integer index, @JsonProperty("relevance_score") Double relevanceScore) {
     }
 
     @Override
     public Response<List<Double>> scoreAll(List<TextSegment> textSegments, String query) {
-        log.info("开始Rerank，查询文本: {}, 文档数量: {}", processQueryText(query), textSegments.size());
+        return Response.from(scoreAllAsync(textSegments, query).block());
+    }
+
+    @Override
+    public Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query) {
+        String queryText = processQueryText(query);
+        log.info("开始Rerank，查询文本: {}, 文档数量: {}", queryText, textSegments.size());
         List<String> texts = textSegments.stream().map(TextSegment::text).toList();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i += chunkSize) {
+            chunks.add(texts.subList(i, Math.min(i + chunkSize, texts.size())));
+        }
+        // 分块并发请求，按块顺序拼接
+        return Flux.fromIterable(chunks)
+                .flatMapSequential(chunk -> scoreChunk(chunk, queryText), concurrency)
+                .concatMapIterable(scores -> scores)
+                .collectList();
+    }
+
+    /**
+     * 对单个分块打分
+     * 接口按相关度降序返回结果，需要按index还原为输入顺序
+     */
+    private Mono<List<Double>> scoreChunk(List<String> documents, String query) {
         Request request = Request.builder()
                 .model(this.model)
                 .query(query)
-                .documents(texts)
+                .documents(documents)
+                .returnDocuments(false)
                 .build();
-        RerankResponse rerankResponse = webClient.post()
+        return webClient.post()
                 .uri(uriBuilder -> uriBuilder.path("/rerank").build())
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(RerankResponse.class)
-                .block();
-        if (rerankResponse == null) {
-            log.error("Rerank响应为空");
-            throw new RuntimeException("Rerank响应为空");
-        }
-        List<Double> scores = rerankResponse.results().stream()
-                .map(result -> result.relevanceScore())
-                .toList();
-        return Response.from(scores);
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.error("Rerank响应为空");
+                    return Mono.error(new RuntimeException("Rerank响应为空"));
+                }))
+                .map(rerankResponse -> {
+                    Double[] scores = new Double[documents.size()];
+                    for (Result result : rerankResponse.results()) {
+                        scores[result.index()] = result.relevanceScore();
+                    }
+                    if (Arrays.asList(scores).contains(null)) {
+                        throw new RuntimeException(String.format("Rerank结果数量不匹配: 输入%d个文档，返回%d个分数",
+                                documents.size(), rerankResponse.results().size()));
+                    }
+                    return Arrays.asList(scores);
+                });
     }
 }
@@ -1,9 +1,16 @@
 package com.wechat.rag.datasync.config;
 
+import com.wechat.rag.datasync.vectorstore.partition.TimePartitionScheme;
+import com.wechat.rag.datasync.vectorstore.quantization.VectorQuantization;
 import lombok.Data;
 import lombok.Getter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Vector Store配置
@@ -27,10 +34,239 @@ public class VectorStoreConfig {
      */
     private String collectionName;
 
+    /**
+     * 向量维度（创建量化索引时使用）
+     */
+    private int dimension = 1024;
+
+    /**
+     * 向量量化配置
+     */
+    private Quantization quantization = new Quantization();
+
+    /**
+     * Elasticsearch索引配置（provider为elasticsearch时生效）
+     */
+    private Elasticsearch elasticsearch = new Elasticsearch();
+
+    /**
+     * 内嵌Vector Store配置（provider为embedded时生效）
+     */
+    private Embedded embedded = new Embedded();
+
+    /**
+     * 按时间分区配置
+     */
+    private Partition partition = new Partition();
+
+    /**
+     * 按talker分片配置
+     */
+    private Sharding sharding = new Sharding();
+
+    /**
+     * 写入缓冲配置
+     */
+    private WriteBuffer writeBuffer = new WriteBuffer();
+
+    /**
+     * 删除配置
+     */
+    private Deletion deletion = new Deletion();
+
+    /**
+     * 向量量化配置
+     */
+    @Data
+    public static class Quantization {
+        /**
+         * 量化方式：none、int8、binary
+         */
+        private VectorQuantization type = VectorQuantization.NONE;
+
+        /**
+         * 候选过采样倍数，候选数 = maxResults * oversample
+         */
+        private int oversample = 4;
+
+        /**
+         * 候选阶段放宽的minScore
+         */
+        private double minScoreMargin = 0.05;
+    }
+
+    /**
+     * Elasticsearch索引配置（provider为elasticsearch时生效）
+     */
+    @Data
+    public static class Elasticsearch {
+        /**
+         * 是否托管索引：按显式映射预先创建索引，写入走按字节分批的_bulk
+         */
+        private boolean managed = true;
+
+        /**
+         * 未启用量化时dense_vector的index_options.type
+         */
+        private String vectorIndexType = "int8_hnsw";
+
+        /**
+         * 刷新间隔，新写入的消息最迟在该间隔后可检索
+         */
+        private String refreshInterval = "5s";
+
+        /**
+         * 每个_bulk请求体的字节数上限
+         */
+        private DataSize bulkMaxBytes = DataSize.ofMegabytes(5);
+
+        /**
+         * _bulk请求的refresh参数：wait_for时写入返回前文档已可检索，同步推进检查点后检索结果缓存失效，
+         * 随后的查询不会缓存到刷新前的结果；为空时不等待刷新
+         */
+        private String bulkRefresh = "wait_for";
+    }
+
+    /**
+     * 内嵌Vector Store配置
+     */
+    @Data
+    public static class Embedded {
+        /**
+         * 数据目录，每个集合一个子目录
+         */
+        private String path = "./data/vector-store";
+
+        /**
+         * 每个数据段的记录数上限
+         */
+        private int segmentCapacity = 65536;
+
+        /**
+         * 每个数据段元数据文件大小（MB）
+         */
+        private int metadataSegmentMb = 64;
+
+        /**
+         * HNSW每个节点的邻居数
+         */
+        private int hnswM = 16;
+
+        /**
+         * HNSW构建时的候选队列大小
+         */
+        private int efConstruction = 100;
+
+        /**
+         * HNSW检索时的最小候选队列大小
+         */
+        private int efSearch = 100;
+
+        /**
+         * 已删除记录占比超过该值时合并数据段
+         */
+        private double compactionRatio = 0.3;
+
+        /**
+         * 合并检查间隔
+         */
+        private Duration compactionInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * 按时间分区配置
+     * 启用后每个集合按消息时间拆分为多个分区集合（集合名_202501），带时间范围的查询只访问重叠的分区
+     */
+    @Data
+    public static class Partition {
+        /**
+         * 是否启用（仅对启用后写入的数据生效，已有数据需重新同步）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 分区粒度：month、week
+         */
+        private TimePartitionScheme.Granularity granularity = TimePartitionScheme.Granularity.MONTH;
+
+        /**
+         * 跨分区检索的并发数（同时用于talker分片）
+         */
+        private int concurrency = 8;
+    }
+
+    /**
+     * 按talker分片配置
+     * 启用后每个集合按talker拆分为多个分片集合（集合名_s03），带talker条件的查询只访问对应分片；
+     * 与时间分区同时启用时分区键为 分片__时间（集合名_s03__202501）
+     */
+    @Data
+    public static class Sharding {
+        /**
+         * 是否启用（仅对启用后写入的数据生效，已有数据需重新同步）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 哈希分片数（修改后已有数据需重新同步）
+         */
+        private int shards = 8;
+
+        /**
+         * 独占分片的talker（消息量大的群），每个单独一个分片，删除时直接删除整个分片
+         */
+        private List<String> dedicatedTalkers = new ArrayList<>();
+    }
+
+    /**
+     * 写入缓冲配置
+     * 多个调用方的写入合并为一次批量写入，达到maxBatchSize条或等待超过maxDelay时提交
+     */
+    @Data
+    public static class WriteBuffer {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每次提交的文档数
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * 首条写入最多等待的时间
+         */
+        private Duration maxDelay = Duration.ofMillis(100);
+
+        /**
+         * 未完成写入的文档数上限，超过时新的写入等待
+         */
+        private int maxPendingDocuments = 5000;
+    }
+
+    /**
+     * 删除配置
+     * 按talker删除在后台分块执行，只按talker删除且talker有独占分片时直接删除分片
+     */
+    @Data
+    public static class Deletion {
+        /**
+         * 每块删除的文档数
+         */
+        private int chunkSize = 5000;
+
+        /**
+         * Elasticsearch删除限流（每秒文档数），不大于0时不限流
+         */
+        private int requestsPerSecond = 2000;
+    }
+
     @Getter
     public enum Provider {
         CHROMA("chroma"),
-        ELASTICSEARCH("elasticsearch");
+        ELASTICSEARCH("elasticsearch"),
+        EMBEDDED("embedded");
 
         private final String value;
 
@@ -0,0 +1,66 @@
+package com.wechat.rag.datasync.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 响应式Embedding模型
+ * 在LangChain4j阻塞接口之外提供非阻塞的向量化能力，并发度只受连接数限制，而不是弹性线程数
+ */
+public interface ReactiveEmbeddingModel extends EmbeddingModel {
+
+    /**
+     * 异步批量生成嵌入向量
+     *
+     * @param textSegments 文本片段列表
+     * @return 与输入顺序一致的嵌入向量列表
+     */
+    Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments);
+
+    /**
+     * 异步生成单个文本的嵌入向量
+     *
+     * @param text 文本
+     * @return 嵌入向量
+     */
+    default Mono<Embedding> embedAsync(String text) {
+        return embedAllAsync(List.of(TextSegment.from(text)))
+                .map(List::getFirst);
+    }
+
+    /**
+     * 以响应式方式调用任意EmbeddingModel
+     * 非响应式实现退化为在弹性线程池中执行阻塞调用
+     *
+     * @param embeddingModel Embedding模型
+     * @param textSegments   文本片段列表
+     * @return 嵌入向量列表
+     */
+    static Mono<List<Embedding>> embedAll(EmbeddingModel embeddingModel, List<TextSegment> textSegments) {
+        if (embeddingModel instanceof ReactiveEmbeddingModel reactiveModel) {
+            return reactiveModel.embedAllAsync(textSegments);
+        }
+        return Mono.fromCallable(() -> embeddingModel.embedAll(textSegments).content())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 以响应式方式为单个文本生成嵌入向量
+     *
+     * @param embeddingModel Embedding模型
+     * @param text           文本
+     * @return 嵌入向量
+     */
+    static Mono<Embedding> embed(EmbeddingModel embeddingModel, String text) {
+        if (embeddingModel instanceof ReactiveEmbeddingModel reactiveModel) {
+            return reactiveModel.embedAsync(text);
+        }
+        return Mono.fromCallable(() -> embeddingModel.embed(text).content())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,16 @@
+package com.wechat.rag.datasync.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 同步检查点推进事件
+ * talker的新数据写入Vector Store并更新检查点后发布，talker数据被全部或按时间范围删除时同样发布（lastSeq为null）
+ * 依赖该talker数据的缓存据此失效
+ */
+@Data
+@AllArgsConstructor
+public class CheckpointAdvancedEvent {
+    private String talker;
+    private Long lastSeq;
+}
@@ -21,6 +21,11 @@ public enum ProgressStatus {
      * 正在存储向量数据
      */
     STORING("正在存储数据"),
+
+    /**
+     * 正在删除向量数据
+     */
+    DELETING("正在删除数据"),
     
     /**
      * 处理完成
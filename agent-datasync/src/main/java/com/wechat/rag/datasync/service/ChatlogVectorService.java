@@ -2,17 +2,19 @@ package com.wechat.rag.datasync.service;
 
 import com.wechat.rag.datasync.chatlog.ChatlogApi;
 import com.wechat.rag.datasync.chatlog.response.ChatlogResponse;
+import com.wechat.rag.datasync.embedding.ReactiveEmbeddingModel;
+import com.wechat.rag.datasync.model.CheckpointAdvancedEvent;
 import com.wechat.rag.datasync.model.ProgressStatus;
 import com.wechat.rag.datasync.model.SyncIncrementCheckpoint;
 import com.wechat.rag.datasync.vectorstore.VectorStoreService;
 import dev.langchain4j.data.document.Metadata;
-import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -20,8 +22,11 @@ import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
@@ -66,6 +71,9 @@ public class ChatlogVectorService {
     @Autowired
     private AutoSyncService autoSyncService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * 获取已同步的聊天记录检查点
      *
@@ -79,17 +87,55 @@ public class ChatlogVectorService {
     }
 
     public Mono<Void> deleteSyncedChatlogs(String talker) {
+        return deleteChatlogs(talker, null, null).then();
+    }
+
+    /**
+     * 删除已同步的聊天记录，向量数据在后台分块删除
+     * 未指定时间范围时先移出自动同步列表并清除同步状态，再删除talker的全部数据；
+     * 指定时间范围时只删除该范围内的数据，同步检查点不变（已删除的范围不会被增量同步补回）
+     *
+     * @param talker           聊天对象
+     * @param time             时间范围 YYYY-MM-DD 或 YYYY-MM-DD~YYYY-MM-DD，为空时删除全部
+     * @param progressCallback 进度回调
+     * @return 删除的文档数（存储无法统计时为0）
+     */
+    public Mono<Long> deleteChatlogs(String talker, String time, ProgressCallback progressCallback) {
         if (StringUtils.isEmpty(talker)) {
             return Mono.error(new IllegalArgumentException("Talker不能为空"));
         }
+        Long startSeq = null;
+        Long endSeq = null;
+        if (StringUtils.isNotBlank(time)) {
+            try {
+                String[] range = time.split("~");
+                LocalDate start = LocalDate.parse(range[0].trim());
+                LocalDate end = range.length > 1 ? LocalDate.parse(range[1].trim()) : start;
+                // seq为消息时间戳（毫秒）
+                startSeq = start.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                endSeq = end.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+            } catch (DateTimeParseException e) {
+                return Mono.error(new IllegalArgumentException("时间范围格式错误: " + time));
+            }
+        }
+
+        // 删除向量数据库中的记录
+        Mono<Long> delete = vectorStoreService.deleteByTalker(talker, startSeq, endSeq, (total, deleted) -> {
+            // 完成前最多显示99%，全部完成后由调用方标记100%
+            int percentage = total > 0 ? (int) Math.min(99, deleted * 100 / total) : 0;
+            safeProgressCallback(progressCallback, ProgressStatus.DELETING, percentage,
+                    total >= 0 ? total.intValue() : null, deleted.intValue());
+        });
+        if (startSeq != null) {
+            return delete.doOnSuccess(deleted -> eventPublisher.publishEvent(new CheckpointAdvancedEvent(talker, null)));
+        }
+        // 先停止同步再删除向量，删除期间的增量同步不会再写入随后失去检查点的数据
         return Mono.when(
-                // 删除向量数据库中的记录
-                vectorStoreService.deleteByTalker(talker),
-                // 删除Redis中的同步状态
-                redisSyncStateService.deleteTalker(talker),
-                // 从自动同步列表中移除
-                autoSyncService.removeFromAutoSync(talker)
-        );
+                        // 从自动同步列表中移除
+                        autoSyncService.removeFromAutoSync(talker),
+                        // 删除Redis中的同步状态
+                        redisSyncStateService.deleteTalker(talker))
+                .then(delete);
     }
 
     /**
@@ -218,6 +264,97 @@ public class ChatlogVectorService {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * 回填聊天记录到指定的集合（Embedding模型迁移使用）
+     * 按页顺序拉取并逐批写入，批次间等待batchDelay以限制对Embedding API和向量库的压力。
+     * 文档ID由talker和seq生成，与迁移期间的双写结果重复时直接覆盖。不更新同步检查点
+     *
+     * @param talker      聊天对象
+     * @param time        时间范围
+     * @param targetModel 目标Embedding模型
+     * @param targetStore 目标Vector Store
+     * @param batchDelay  批次间隔
+     * @return 写入的文档数
+     */
+    public Mono<Integer> backfillChatlog(String talker, String time, EmbeddingModel targetModel,
+                                         EmbeddingStore<TextSegment> targetStore, Duration batchDelay) {
+        return chatlogApi.getChatlogCount(talker, time)
+                .flatMapMany(countResponse -> {
+                    int totalPages = (countResponse.getCount() + DEFAULT_PAGE_SIZE - 1) / DEFAULT_PAGE_SIZE;
+                    log.info("开始回填聊天记录: talker={}, 总数={}, 页数={}", talker, countResponse.getCount(), totalPages);
+                    return Flux.range(0, totalPages);
+                })
+                .concatMap(page -> fetchChatlogPage(talker, time, page))
+                .flatMapIterable(records -> records)
+                .filter(this::isValidChatlog)
+                .map(this::toTextSegment)
+                .buffer(DEFAULT_BATCH_SIZE)
+                .concatMap(batch -> ReactiveEmbeddingModel.embedAll(targetModel, batch)
+                        .flatMap(embeddings -> Mono.fromRunnable(() -> targetStore.addAll(
+                                        batch.stream().map(VectorStoreService::documentId).toList(), embeddings, batch))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                        .retryWhen(Retry.backoff(2, Duration.ofSeconds(2)))
+                        .thenReturn(batch.size())
+                        .delayElement(batchDelay))
+                .reduce(0, Integer::sum)
+                .doOnSuccess(count -> log.info("回填聊天记录完成: talker={}, 文档数={}", talker, count));
+    }
+
+    /**
+     * 获取指定日期中各seq前后window条消息所在范围的聊天记录，转换为TextSegment并按seq升序排列
+     * 用于检索后按seq窗口补充上下文，只取有效的文本消息
+     * 聊天记录接口只能按日期分页（按时间升序），因此从当天开头翻页，取到最后一个seq之后window条有效消息即停止，
+     * 不再翻完整天；第一个seq之前window条以外的消息直接丢弃
+     *
+     * @param talker      聊天对象
+     * @param day         日期 格式：YYYY-MM-DD
+     * @param seqs        命中消息的seq
+     * @param window      每个seq前后各需要的消息数
+     * @param maxMessages 最多翻阅的记录数
+     * @return 按seq升序的TextSegment列表
+     */
+    public Mono<List<TextSegment>> fetchSegmentsAround(String talker, String day, Collection<Long> seqs,
+                                                       int window, int maxMessages) {
+        long firstSeq = Collections.min(seqs);
+        long lastSeq = Collections.max(seqs);
+        int maxPages = Math.max(1, (maxMessages + DEFAULT_PAGE_SIZE - 1) / DEFAULT_PAGE_SIZE);
+        return Flux.defer(() -> {
+                    AtomicInteger trailing = new AtomicInteger();
+                    return Flux.range(0, maxPages)
+                            .concatMap(page -> fetchChatlogPage(talker, day, page))
+                            // 不足一页说明已取完；最后一个seq之后已有window条有效消息时无需继续
+                            .takeUntil(records -> records.size() < DEFAULT_PAGE_SIZE
+                                    || trailing.addAndGet(countValidAfter(records, lastSeq)) >= window);
+                })
+                .flatMapIterable(records -> records)
+                .filter(this::isValidChatlog)
+                .map(this::toTextSegment)
+                .collectSortedList(Comparator.comparingLong(segment -> segment.metadata().getLong("seq")))
+                .map(segments -> trimToWindow(segments, firstSeq, lastSeq, window));
+    }
+
+    private int countValidAfter(List<ChatlogResponse> records, long seq) {
+        return (int) records.stream()
+                .filter(this::isValidChatlog)
+                .filter(chatlog -> chatlog.getSeq() != null && chatlog.getSeq() > seq)
+                .count();
+    }
+
+    /**
+     * 只保留[firstSeq之前window条, lastSeq之后window条]范围内的消息
+     */
+    private List<TextSegment> trimToWindow(List<TextSegment> segments, long firstSeq, long lastSeq, int window) {
+        int first = 0;
+        while (first < segments.size() && segments.get(first).metadata().getLong("seq") < firstSeq) {
+            first++;
+        }
+        int last = segments.size();
+        while (last > 0 && segments.get(last - 1).metadata().getLong("seq") > lastSeq) {
+            last--;
+        }
+        return List.copyOf(segments.subList(Math.max(0, first - window), Math.min(segments.size(), last + window)));
+    }
+
     /**
      * 安全的进度回调调用，避免空指针异常
      */
@@ -308,27 +445,22 @@ public class ChatlogVectorService {
 
         log.debug("开始处理嵌入向量批次，批次大小: {}", textSegments.size());
 
-        return Mono.fromCallable(() -> {
-                    // 生成嵌入向量
-                    Response<List<Embedding>> listResponse = embeddingModel.embedAll(textSegments);
-                    return listResponse.content();
+        // 生成嵌入向量 - 响应式模型不占用弹性线程
+        // 向量化和写入在写入栅栏内完成，模型迁移切换时不会把旧模型的向量写入新集合
+        return vectorStoreService.fenced(() -> ReactiveEmbeddingModel.embedAll(embeddingModel, textSegments)
+                        .flatMap(embeddings -> vectorStoreService.addDocuments(embeddings, textSegments).collectList()))
+                .flatMap(documentIds -> {
+                    // 提取序列号并计算最大值
+                    List<Long> seqs = textSegments.stream()
+                            .map(segment -> segment.metadata().getLong("seq"))
+                            .toList();
+                    Long maxSeq = seqs.stream().max(Long::compareTo).orElse(0L);
+
+                    // 标记为已处理，然后更新检查点
+                    return redisSyncStateService.markSeqsAsProcessed(talker, seqs)
+                            .then(updateCheckpoint(talker, maxSeq, checkpointCallback))
+                            .thenReturn(documentIds.size());
                 })
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(embeddings -> vectorStoreService.addDocuments(embeddings, textSegments)
-                        .collectList()
-                        .flatMap(documentIds -> {
-                            // 提取序列号并计算最大值
-                            List<Long> seqs = textSegments.stream()
-                                    .map(segment -> segment.metadata().getLong("seq"))
-                                    .toList();
-                            Long maxSeq = seqs.stream().max(Long::compareTo).orElse(0L);
-
-                            // 标记为已处理，然后更新检查点
-                            return redisSyncStateService.markSeqsAsProcessed(talker, seqs)
-                                    .then(updateCheckpoint(talker, maxSeq, checkpointCallback))
-                                    .thenReturn(documentIds.size());
-                        })
-                )
                 .retryWhen(Retry.backoff(2, Duration.ofSeconds(2)))
                 .onErrorResume(e -> {
                     log.error("嵌入向量处理失败，跳过该批次: 批次大小={}", textSegments.size(), e);
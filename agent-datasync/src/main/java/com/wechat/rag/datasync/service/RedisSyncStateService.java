@@ -1,9 +1,11 @@
 package com.wechat.rag.datasync.service;
 
 import com.wechat.rag.datasync.chatlog.ChatlogApi;
+import com.wechat.rag.datasync.model.CheckpointAdvancedEvent;
 import com.wechat.rag.datasync.model.SeqProcessedResult;
 import com.wechat.rag.datasync.model.SyncIncrementCheckpoint;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.DefaultTypedTuple;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,8 @@ public class RedisSyncStateService {
 
     private final ChatlogApi chatlogApi;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     protected static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
     // Redis键前缀
@@ -37,9 +41,11 @@ public class RedisSyncStateService {
      */
     private static final Duration PROCESSED_CACHE_TTL = Duration.ofDays(1);
 
-    public RedisSyncStateService(ReactiveRedisTemplate<String, Object> redisTemplate, ChatlogApi chatlogApi) {
+    public RedisSyncStateService(ReactiveRedisTemplate<String, Object> redisTemplate, ChatlogApi chatlogApi,
+                                 ApplicationEventPublisher eventPublisher) {
         this.redisTemplate = redisTemplate;
         this.chatlogApi = chatlogApi;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -74,6 +80,7 @@ public class RedisSyncStateService {
 
     /**
      * 更新同步增量检查点
+     * 调用方在新数据写入Vector Store后更新检查点，成功后发布CheckpointAdvancedEvent
      *
      * @param talker     聊天对象 wxid, 群id, 备注名, 昵称
      * @param checkpoint 同步增量检查点
@@ -83,7 +90,10 @@ public class RedisSyncStateService {
         Map<String, Object> checkpointMap = mapFromCheckpoint(checkpoint);
 
         return redisTemplate.opsForHash().putAll(key, checkpointMap)
-                .doOnSuccess(v -> log.debug("更新检查点成功: talker={}, checkpoint={}", talker, checkpoint))
+                .doOnSuccess(v -> {
+                    log.debug("更新检查点成功: talker={}, checkpoint={}", talker, checkpoint);
+                    eventPublisher.publishEvent(new CheckpointAdvancedEvent(talker, checkpoint.getLastSeq()));
+                })
                 .then();
     }
 
@@ -151,7 +161,8 @@ public class RedisSyncStateService {
         String processedKey = PROCESSED_KEY_PREFIX + talker;
 
         return redisTemplate.delete(checkpointKey)
-                .then(redisTemplate.delete(processedKey));
+                .then(redisTemplate.delete(processedKey))
+                .doOnSuccess(count -> eventPublisher.publishEvent(new CheckpointAdvancedEvent(talker, null)));
     }
 
 
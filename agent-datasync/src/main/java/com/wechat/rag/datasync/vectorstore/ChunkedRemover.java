@@ -0,0 +1,49 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 分块删除
+ * 大批量删除时按块执行并上报已删除数，避免一次长时间的删除请求；不支持的存储退化为一次removeAll
+ */
+public interface ChunkedRemover {
+
+    /**
+     * 统计匹配的文档数
+     *
+     * @param filter 过滤条件
+     * @return 文档数，无法统计时返回-1
+     */
+    long count(Filter filter);
+
+    /**
+     * 分块删除匹配的文档
+     *
+     * @param filter    过滤条件
+     * @param chunkSize 每块最多删除的文档数
+     * @param onRemoved 每块删除完成后回调本块删除数
+     */
+    void removeAll(Filter filter, int chunkSize, LongConsumer onRemoved);
+
+    /**
+     * 统计存储中匹配的文档数
+     */
+    static long count(EmbeddingStore<TextSegment> store, Filter filter) {
+        return store instanceof ChunkedRemover remover ? remover.count(filter) : -1;
+    }
+
+    /**
+     * 分块删除存储中匹配的文档，存储不支持时一次删除
+     */
+    static void removeAll(EmbeddingStore<TextSegment> store, Filter filter, int chunkSize, LongConsumer onRemoved) {
+        if (store instanceof ChunkedRemover remover) {
+            remover.removeAll(filter, chunkSize, onRemoved);
+        } else {
+            store.removeAll(filter);
+        }
+    }
+}
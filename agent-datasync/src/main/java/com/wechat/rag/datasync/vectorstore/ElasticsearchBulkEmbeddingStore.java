@@ -0,0 +1,308 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * Elasticsearch批量写入装饰器
+ * 写入走_bulk接口，按请求体字节数分批（而不是按条数），按配置等待刷新（wait_for），返回时文档已可检索；
+ * 检索和删除仍由LangChain4j实现
+ * 单条文档被拒绝时只跳过该文档，同批其他文档照常写入；只有可重试的失败才让整批失败
+ * 文档结构与LangChain4j一致：text、vector、metadata，索引需由ElasticsearchIndexManager预先创建
+ * 分块删除走_delete_by_query：每块max_docs条，按requests_per_second限流
+ */
+@Slf4j
+public class ElasticsearchBulkEmbeddingStore implements EmbeddingStore<TextSegment>, ChunkedRemover {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+
+    /**
+     * 分块删除连续没有进展的最大块数
+     */
+    private static final int MAX_STALLED_CHUNKS = 10;
+
+    private final EmbeddingStore<TextSegment> delegate;
+
+    private final RestClient restClient;
+
+    private final String indexName;
+
+    private final int maxBytes;
+
+    /**
+     * _bulk的refresh参数，为空时不等待刷新
+     */
+    private final String refresh;
+
+    /**
+     * 删除限流（每秒文档数），不大于0时不限流
+     */
+    private final int deleteRequestsPerSecond;
+
+    public ElasticsearchBulkEmbeddingStore(EmbeddingStore<TextSegment> delegate, RestClient restClient,
+                                           String indexName, int maxBytes, String refresh, int deleteRequestsPerSecond) {
+        this.delegate = delegate;
+        this.restClient = restClient;
+        this.indexName = indexName;
+        this.maxBytes = maxBytes;
+        this.refresh = refresh;
+        this.deleteRequestsPerSecond = deleteRequestsPerSecond;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate.search(request);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> ids = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, textSegments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int count = 0;
+        int batches = 0;
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] action = line(Map.of("index", Map.of("_index", indexName, "_id", ids.get(i))));
+                byte[] source = line(document(embeddings.get(i), textSegments == null ? null : textSegments.get(i)));
+                if (count > 0 && body.size() + action.length + source.length > maxBytes) {
+                    flush(body, count);
+                    body.reset();
+                    count = 0;
+                    batches++;
+                }
+                body.write(action);
+                body.write(source);
+                count++;
+            }
+            if (count > 0) {
+                flush(body, count);
+                batches++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("批量写入Elasticsearch失败: " + indexName, e);
+        }
+        log.debug("批量写入Elasticsearch: index={}, 文档数={}, 批次={}", indexName, ids.size(), batches);
+    }
+
+    /**
+     * 发送一批_bulk请求
+     * 文档本身被拒绝（如映射错误）时记录并跳过，不影响同批其他文档；
+     * 存在可重试的失败（429、5xx）时抛出异常，由调用方整批重试；
+     * 同步、回填和迁移都按talker和seq生成文档ID（VectorStoreService.documentId），重试时覆盖已写入的文档，
+     * 不传文档ID的add/addAll每次生成随机ID，整批重试会产生重复文档
+     */
+    private void flush(ByteArrayOutputStream body, int count) throws IOException {
+        BulkFailures failures = BulkFailures.parse(bulk(body.toByteArray()));
+        if (!failures.retryable().isEmpty()) {
+            throw new IllegalStateException(String.format("批量写入Elasticsearch失败: index=%s, 文档数=%d, 可重试失败%d条, 原因=%s",
+                    indexName, count, failures.retryable().size(), failures.retryable().values().iterator().next()));
+        }
+        if (!failures.rejected().isEmpty()) {
+            log.warn("Elasticsearch拒绝{}条文档，已跳过: index={}, 文档数={}, 失败={}",
+                    failures.rejected().size(), indexName, count, failures.rejected());
+        }
+    }
+
+    /**
+     * 发送_bulk请求
+     *
+     * @param body NDJSON请求体
+     * @return 只包含错误信息的响应
+     */
+    JsonNode bulk(byte[] body) throws IOException {
+        Request request = new Request("POST", "/_bulk");
+        request.addParameter("filter_path", "errors,items.*._id,items.*.status,items.*.error");
+        if (StringUtils.isNotBlank(refresh)) {
+            request.addParameter("refresh", refresh);
+        }
+        request.setEntity(new ByteArrayEntity(body, NDJSON));
+        return execute(request);
+    }
+
+    /**
+     * _bulk响应中失败的文档
+     *
+     * @param rejected  文档本身被拒绝的失败（文档ID -> 原因），重试也不会成功
+     * @param retryable 可重试的失败（文档ID -> 原因），如队列满（429）或节点错误（5xx）
+     */
+    record BulkFailures(Map<String, String> rejected, Map<String, String> retryable) {
+
+        static BulkFailures parse(JsonNode root) {
+            Map<String, String> rejected = new LinkedHashMap<>();
+            Map<String, String> retryable = new LinkedHashMap<>();
+            if (!root.path("errors").asBoolean()) {
+                return new BulkFailures(rejected, retryable);
+            }
+            for (JsonNode item : root.path("items")) {
+                for (JsonNode operation : item) {
+                    if (!operation.has("error")) {
+                        continue;
+                    }
+                    int status = operation.path("status").asInt();
+                    JsonNode error = operation.path("error");
+                    String reason = error.path("type").asText() + ": " + error.path("reason").asText();
+                    if (status == 429 || status >= 500) {
+                        retryable.put(operation.path("_id").asText(), reason);
+                    } else {
+                        rejected.put(operation.path("_id").asText(), reason);
+                    }
+                }
+            }
+            return new BulkFailures(rejected, retryable);
+        }
+    }
+
+    private static Map<String, Object> document(Embedding embedding, TextSegment textSegment) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("vector", embedding.vector());
+        if (textSegment != null) {
+            document.put("text", textSegment.text());
+            document.put("metadata", textSegment.metadata().toMap());
+        }
+        return document;
+    }
+
+    private static byte[] line(Object value) throws IOException {
+        byte[] json = OBJECT_MAPPER.writeValueAsBytes(value);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        try {
+            Request request = new Request("POST", "/" + indexName + "/_count");
+            request.setJsonEntity(OBJECT_MAPPER.writeValueAsString(query(filter)));
+            return execute(request).path("count").asLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException("统计Elasticsearch文档数失败: " + indexName, e);
+        }
+    }
+
+    /**
+     * 分块删除，直到_count为0
+     * 某块因版本冲突删除0条时不结束，继续下一块；连续多块没有进展时失败，避免无限循环
+     */
+    @Override
+    public void removeAll(Filter filter, int chunkSize, LongConsumer onRemoved) {
+        try {
+            String body = OBJECT_MAPPER.writeValueAsString(query(filter));
+            int stalled = 0;
+            while (count(filter) > 0) {
+                Request request = new Request("POST", "/" + indexName + "/_delete_by_query");
+                request.addParameter("max_docs", String.valueOf(chunkSize));
+                request.addParameter("conflicts", "proceed");
+                // 刷新后_count和下一块不会再命中本块已删除的文档
+                request.addParameter("refresh", "true");
+                if (deleteRequestsPerSecond > 0) {
+                    request.addParameter("requests_per_second", String.valueOf(deleteRequestsPerSecond));
+                }
+                request.setJsonEntity(body);
+                JsonNode response = execute(request);
+                long deleted = response.path("deleted").asLong();
+                onRemoved.accept(deleted);
+                log.debug("分块删除: index={}, 本块删除{}条, 冲突{}条", indexName, deleted, response.path("version_conflicts").asLong());
+                stalled = deleted > 0 ? 0 : stalled + 1;
+                if (stalled >= MAX_STALLED_CHUNKS) {
+                    throw new IllegalStateException(String.format("分块删除Elasticsearch文档没有进展: index=%s, 连续%d块删除0条",
+                            indexName, stalled));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("分块删除Elasticsearch文档失败: " + indexName, e);
+        }
+    }
+
+    private static Map<String, Object> query(Filter filter) {
+        if (filter == null) {
+            return Map.of("query", Map.of("match_all", Map.of()));
+        }
+        return Map.of("query", Map.of("bool", Map.of("filter", List.of(ElasticsearchFilterMapper.map(filter)))));
+    }
+
+    private JsonNode execute(Request request) throws IOException {
+        Response response = restClient.performRequest(request);
+        try (InputStream content = response.getEntity().getContent()) {
+            return OBJECT_MAPPER.readTree(content);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将LangChain4j元数据过滤条件转换为Elasticsearch查询DSL
+ * 字段约定与LangChain4j一致：metadata.*，字符串值使用动态映射生成的keyword子字段
+ */
+public final class ElasticsearchFilterMapper {
+
+    private ElasticsearchFilterMapper() {
+    }
+
+    /**
+     * 转换过滤条件
+     *
+     * @param filter 过滤条件
+     * @return 查询DSL
+     */
+    public static Map<String, Object> map(Filter filter) {
+        if (filter instanceof IsEqualTo f) {
+            return term(f.key(), f.comparisonValue());
+        }
+        if (filter instanceof IsNotEqualTo f) {
+            return not(term(f.key(), f.comparisonValue()));
+        }
+        if (filter instanceof IsGreaterThan f) {
+            return range(f.key(), "gt", f.comparisonValue());
+        }
+        if (filter instanceof IsGreaterThanOrEqualTo f) {
+            return range(f.key(), "gte", f.comparisonValue());
+        }
+        if (filter instanceof IsLessThan f) {
+            return range(f.key(), "lt", f.comparisonValue());
+        }
+        if (filter instanceof IsLessThanOrEqualTo f) {
+            return range(f.key(), "lte", f.comparisonValue());
+        }
+        if (filter instanceof IsIn f) {
+            return terms(f.key(), f.comparisonValues());
+        }
+        if (filter instanceof IsNotIn f) {
+            return not(terms(f.key(), f.comparisonValues()));
+        }
+        if (filter instanceof And f) {
+            return Map.of("bool", Map.of("filter", List.of(map(f.left()), map(f.right()))));
+        }
+        if (filter instanceof Or f) {
+            return Map.of("bool", Map.of("should", List.of(map(f.left()), map(f.right())), "minimum_should_match", 1));
+        }
+        if (filter instanceof Not f) {
+            return not(map(f.expression()));
+        }
+        throw new IllegalArgumentException("不支持的过滤条件: " + filter.getClass().getSimpleName());
+    }
+
+    private static Map<String, Object> term(String key, Object value) {
+        return Map.of("term", Map.of(field(key, value), value));
+    }
+
+    private static Map<String, Object> terms(String key, Collection<?> values) {
+        Object sample = values.isEmpty() ? null : values.iterator().next();
+        return Map.of("terms", Map.of(field(key, sample), values));
+    }
+
+    private static Map<String, Object> range(String key, String operator, Object value) {
+        return Map.of("range", Map.of(field(key, value), Map.of(operator, value)));
+    }
+
+    private static Map<String, Object> not(Map<String, Object> query) {
+        return Map.of("bool", Map.of("must_not", List.of(query)));
+    }
+
+    private static String field(String key, Object value) {
+        return "metadata." + key + (value instanceof String ? ".keyword" : "");
+    }
+}
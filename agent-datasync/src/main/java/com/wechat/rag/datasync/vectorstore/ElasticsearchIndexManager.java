@@ -0,0 +1,198 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elasticsearch索引管理
+ * 在LangChain4j自动建索引之前按配置创建索引：
+ * 1. dense_vector使用量化的HNSW（int8_hnsw / bbq_hnsw），float32原始向量仍保存在磁盘上，用于重打分
+ * 2. 元数据显式映射：talker/sender等字符串只索引keyword子字段（与LangChain4j过滤条件的字段约定一致），
+ * seq为long、time为date（ignore_malformed，格式异常的时间不会拒绝文档），避免动态映射生成无用的text字段
+ * 3. 可配置刷新间隔，批量写入时减少段合并
+ */
+@Slf4j
+public class ElasticsearchIndexManager {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static final String TEXT_FIELD = "text";
+
+    /**
+     * 使用内置cjk分析器（CJK二元组）的全文检索子字段
+     */
+    static final String CJK_FIELD = "text.cjk";
+
+    private final RestClient restClient;
+
+    public ElasticsearchIndexManager(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+    /**
+     * 索引不存在时按配置创建；已存在时只更新刷新间隔
+     *
+     * @param indexName       索引名称
+     * @param dimension       向量维度
+     * @param vectorIndexType dense_vector的index_options.type，为null时使用Elasticsearch默认值
+     * @param refreshInterval 刷新间隔，为null时使用Elasticsearch默认值
+     */
+    public void ensureIndex(String indexName, int dimension, String vectorIndexType, String refreshInterval) {
+        try {
+            if (indexExists(indexName)) {
+                log.warn("索引已存在，映射与向量索引类型只对新建索引生效，如需启用请重建索引: index={}, vectorIndexType={}",
+                        indexName, vectorIndexType);
+                updateRefreshInterval(indexName, refreshInterval);
+                return;
+            }
+            Request request = new Request("PUT", "/" + indexName);
+            request.setJsonEntity(OBJECT_MAPPER.writeValueAsString(indexBody(dimension, vectorIndexType, refreshInterval)));
+            restClient.performRequest(request);
+            log.info("已创建Elasticsearch索引: index={}, dims={}, vectorIndexType={}, refreshInterval={}",
+                    indexName, dimension, vectorIndexType, refreshInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建Elasticsearch索引失败: " + indexName, e);
+        }
+    }
+
+    /**
+     * 为已有索引补充text.cjk子字段
+     * 新增子字段后通过_update_by_query在后台重建已有文档的索引，期间text字段仍可检索
+     *
+     * @param indexName 索引名称
+     * @return 索引存在且子字段已就绪时返回true
+     */
+    public boolean ensureLexicalField(String indexName) {
+        try {
+            if (!indexExists(indexName)) {
+                return false;
+            }
+            Response response = restClient.performRequest(new Request("GET", "/" + indexName + "/_mapping"));
+            JsonNode mapping = OBJECT_MAPPER.readTree(response.getEntity().getContent());
+            boolean present = false;
+            for (JsonNode index : mapping) {
+                present |= !index.path("mappings").path("properties").path(TEXT_FIELD).path("fields").path("cjk").isMissingNode();
+            }
+            if (present) {
+                return true;
+            }
+
+            Request putMapping = new Request("PUT", "/" + indexName + "/_mapping");
+            putMapping.setJsonEntity(OBJECT_MAPPER.writeValueAsString(Map.of("properties", Map.of(TEXT_FIELD, textField()))));
+            restClient.performRequest(putMapping);
+            Request updateByQuery = new Request("POST", "/" + indexName + "/_update_by_query");
+            updateByQuery.addParameter("conflicts", "proceed");
+            updateByQuery.addParameter("wait_for_completion", "false");
+            restClient.performRequest(updateByQuery);
+            log.info("已为索引添加CJK全文检索字段，后台重建已有文档: index={}", indexName);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("添加全文检索字段失败: " + indexName, e);
+        }
+    }
+
+    /**
+     * 删除索引，索引不存在时忽略
+     *
+     * @param indexName 索引名称
+     */
+    public void deleteIndex(String indexName) {
+        try {
+            if (!indexExists(indexName)) {
+                return;
+            }
+            restClient.performRequest(new Request("DELETE", "/" + indexName));
+            log.info("已删除Elasticsearch索引: index={}", indexName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除Elasticsearch索引失败: " + indexName, e);
+        }
+    }
+
+    private void updateRefreshInterval(String indexName, String refreshInterval) throws IOException {
+        if (refreshInterval == null) {
+            return;
+        }
+        Request request = new Request("PUT", "/" + indexName + "/_settings");
+        request.setJsonEntity(OBJECT_MAPPER.writeValueAsString(Map.of("index", Map.of("refresh_interval", refreshInterval))));
+        restClient.performRequest(request);
+    }
+
+    private boolean indexExists(String indexName) throws IOException {
+        // HEAD请求的404不会抛出ResponseException
+        Response response = restClient.performRequest(new Request("HEAD", "/" + indexName));
+        return response.getStatusLine().getStatusCode() == 200;
+    }
+
+    /**
+     * 与LangChain4j的字段约定保持一致：text、vector、metadata.*
+     */
+    static Map<String, Object> indexBody(int dimension, String vectorIndexType, String refreshInterval) {
+        Map<String, Object> vector = new LinkedHashMap<>();
+        vector.put("type", "dense_vector");
+        vector.put("dims", dimension);
+        vector.put("index", true);
+        vector.put("similarity", "cosine");
+        if (vectorIndexType != null) {
+            vector.put("index_options", Map.of("type", vectorIndexType));
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put(TEXT_FIELD, textField());
+        properties.put("vector", vector);
+        properties.put("metadata", Map.of("properties", metadataProperties()));
+
+        Map<String, Object> mappings = new LinkedHashMap<>();
+        // 其余字符串元数据同样只索引keyword子字段
+        mappings.put("dynamic_templates", List.of(Map.of("metadata_strings", Map.of(
+                "path_match", "metadata.*",
+                "match_mapping_type", "string",
+                "mapping", keywordField()))));
+        mappings.put("properties", properties);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (refreshInterval != null) {
+            body.put("settings", Map.of("index", Map.of("refresh_interval", refreshInterval)));
+        }
+        body.put("mappings", mappings);
+        return body;
+    }
+
+    /**
+     * 聊天记录元数据字段，见ChatlogVectorService
+     */
+    private static Map<String, Object> metadataProperties() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("talker", keywordField());
+        properties.put("sender", keywordField());
+        properties.put("seq", Map.of("type", "long"));
+        // 格式不符的时间只跳过date字段，不拒绝整条文档（原始值仍保存在_source和keyword子字段中）
+        properties.put("time", Map.of("type", "date", "format", "yyyy-MM-dd HH:mm:ss", "ignore_malformed", true,
+                "fields", Map.of("keyword", Map.of("type", "keyword"))));
+        properties.put("isChatRoom", Map.of("type", "byte"));
+        properties.put("isSelf", Map.of("type", "byte"));
+        properties.put("type", Map.of("type", "integer"));
+        properties.put("subType", Map.of("type", "integer"));
+        return properties;
+    }
+
+    /**
+     * LangChain4j按 metadata.字段.keyword 过滤字符串，主字段只保存在_source中，不再单独建索引
+     */
+    private static Map<String, Object> keywordField() {
+        return Map.of("type", "keyword", "index", false, "doc_values", false,
+                "fields", Map.of("keyword", Map.of("type", "keyword", "ignore_above", 256)));
+    }
+
+    private static Map<String, Object> textField() {
+        return Map.of("type", "text", "fields", Map.of("cjk", Map.of("type", "text", "analyzer", "cjk")));
+    }
+}
@@ -0,0 +1,93 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elasticsearch全文检索
+ * 同时匹配text（标准分词，中文按单字）和text.cjk（CJK二元组分词），按most_fields累加分数
+ * 首次检索时为已有索引补充text.cjk子字段
+ */
+@Slf4j
+public class ElasticsearchLexicalSearcher implements LexicalSearcher {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final RestClient restClient;
+
+    private final String indexName;
+
+    private final ElasticsearchIndexManager indexManager;
+
+    private volatile boolean fieldReady;
+
+    public ElasticsearchLexicalSearcher(RestClient restClient, String indexName) {
+        this.restClient = restClient;
+        this.indexName = indexName;
+        this.indexManager = new ElasticsearchIndexManager(restClient);
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> searchLexical(String query, int maxResults, Filter filter) {
+        if (!fieldReady) {
+            fieldReady = indexManager.ensureLexicalField(indexName);
+            if (!fieldReady) {
+                return List.of();
+            }
+        }
+
+        Map<String, Object> bool = new LinkedHashMap<>();
+        bool.put("must", List.of(Map.of("multi_match", Map.of(
+                "query", query,
+                "fields", List.of(ElasticsearchIndexManager.TEXT_FIELD, ElasticsearchIndexManager.CJK_FIELD),
+                "type", "most_fields"))));
+        if (filter != null) {
+            bool.put("filter", List.of(ElasticsearchFilterMapper.map(filter)));
+        }
+        Map<String, Object> body = Map.of(
+                "size", maxResults,
+                "_source", List.of("text", "metadata"),
+                "query", Map.of("bool", bool));
+
+        try {
+            Request request = new Request("POST", "/" + indexName + "/_search");
+            request.setJsonEntity(OBJECT_MAPPER.writeValueAsString(body));
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                return toMatches(OBJECT_MAPPER.readTree(content));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Elasticsearch全文检索失败: " + indexName, e);
+        }
+    }
+
+    private List<EmbeddingMatch<TextSegment>> toMatches(JsonNode root) {
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (JsonNode hit : root.path("hits").path("hits")) {
+            JsonNode source = hit.path("_source");
+            Map<String, Object> metadata = OBJECT_MAPPER.convertValue(source.path("metadata"), new TypeReference<>() {
+            });
+            TextSegment segment = TextSegment.from(source.path("text").asText(),
+                    metadata == null ? new Metadata() : Metadata.from(metadata));
+            matches.add(new EmbeddingMatch<>(hit.path("_score").asDouble(), hit.path("_id").asText(), null, segment));
+        }
+        return matches;
+    }
+}
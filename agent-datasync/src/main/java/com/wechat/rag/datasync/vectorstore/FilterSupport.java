@@ -0,0 +1,158 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 过滤条件辅助方法
+ * 从过滤条件中提取talker约束，用于走talker索引缩小扫描范围、按talker失效缓存
+ * 以及生成与书写顺序无关的规范形式，用作缓存键
+ */
+public final class FilterSupport {
+    public static final String TALKER_KEY = "talker";
+
+    private FilterSupport() {
+    }
+
+    /**
+     * 提取过滤条件限定的talker集合
+     *
+     * @param filter 过滤条件
+     * @return talker集合，条件不限定talker时返回null
+     */
+    public static Set<String> talkers(Filter filter) {
+        if (filter instanceof IsEqualTo isEqualTo && TALKER_KEY.equals(isEqualTo.key())) {
+            return Set.of(String.valueOf(isEqualTo.comparisonValue()));
+        }
+        if (filter instanceof IsIn isIn && TALKER_KEY.equals(isIn.key())) {
+            return isIn.comparisonValues().stream().map(String::valueOf).collect(Collectors.toSet());
+        }
+        if (filter instanceof And and) {
+            Set<String> left = talkers(and.left());
+            Set<String> right = talkers(and.right());
+            if (left == null) {
+                return right;
+            }
+            if (right != null) {
+                Set<String> intersection = new HashSet<>(left);
+                intersection.retainAll(right);
+                return intersection;
+            }
+            return left;
+        }
+        if (filter instanceof Or or) {
+            Set<String> left = talkers(or.left());
+            Set<String> right = talkers(or.right());
+            if (left == null || right == null) {
+                return null;
+            }
+            Set<String> union = new HashSet<>(left);
+            union.addAll(right);
+            return union;
+        }
+        return null;
+    }
+
+    /**
+     * 过滤条件是否只限定talker（talker等于或属于某个集合，不含其他条件）
+     *
+     * @param filter 过滤条件
+     * @return 只限定talker时返回true
+     */
+    public static boolean isTalkerOnly(Filter filter) {
+        return (filter instanceof IsEqualTo isEqualTo && TALKER_KEY.equals(isEqualTo.key()))
+                || (filter instanceof IsIn isIn && TALKER_KEY.equals(isIn.key()));
+    }
+
+    /**
+     * 过滤条件的规范形式
+     * And/Or的操作数和In的取值按字典序排列，逻辑等价但书写顺序不同的条件得到相同结果
+     *
+     * @param filter 过滤条件，可为null
+     * @return 规范形式，filter为null时返回空字符串
+     */
+    public static String canonical(Filter filter) {
+        if (filter == null) {
+            return "";
+        }
+        if (filter instanceof IsEqualTo f) {
+            return comparison(f.key(), "=", f.comparisonValue());
+        }
+        if (filter instanceof IsNotEqualTo f) {
+            return comparison(f.key(), "!=", f.comparisonValue());
+        }
+        if (filter instanceof IsGreaterThan f) {
+            return comparison(f.key(), ">", f.comparisonValue());
+        }
+        if (filter instanceof IsGreaterThanOrEqualTo f) {
+            return comparison(f.key(), ">=", f.comparisonValue());
+        }
+        if (filter instanceof IsLessThan f) {
+            return comparison(f.key(), "<", f.comparisonValue());
+        }
+        if (filter instanceof IsLessThanOrEqualTo f) {
+            return comparison(f.key(), "<=", f.comparisonValue());
+        }
+        if (filter instanceof IsIn f) {
+            return f.key() + " in " + values(f.comparisonValues());
+        }
+        if (filter instanceof IsNotIn f) {
+            return f.key() + " not in " + values(f.comparisonValues());
+        }
+        if (filter instanceof And f) {
+            return operands("and", f.left(), f.right());
+        }
+        if (filter instanceof Or f) {
+            return operands("or", f.left(), f.right());
+        }
+        if (filter instanceof Not f) {
+            return "not(" + canonical(f.expression()) + ")";
+        }
+        // 未知条件无法规范化，退化为toString
+        return filter.toString();
+    }
+
+    private static String comparison(String key, String operator, Object value) {
+        return key + operator + value;
+    }
+
+    private static String values(Collection<?> values) {
+        return values.stream().map(String::valueOf).sorted().collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * 展开同类逻辑运算（a and (b and c) 与 (a and b) and c 等价）后排序
+     */
+    private static String operands(String operator, Filter left, Filter right) {
+        return Stream.concat(flatten(operator, left), flatten(operator, right))
+                .map(FilterSupport::canonical)
+                .sorted()
+                .collect(Collectors.joining(" " + operator + " ", "(", ")"));
+    }
+
+    private static Stream<Filter> flatten(String operator, Filter filter) {
+        if ("and".equals(operator) && filter instanceof And f) {
+            return Stream.concat(flatten(operator, f.left()), flatten(operator, f.right()));
+        }
+        if ("or".equals(operator) && filter instanceof Or f) {
+            return Stream.concat(flatten(operator, f.left()), flatten(operator, f.right()));
+        }
+        return Stream.of(filter);
+    }
+}
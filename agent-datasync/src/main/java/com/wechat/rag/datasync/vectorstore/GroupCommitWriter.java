@@ -0,0 +1,207 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分组提交写入缓冲
+ * 多个调用方的写入先进入缓冲，累计达到maxBatchSize条或首条写入等待超过maxDelay时合并为一次addAll，
+ * 每个调用方拿到自己文档的写入结果；合并写入失败时该批所有调用方都失败（由各自的同步任务重试）
+ * 未完成写入的文档数超过maxPendingDocuments时，新的写入等待已有批次完成（背压）
+ * flush返回缓冲及进行中批次的完成句柄，删除和关闭前等待其完成，保证写入先于删除落盘
+ */
+@Slf4j
+public class GroupCommitWriter {
+
+    private final EmbeddingStore<TextSegment> embeddingStore;
+
+    private final int maxBatchSize;
+
+    private final Duration maxDelay;
+
+    private final int maxPendingDocuments;
+
+    /**
+     * 未完成写入的文档数配额
+     */
+    private final Semaphore pendingPermits;
+
+    private final Object lock = new Object();
+
+    private List<Write> pending = new ArrayList<>();
+
+    private int pendingSize;
+
+    private Disposable scheduledFlush;
+
+    /**
+     * 已取出尚未写完的批次
+     */
+    private final Set<CompletableFuture<Void>> inFlight = new HashSet<>();
+
+    public GroupCommitWriter(EmbeddingStore<TextSegment> embeddingStore, int maxBatchSize, Duration maxDelay,
+                             int maxPendingDocuments) {
+        this.embeddingStore = embeddingStore;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.maxPendingDocuments = maxPendingDocuments;
+        this.pendingPermits = new Semaphore(maxPendingDocuments);
+    }
+
+    /**
+     * 写入文档
+     *
+     * @param ids          文档ID列表，由调用方生成，重试时使用相同的ID覆盖而不是产生重复文档
+     * @param embeddings   嵌入向量列表
+     * @param textSegments 文本片段列表
+     * @return 所在批次写入完成后返回文档ID列表
+     */
+    public Mono<List<String>> write(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        int permits = Math.min(embeddings.size(), maxPendingDocuments);
+        return Mono.fromCallable(() -> {
+                    // 配额不足时在弹性线程上等待，不占用响应式线程
+                    pendingPermits.acquire(permits);
+                    Write write = new Write(ids, embeddings, textSegments);
+                    write.future.whenComplete((written, e) -> pendingPermits.release(permits));
+                    enqueue(write);
+                    return write.future;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::fromFuture);
+    }
+
+    private void enqueue(Write write) {
+        Batch batch = null;
+        synchronized (lock) {
+            pending.add(write);
+            pendingSize += write.ids.size();
+            if (pendingSize >= maxBatchSize) {
+                batch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = Schedulers.parallel().schedule(this::flush, maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            commit(batch);
+        }
+    }
+
+    /**
+     * 立即写入缓冲中的所有文档
+     *
+     * @return 缓冲中的文档及此前已提交的批次全部写完（成功或失败）时完成
+     */
+    public CompletableFuture<Void> flush() {
+        Batch batch;
+        CompletableFuture<?>[] committing;
+        synchronized (lock) {
+            batch = drain();
+            committing = inFlight.toArray(CompletableFuture[]::new);
+        }
+        if (batch != null) {
+            commit(batch);
+        }
+        return CompletableFuture.allOf(committing);
+    }
+
+    /**
+     * 取出缓冲中的写入作为一个批次，批次在持锁时登记为进行中，flush不会遗漏已取出但尚未提交的批次
+     *
+     * @return 批次，缓冲为空时返回null
+     */
+    private Batch drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Batch batch = new Batch(pending);
+        pending = new ArrayList<>();
+        pendingSize = 0;
+        inFlight.add(batch.done);
+        batch.done.whenComplete((v, e) -> {
+            synchronized (lock) {
+                inFlight.remove(batch.done);
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * 合并为一次写入，在弹性线程上执行阻塞的存储调用
+     */
+    private void commit(Batch batch) {
+        List<Write> writes = batch.writes;
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> textSegments = new ArrayList<>();
+        for (Write write : writes) {
+            ids.addAll(write.ids);
+            embeddings.addAll(write.embeddings);
+            textSegments.addAll(write.textSegments);
+        }
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                embeddingStore.addAll(ids, embeddings, textSegments);
+                log.debug("分组提交写入完成: 调用方{}个, 文档{}条", writes.size(), ids.size());
+                writes.forEach(write -> write.future.complete(write.ids));
+            } catch (Exception e) {
+                log.error("分组提交写入失败: 调用方{}个, 文档{}条", writes.size(), ids.size(), e);
+                writes.forEach(write -> write.future.completeExceptionally(e));
+            } finally {
+                batch.done.complete(null);
+            }
+        });
+    }
+
+    /**
+     * 一次合并写入
+     */
+    private static class Batch {
+        private final List<Write> writes;
+
+        /**
+         * 写入结束（无论成功或失败）时完成
+         */
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Batch(List<Write> writes) {
+            this.writes = writes;
+        }
+    }
+
+    /**
+     * 单个调用方的写入
+     */
+    private static class Write {
+        private final List<String> ids;
+
+        private final List<Embedding> embeddings;
+
+        private final List<TextSegment> textSegments;
+
+        private final CompletableFuture<List<String>> future = new CompletableFuture<>();
+
+        Write(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+            this.ids = ids;
+            this.embeddings = embeddings;
+            this.textSegments = textSegments;
+        }
+    }
+}
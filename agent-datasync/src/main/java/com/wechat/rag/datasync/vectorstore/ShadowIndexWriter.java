@@ -0,0 +1,30 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 影子索引写入器
+ * Embedding模型迁移期间，增量同步写入当前集合的同时，将同一批文本用新模型写入影子集合
+ */
+public interface ShadowIndexWriter {
+
+    /**
+     * 写入影子集合，未在迁移时直接完成
+     *
+     * @param textSegments 文本片段列表
+     * @return 写入结果
+     */
+    Mono<Void> write(List<TextSegment> textSegments);
+
+    /**
+     * 从影子集合删除匹配的文档，未在迁移时直接完成
+     *
+     * @param filter 过滤条件（talker及可选的seq范围）
+     * @return 删除结果
+     */
+    Mono<Void> delete(Filter filter);
+}
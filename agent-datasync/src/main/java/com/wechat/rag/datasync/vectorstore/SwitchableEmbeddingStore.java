@@ -0,0 +1,135 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * 可切换的Vector Store
+ * 读写都转发给当前生效的集合，Embedding模型迁移完成后原子地切换到影子集合，无需重启
+ * 全文检索同样转发给当前集合对应的LexicalSearcher
+ */
+@Slf4j
+public class SwitchableEmbeddingStore implements EmbeddingStore<TextSegment>, LexicalSearcher, ChunkedRemover {
+
+    @Getter
+    private volatile String collectionName;
+
+    private volatile EmbeddingStore<TextSegment> delegate;
+
+    /**
+     * 集合名称 -> 全文检索，不支持时返回null
+     */
+    private final Function<String, LexicalSearcher> lexicalSearchers;
+
+    public SwitchableEmbeddingStore(String collectionName, EmbeddingStore<TextSegment> delegate,
+                                    Function<String, LexicalSearcher> lexicalSearchers) {
+        this.collectionName = collectionName;
+        this.delegate = delegate;
+        this.lexicalSearchers = lexicalSearchers;
+    }
+
+    /**
+     * 切换到新的集合
+     *
+     * @param collectionName 集合名称
+     * @param embeddingStore 集合对应的Vector Store
+     */
+    public synchronized void switchTo(String collectionName, EmbeddingStore<TextSegment> embeddingStore) {
+        String previous = this.collectionName;
+        this.delegate = embeddingStore;
+        this.collectionName = collectionName;
+        log.info("Vector Store已切换: {} -> {}", previous, collectionName);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate.search(request);
+    }
+
+    /**
+     * 当前集合是否支持全文检索
+     */
+    @Override
+    public boolean supportsLexicalSearch() {
+        return lexicalSearchers.apply(collectionName) != null;
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> searchLexical(String query, int maxResults, Filter filter) {
+        LexicalSearcher searcher = lexicalSearchers.apply(collectionName);
+        return searcher == null ? List.of() : searcher.searchLexical(query, maxResults, filter);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        return delegate.add(embedding, textSegment);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        return delegate.addAll(embeddings, textSegments);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        delegate.addAll(ids, embeddings, textSegments);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        return ChunkedRemover.count(delegate, filter);
+    }
+
+    @Override
+    public void removeAll(Filter filter, int chunkSize, LongConsumer onRemoved) {
+        ChunkedRemover.removeAll(delegate, filter, chunkSize, onRemoved);
+    }
+}
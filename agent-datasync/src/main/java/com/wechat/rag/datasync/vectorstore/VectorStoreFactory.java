@@ -1,16 +1,33 @@
 package com.wechat.rag.datasync.vectorstore;
 
 import com.wechat.rag.datasync.config.VectorStoreConfig;
+import com.wechat.rag.datasync.vectorstore.embedded.EmbeddedEmbeddingStore;
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
+import com.wechat.rag.datasync.vectorstore.partition.CompositePartitionScheme;
+import com.wechat.rag.datasync.vectorstore.partition.PartitionRegistry;
+import com.wechat.rag.datasync.vectorstore.partition.PartitionScheme;
+import com.wechat.rag.datasync.vectorstore.partition.PartitionedEmbeddingStore;
+import com.wechat.rag.datasync.vectorstore.partition.TalkerPartitionScheme;
+import com.wechat.rag.datasync.vectorstore.partition.TimePartitionScheme;
+import com.wechat.rag.datasync.vectorstore.quantization.RescoringEmbeddingStore;
+import com.wechat.rag.datasync.vectorstore.quantization.VectorQuantization;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.chroma.ChromaEmbeddingStore;
 import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Vector Store工厂类
  * 根据配置创建不同的Vector Store实例
@@ -21,50 +38,235 @@ public class VectorStoreFactory {
 
     private final VectorStoreConfig vectorStoreConfig;
 
-    public VectorStoreFactory(VectorStoreConfig vectorStoreConfig) {
+    private RestClient restClient;
+
+    private final Map<String, EmbeddedEmbeddingStore> embeddedStores = new ConcurrentHashMap<>();
+
+    private final Map<String, LexicalSearcher> lexicalSearchers = new ConcurrentHashMap<>();
+
+    private final Map<String, PartitionedEmbeddingStore> partitionedStores = new ConcurrentHashMap<>();
+
+    private final PartitionRegistry partitionRegistry;
+
+    public VectorStoreFactory(VectorStoreConfig vectorStoreConfig, ReactiveRedisTemplate<String, Object> redisTemplate) {
         this.vectorStoreConfig = vectorStoreConfig;
+        this.partitionRegistry = new PartitionRegistry(redisTemplate);
     }
 
     @Bean
-    public EmbeddingStore<TextSegment> createVectorStore() {
+    public SwitchableEmbeddingStore createVectorStore() {
+        String collectionName = vectorStoreConfig.getCollectionName();
+        return new SwitchableEmbeddingStore(collectionName,
+                createStore(collectionName, vectorStoreConfig.getDimension()), this::getLexicalSearcher);
+    }
+
+    /**
+     * 创建指定集合的Vector Store
+     *
+     * @param collectionName 集合名称
+     * @param dimension      向量维度（创建量化索引时使用）
+     * @return Vector Store实例
+     */
+    public EmbeddingStore<TextSegment> createStore(String collectionName, int dimension) {
+        PartitionScheme scheme = createPartitionScheme();
+        if (scheme == null) {
+            return createCollectionStore(collectionName, dimension);
+        }
+        return partitionedStores.computeIfAbsent(collectionName, name -> {
+            boolean lexical = VectorStoreConfig.Provider.fromValue(vectorStoreConfig.getProvider())
+                    != VectorStoreConfig.Provider.CHROMA;
+            return new PartitionedEmbeddingStore(name, scheme,
+                    partitionCollection -> createCollectionStore(partitionCollection, dimension),
+                    lexical ? this::getCollectionLexicalSearcher : null,
+                    this::dropCollection, partitionRegistry, vectorStoreConfig.getPartition().getConcurrency());
+        });
+    }
+
+    /**
+     * 按配置组合分区方案：只按时间、只按talker分片，或先按talker分片再按时间分区
+     *
+     * @return 分区方案，均未启用时返回null
+     */
+    private PartitionScheme createPartitionScheme() {
+        VectorStoreConfig.Partition partition = vectorStoreConfig.getPartition();
+        VectorStoreConfig.Sharding sharding = vectorStoreConfig.getSharding();
+        PartitionScheme time = partition.isEnabled()
+                ? new TimePartitionScheme(partition.getGranularity(), ZoneId.systemDefault()) : null;
+        PartitionScheme talker = sharding.isEnabled()
+                ? new TalkerPartitionScheme(sharding.getShards(), sharding.getDedicatedTalkers()) : null;
+        log.info("分区方案: 时间分区={}, talker分片={}, 独占分片={}",
+                partition.isEnabled() ? partition.getGranularity().getValue() : "off",
+                sharding.isEnabled() ? sharding.getShards() : "off",
+                sharding.isEnabled() ? sharding.getDedicatedTalkers().size() : 0);
+        if (time != null && talker != null) {
+            return new CompositePartitionScheme(talker, time);
+        }
+        return time != null ? time : talker;
+    }
+
+    /**
+     * 删除单个集合
+     * Elasticsearch直接删除索引；内嵌存储清空并关闭；Chroma清空集合
+     *
+     * @param collectionName 集合名称
+     */
+    public void dropCollection(String collectionName) {
+        VectorStoreConfig.Provider provider = VectorStoreConfig.Provider.fromValue(vectorStoreConfig.getProvider());
+        switch (provider) {
+            case CHROMA -> createChromaStore(collectionName).removeAll();
+            case ELASTICSEARCH -> {
+                lexicalSearchers.remove(collectionName);
+                new ElasticsearchIndexManager(getRestClient()).deleteIndex(collectionName);
+            }
+            case EMBEDDED -> {
+                EmbeddedEmbeddingStore store = embeddedStores.remove(collectionName);
+                if (store != null) {
+                    store.removeAll();
+                    store.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建单个集合的Vector Store
+     */
+    private EmbeddingStore<TextSegment> createCollectionStore(String collectionName, int dimension) {
         String providerValue = vectorStoreConfig.getProvider();
         VectorStoreConfig.Provider provider = VectorStoreConfig.Provider.fromValue(providerValue);
 
-        log.info("创建Vector Store实例: {}", provider.getValue());
+        log.info("创建Vector Store实例: {}, collection={}", provider.getValue(), collectionName);
 
-        return switch (provider) {
-            case CHROMA -> createChromaStore();
-            case ELASTICSEARCH -> createElasticsearchStore();
+        EmbeddingStore<TextSegment> embeddingStore = switch (provider) {
+            case CHROMA -> createChromaStore(collectionName);
+            case ELASTICSEARCH -> createElasticsearchStore(collectionName, dimension);
+            case EMBEDDED -> createEmbeddedStore(collectionName, dimension);
         };
+        return wrapWithRescoring(provider, embeddingStore);
+    }
+
+    /**
+     * 启用量化时，对量化索引返回的候选做全精度重打分
+     */
+    private EmbeddingStore<TextSegment> wrapWithRescoring(VectorStoreConfig.Provider provider,
+                                                          EmbeddingStore<TextSegment> embeddingStore) {
+        VectorStoreConfig.Quantization quantization = vectorStoreConfig.getQuantization();
+        if (quantization.getType() == VectorQuantization.NONE) {
+            return embeddingStore;
+        }
+        if (provider == VectorStoreConfig.Provider.CHROMA) {
+            log.warn("Chroma不支持量化索引，忽略quantization配置");
+            return embeddingStore;
+        }
+        if (provider == VectorStoreConfig.Provider.EMBEDDED) {
+            // 内嵌存储自身即以int8编码检索 + float32重打分
+            return embeddingStore;
+        }
+        log.info("启用向量量化: type={}, oversample={}", quantization.getType().getValue(), quantization.getOversample());
+        return new RescoringEmbeddingStore(embeddingStore, quantization.getOversample(), quantization.getMinScoreMargin());
     }
 
     /**
      * 创建Chroma Vector Store
      */
-    private ChromaEmbeddingStore createChromaStore() {
+    private ChromaEmbeddingStore createChromaStore(String collectionName) {
         log.debug("初始化Chroma EmbeddingStore: url={}, collection={}",
-                vectorStoreConfig.getUrl(), vectorStoreConfig.getCollectionName());
+                vectorStoreConfig.getUrl(), collectionName);
 
         return ChromaEmbeddingStore.builder()
                 .baseUrl(vectorStoreConfig.getUrl())
-                .collectionName(vectorStoreConfig.getCollectionName())
+                .collectionName(collectionName)
                 .build();
     }
 
     /**
      * 创建Elasticsearch Vector Store
+     * 托管索引时预先按显式映射创建索引，写入走按字节分批的_bulk
      */
-    private ElasticsearchEmbeddingStore createElasticsearchStore() {
+    private EmbeddingStore<TextSegment> createElasticsearchStore(String indexName, int dimension) {
         log.debug("初始化Elasticsearch EmbeddingStore: url={}, index={}",
-                vectorStoreConfig.getUrl(), vectorStoreConfig.getCollectionName());
+                vectorStoreConfig.getUrl(), indexName);
 
-
-        RestClient restClient = RestClient
-                .builder(HttpHost.create(vectorStoreConfig.getUrl()))
-                .build();
-        return ElasticsearchEmbeddingStore.builder()
+        RestClient restClient = getRestClient();
+        VectorStoreConfig.Elasticsearch elasticsearch = vectorStoreConfig.getElasticsearch();
+        VectorQuantization quantization = vectorStoreConfig.getQuantization().getType();
+        ElasticsearchEmbeddingStore embeddingStore = ElasticsearchEmbeddingStore.builder()
                 .restClient(restClient)
-                .indexName(vectorStoreConfig.getCollectionName())
+                .indexName(indexName)
                 .build();
+        if (!elasticsearch.isManaged()) {
+            if (quantization != VectorQuantization.NONE) {
+                new ElasticsearchIndexManager(restClient)
+                        .ensureIndex(indexName, dimension, quantization.getElasticsearchIndexType(), null);
+            }
+            return embeddingStore;
+        }
+
+        String vectorIndexType = quantization != VectorQuantization.NONE
+                ? quantization.getElasticsearchIndexType() : elasticsearch.getVectorIndexType();
+        new ElasticsearchIndexManager(restClient)
+                .ensureIndex(indexName, dimension, vectorIndexType, elasticsearch.getRefreshInterval());
+        return new ElasticsearchBulkEmbeddingStore(embeddingStore, restClient, indexName,
+                (int) elasticsearch.getBulkMaxBytes().toBytes(), elasticsearch.getBulkRefresh(),
+                vectorStoreConfig.getDeletion().getRequestsPerSecond());
+    }
+
+    /**
+     * 创建内嵌Vector Store
+     * 同一集合只打开一次，避免多个实例写同一目录
+     */
+    private EmbeddedEmbeddingStore createEmbeddedStore(String collectionName, int dimension) {
+        VectorStoreConfig.Embedded embedded = vectorStoreConfig.getEmbedded();
+        log.debug("初始化内嵌EmbeddingStore: path={}, collection={}", embedded.getPath(), collectionName);
+
+        return embeddedStores.computeIfAbsent(collectionName, name ->
+                new EmbeddedEmbeddingStore(Path.of(embedded.getPath()).resolve(name), dimension, embedded));
+    }
+
+    /**
+     * 获取集合对应的全文检索
+     *
+     * @param collectionName 集合名称
+     * @return 全文检索，Chroma不支持时返回null
+     */
+    public LexicalSearcher getLexicalSearcher(String collectionName) {
+        PartitionedEmbeddingStore partitioned = partitionedStores.get(collectionName);
+        if (partitioned != null) {
+            return partitioned.supportsLexicalSearch() ? partitioned : null;
+        }
+        return getCollectionLexicalSearcher(collectionName);
+    }
+
+    /**
+     * 获取单个集合对应的全文检索
+     */
+    private LexicalSearcher getCollectionLexicalSearcher(String collectionName) {
+        VectorStoreConfig.Provider provider = VectorStoreConfig.Provider.fromValue(vectorStoreConfig.getProvider());
+        return switch (provider) {
+            case CHROMA -> null;
+            case ELASTICSEARCH -> lexicalSearchers.computeIfAbsent(collectionName,
+                    name -> new ElasticsearchLexicalSearcher(getRestClient(), name));
+            case EMBEDDED -> embeddedStores.get(collectionName);
+        };
+    }
+
+    /**
+     * 关闭内嵌Vector Store，确保数据落盘
+     */
+    @PreDestroy
+    public void close() {
+        embeddedStores.values().forEach(EmbeddedEmbeddingStore::close);
+    }
+
+    /**
+     * 所有Elasticsearch集合共享同一个RestClient
+     */
+    public synchronized RestClient getRestClient() {
+        if (restClient == null) {
+            restClient = RestClient
+                    .builder(HttpHost.create(vectorStoreConfig.getUrl()))
+                    .build();
+        }
+        return restClient;
     }
 }
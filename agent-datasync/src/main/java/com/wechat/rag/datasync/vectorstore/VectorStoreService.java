@@ -1,31 +1,70 @@
 package com.wechat.rag.datasync.vectorstore;
 
+import com.wechat.rag.datasync.config.VectorStoreConfig;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
 
 /**
  * Vector Store服务类
  * 负责处理与Vector Store相关的业务逻辑
+ * 启用写入缓冲时，多个talker同步的小批量写入经GroupCommitWriter合并后再写入存储
  */
 @Service
 @Slf4j
 public class VectorStoreService {
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
     private final EmbeddingStore<TextSegment> embeddingStore;
 
-    public VectorStoreService(EmbeddingStore<TextSegment> embeddingStore) {
+    private final ObjectProvider<ShadowIndexWriter> shadowIndexWriter;
+
+    /**
+     * 写入缓冲，未启用时为null
+     */
+    private final GroupCommitWriter writeBuffer;
+
+    private final VectorStoreConfig.Deletion deletion;
+
+    /**
+     * 切换Embedding模型和集合时与增量写入互斥
+     */
+    private final WriteFence writeFence = new WriteFence();
+
+    public VectorStoreService(EmbeddingStore<TextSegment> embeddingStore,
+                              ObjectProvider<ShadowIndexWriter> shadowIndexWriter,
+                              VectorStoreConfig vectorStoreConfig) {
         this.embeddingStore = embeddingStore;
+        this.shadowIndexWriter = shadowIndexWriter;
+        this.deletion = vectorStoreConfig.getDeletion();
+        VectorStoreConfig.WriteBuffer config = vectorStoreConfig.getWriteBuffer();
+        this.writeBuffer = config.isEnabled()
+                ? new GroupCommitWriter(embeddingStore, config.getMaxBatchSize(), config.getMaxDelay(),
+                config.getMaxPendingDocuments())
+                : null;
+        log.info("写入缓冲: enabled={}, maxBatchSize={}, maxDelay={}",
+                config.isEnabled(), config.getMaxBatchSize(), config.getMaxDelay());
     }
 
     /**
@@ -40,7 +79,13 @@ public class VectorStoreService {
             return Mono.error(new IllegalArgumentException("Embedding和TextSegment不能为空"));
         }
 
-        return Mono.fromCallable(() -> embeddingStore.add(embedding, textSegment))
+        String id = documentId(textSegment);
+        return Mono.fromCallable(() -> {
+                    embeddingStore.addAll(List.of(id), List.of(embedding), List.of(textSegment));
+                    return id;
+                })
+                // 存储客户端为阻塞调用，避免占用响应式线程
+                .subscribeOn(Schedulers.boundedElastic())
                 .onErrorResume(e -> {
                     log.error("添加文档失败", e);
                     return Mono.error(new RuntimeException("添加文档失败", e));
@@ -49,6 +94,7 @@ public class VectorStoreService {
 
     /**
      * 批量添加文档到向量存储
+     * 文档ID由talker和seq生成，同步任务重试或重复同步时覆盖已写入的文档
      *
      * @param embeddings   嵌入向量列表
      * @param textSegments 文本片段列表
@@ -63,25 +109,147 @@ public class VectorStoreService {
             return Flux.error(new IllegalArgumentException("Embeddings和TextSegments数量不匹配"));
         }
 
-        return Mono.fromCallable(() -> embeddingStore.addAll(embeddings, textSegments))
+        List<String> ids = textSegments.stream().map(VectorStoreService::documentId).toList();
+        Mono<List<String>> write = writeBuffer != null
+                ? writeBuffer.write(ids, embeddings, textSegments)
+                : Mono.fromCallable(() -> {
+                    embeddingStore.addAll(ids, embeddings, textSegments);
+                    return ids;
+                })
+                // 存储客户端为阻塞调用，避免占用响应式线程
+                .subscribeOn(Schedulers.boundedElastic());
+        return write
                 .onErrorResume(e -> {
                     log.error("添加文档列表失败", e);
                     return Mono.error(new RuntimeException("添加文档列表失败", e));
                 })
+                .flatMap(documentIds -> writeShadow(textSegments).thenReturn(documentIds))
                 .flatMapMany(Flux::fromIterable);
     }
 
+    /**
+     * 在写入栅栏内执行一个批次的向量化和写入
+     * 批次内使用的Embedding模型和集合在切换前后保持一致
+     *
+     * @param write 向量化并写入的批次，订阅时才读取当前模型
+     * @return 写入结果
+     */
+    public <T> Mono<T> fenced(Supplier<Mono<T>> write) {
+        return writeFence.guard(write);
+    }
+
+    /**
+     * 等待进行中的写入批次完成后执行切换，切换期间新的批次等待
+     *
+     * @param action  切换Embedding模型和集合
+     * @param timeout 等待进行中批次的最长时间
+     * @return 切换结果
+     */
+    public Mono<Void> switchExclusively(Runnable action, Duration timeout) {
+        return writeFence.exclusive(action, timeout);
+    }
+
+    /**
+     * 模型迁移期间同步写入影子集合，失败不影响主集合写入
+     */
+    private Mono<Void> writeShadow(List<TextSegment> textSegments) {
+        ShadowIndexWriter writer = shadowIndexWriter.getIfAvailable();
+        if (writer == null) {
+            return Mono.empty();
+        }
+        return writer.write(textSegments)
+                .onErrorResume(e -> {
+                    log.warn("写入影子集合失败: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
     /**
      * 根据向量数据库中的元数据talker字段相关的文档
      *
      * @param talker 聊天者标识
      */
     public Mono<Void> deleteByTalker(String talker) {
+        return deleteByTalker(talker, null, null, (total, deleted) -> {
+        }).then();
+    }
+
+    /**
+     * 在弹性线程上分块删除talker的文档，可限定seq范围
+     * 只按talker删除且talker有独占分片时直接删除分片
+     *
+     * @param talker     聊天者标识
+     * @param startSeq   起始seq（含），为null时不限
+     * @param endSeq     结束seq（含），为null时不限
+     * @param onProgress 进度回调（总数, 已删除数），存储无法统计时总数为-1
+     * @return 已删除的文档数（存储无法统计时为0）
+     */
+    public Mono<Long> deleteByTalker(String talker, Long startSeq, Long endSeq, BiConsumer<Long, Long> onProgress) {
         if (StringUtils.isEmpty(talker)) {
             return Mono.error(new IllegalArgumentException("Talker不能为空"));
         }
-        embeddingStore.removeAll(metadataKey("talker").isEqualTo(talker));
-        log.info("已删除与Talker={}相关的所有文档", talker);
-        return Mono.empty();
+        Filter filter = metadataKey("talker").isEqualTo(talker);
+        if (startSeq != null) {
+            filter = filter.and(metadataKey("seq").isGreaterThanOrEqualTo(startSeq));
+        }
+        if (endSeq != null) {
+            filter = filter.and(metadataKey("seq").isLessThanOrEqualTo(endSeq));
+        }
+        Filter deleteFilter = filter;
+        Mono<Long> delete = Mono.fromCallable(() -> {
+                    long total = ChunkedRemover.count(embeddingStore, deleteFilter);
+                    AtomicLong deleted = new AtomicLong();
+                    onProgress.accept(total, 0L);
+                    ChunkedRemover.removeAll(embeddingStore, deleteFilter, deletion.getChunkSize(),
+                            count -> onProgress.accept(total, deleted.addAndGet(count)));
+                    log.info("已删除与Talker={}相关的文档: seq范围=[{}, {}], 删除{}条", talker, startSeq, endSeq, deleted.get());
+                    return deleted.get();
+                })
+                // 删除可能持续较长时间，不占用响应式线程
+                .subscribeOn(Schedulers.boundedElastic());
+        // 先等待缓冲中的文档写完，避免删除后又被写入
+        return flush()
+                .then(delete)
+                .flatMap(deleted -> deleteShadow(deleteFilter).thenReturn(deleted));
+    }
+
+    /**
+     * 模型迁移期间同步删除影子集合中的文档
+     */
+    private Mono<Void> deleteShadow(Filter filter) {
+        ShadowIndexWriter writer = shadowIndexWriter.getIfAvailable();
+        return writer == null ? Mono.empty() : writer.delete(filter);
+    }
+
+    /**
+     * 立即写入缓冲中的文档
+     *
+     * @return 缓冲中的文档及进行中的批次全部写完时完成
+     */
+    public Mono<Void> flush() {
+        return writeBuffer == null ? Mono.empty() : Mono.fromFuture(writeBuffer::flush);
+    }
+
+    /**
+     * 关闭前写入缓冲中剩余的文档，等待写完后再关闭存储
+     */
+    @PreDestroy
+    public void close() {
+        try {
+            flush().block(SHUTDOWN_TIMEOUT);
+        } catch (Exception e) {
+            log.error("关闭前写入缓冲中的文档失败", e);
+        }
+    }
+
+    /**
+     * 基于talker和seq生成稳定的文档ID，重复写入同一条消息时覆盖而不是产生重复文档
+     *
+     * @param textSegment 文本片段
+     * @return 文档ID
+     */
+    public static String documentId(TextSegment textSegment) {
+        String key = textSegment.metadata().getString("talker") + ":" + textSegment.metadata().getLong("seq");
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
     }
 }
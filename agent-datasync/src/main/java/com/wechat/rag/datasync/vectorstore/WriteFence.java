@@ -0,0 +1,102 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 写入栅栏
+ * 增量同步的每个批次（向量化 + 写入）在栅栏内执行；切换Embedding模型和集合时先关闭栅栏，
+ * 等待已进入的批次全部写完再切换，切换期间到达的批次等待切换完成后用新的模型和集合执行，
+ * 旧模型生成的向量不会写入新集合
+ */
+public class WriteFence {
+
+    private int inFlight;
+
+    /**
+     * 栅栏关闭时非null，打开时完成
+     */
+    private Sinks.Empty<Void> barrier;
+
+    /**
+     * 栅栏关闭后已进入的批次全部完成时完成
+     */
+    private Sinks.Empty<Void> drained;
+
+    /**
+     * 在栅栏内执行写入
+     *
+     * @param write 写入（订阅时才读取当前模型和集合）
+     * @return 写入结果
+     */
+    public <T> Mono<T> guard(Supplier<Mono<T>> write) {
+        return Mono.usingWhen(enter(), entered -> Mono.defer(write), entered -> exit());
+    }
+
+    /**
+     * 关闭栅栏，等待已进入的批次完成后执行切换，完成或失败后重新打开
+     *
+     * @param action  切换动作
+     * @param timeout 等待已进入批次的最长时间
+     * @return 切换结果，等待超时或已有切换在进行时失败
+     */
+    public Mono<Void> exclusive(Runnable action, Duration timeout) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> idle;
+            synchronized (this) {
+                if (barrier != null) {
+                    return Mono.error(new IllegalStateException("已有切换在进行中"));
+                }
+                barrier = Sinks.empty();
+                idle = Sinks.empty();
+                drained = idle;
+                if (inFlight == 0) {
+                    idle.tryEmitEmpty();
+                }
+            }
+            return idle.asMono()
+                    .timeout(timeout)
+                    .then(Mono.fromRunnable(action))
+                    .doFinally(signal -> open())
+                    .then();
+        });
+    }
+
+    private Mono<Boolean> enter() {
+        Mono<Void> wait;
+        synchronized (this) {
+            if (barrier == null) {
+                inFlight++;
+                return Mono.just(Boolean.TRUE);
+            }
+            wait = barrier.asMono();
+        }
+        return wait.then(Mono.defer(this::enter));
+    }
+
+    private Mono<Void> exit() {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                inFlight--;
+                if (inFlight == 0 && drained != null) {
+                    drained.tryEmitEmpty();
+                }
+            }
+        });
+    }
+
+    private void open() {
+        Sinks.Empty<Void> opened;
+        synchronized (this) {
+            opened = barrier;
+            barrier = null;
+            drained = null;
+        }
+        if (opened != null) {
+            opened.tryEmitEmpty();
+        }
+    }
+}
@@ -0,0 +1,738 @@
+package com.wechat.rag.datasync.vectorstore.embedded;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wechat.rag.datasync.config.VectorStoreConfig;
+import com.wechat.rag.datasync.vectorstore.FilterSupport;
+import com.wechat.rag.datasync.vectorstore.lexical.Bm25Index;
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
+import com.wechat.rag.datasync.vectorstore.quantization.ScalarQuantizer;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * 内嵌在JVM中的Vector Store
+ * 1. 向量和元数据追加写入内存映射的数据段，启动时直接映射已有文件
+ * 2. 内存中保存int8编码，HNSW图在后台增量构建，尚未入图的尾部节点暴力扫描，检索结果用float32向量重打分
+ * 3. 删除写入墓碑文件（段ID + 段内序号），已删除比例超过阈值时后台合并数据段并重建HNSW图
+ * 4. 维护talker -> 节点的索引，按talker过滤的检索和删除只扫描该talker的节点
+ * 5. 首次全文检索时构建字符二元组BM25倒排索引，之后随写入增量更新
+ * 向量写入前归一化，余弦相似度即点积
+ */
+@Slf4j
+public class EmbeddedEmbeddingStore implements EmbeddingStore<TextSegment>, LexicalSearcher, AutoCloseable {
+    private static final String TOMBSTONE_FILE = "tombstones.dat";
+
+    private static final int TOMBSTONE_BYTES = Integer.BYTES * 2;
+
+    /**
+     * 每次持有写锁加入HNSW图的节点数，避免长时间阻塞检索
+     */
+    private static final int INDEX_BATCH = 256;
+
+    /**
+     * int8近似分数的放宽量
+     */
+    private static final double APPROXIMATE_MARGIN = 0.02;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path directory;
+
+    private final int dimension;
+
+    private final VectorStoreConfig.Embedded config;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService maintenance;
+
+    private final AtomicBoolean indexing = new AtomicBoolean();
+
+    private final List<EmbeddedSegment> segments = new ArrayList<>();
+
+    /**
+     * 每个数据段第一条记录的节点编号
+     */
+    private final List<Integer> segmentBases = new ArrayList<>();
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final List<ScalarQuantizer.Int8Vector> codes = new ArrayList<>();
+
+    private final BitSet dead = new BitSet();
+
+    private final Map<String, Integer> liveNodes = new HashMap<>();
+
+    private final Map<String, List<Integer>> talkerNodes = new HashMap<>();
+
+    private HnswGraph graph;
+
+    /**
+     * 全文索引，首次全文检索时构建
+     */
+    private volatile Bm25Index lexicalIndex;
+
+    private FileChannel tombstones;
+
+    private int deadCount;
+
+    private int nextSegmentId;
+
+    public EmbeddedEmbeddingStore(Path directory, int dimension, VectorStoreConfig.Embedded config) {
+        this.directory = directory;
+        this.dimension = dimension;
+        this.config = config;
+        this.graph = newGraph();
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开内嵌Vector Store失败: " + directory, e);
+        }
+        log.info("内嵌Vector Store已加载: path={}, 段数={}, 记录数={}, 已删除={}",
+                directory, segments.size(), nodes.size(), deadCount);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-store-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getCompactionInterval().toMillis();
+        maintenance.scheduleWithFixedDelay(this::compactIfNeeded, interval, interval, TimeUnit.MILLISECONDS);
+        scheduleIndexing();
+    }
+
+    /**
+     * 节点：一条已写入数据段的记录
+     */
+    private record Node(int segment, int ordinal, String id, String talker) {
+    }
+
+    /**
+     * 检索候选
+     */
+    private record Candidate(int node, double score) {
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = normalize(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+        lock.readLock().lock();
+        try {
+            List<Candidate> scored = new ArrayList<>();
+            for (int node : candidates(query, request)) {
+                if (dead.get(node)) {
+                    continue;
+                }
+                Node record = nodes.get(node);
+                double score = RelevanceScore.fromCosineSimilarity(segments.get(record.segment()).dot(record.ordinal(), query));
+                if (score >= request.minScore()) {
+                    scored.add(new Candidate(node, score));
+                }
+            }
+            scored.sort(Comparator.comparingDouble(Candidate::score).reversed());
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            for (Candidate candidate : scored) {
+                if (matches.size() >= request.maxResults()) {
+                    break;
+                }
+                TextSegment segment = textSegment(candidate.node());
+                if (filter != null && !matches(filter, segment)) {
+                    continue;
+                }
+                Node record = nodes.get(candidate.node());
+                matches.add(new EmbeddingMatch<>(candidate.score(), record.id(),
+                        Embedding.from(segments.get(record.segment()).vector(record.ordinal())), segment));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 生成候选节点
+     * 无过滤条件时走HNSW图并暴力扫描尚未入图的尾部；有过滤条件时在talker索引（或全部节点）上用int8编码预筛
+     */
+    private int[] candidates(float[] query, EmbeddingSearchRequest request) {
+        if (request.filter() == null) {
+            int ef = Math.max(config.getEfSearch(), request.maxResults() * 2);
+            int[] graphNodes = graph.search(query, ef);
+            int indexed = graph.size();
+            int[] result = new int[graphNodes.length + nodes.size() - indexed];
+            System.arraycopy(graphNodes, 0, result, 0, graphNodes.length);
+            for (int node = indexed; node < nodes.size(); node++) {
+                result[graphNodes.length + node - indexed] = node;
+            }
+            return result;
+        }
+
+        double approximateMinScore = request.minScore() - APPROXIMATE_MARGIN;
+        Set<String> talkers = FilterSupport.talkers(request.filter());
+        Stream<Integer> pool = talkers == null
+                ? Stream.iterate(0, node -> node < nodes.size(), node -> node + 1)
+                : talkers.stream().flatMap(talker -> talkerNodes.getOrDefault(talker, List.of()).stream());
+        return pool.mapToInt(Integer::intValue)
+                .filter(node -> !dead.get(node))
+                .filter(node -> RelevanceScore.fromCosineSimilarity(
+                        ScalarQuantizer.dot(query, codes.get(node))) >= approximateMinScore)
+                .toArray();
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> searchLexical(String query, int maxResults, Filter filter) {
+        ensureLexicalIndex();
+        lock.readLock().lock();
+        try {
+            Bm25Index index = lexicalIndex;
+            if (index == null) {
+                // 构建后恰好发生了数据段合并
+                return List.of();
+            }
+            Set<String> talkers = filter == null ? null : FilterSupport.talkers(filter);
+            IntPredicate accept = node -> !dead.get(node) && (talkers == null
+                    || (nodes.get(node).talker() != null && talkers.contains(nodes.get(node).talker())));
+            // 非talker条件需要解析元数据后过滤，多取一些候选
+            int limit = filter == null ? maxResults : maxResults * 4;
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            for (Bm25Index.Hit hit : index.search(query, limit, accept)) {
+                if (matches.size() >= maxResults) {
+                    break;
+                }
+                TextSegment segment = textSegment(hit.document());
+                if (filter != null && !matches(filter, segment)) {
+                    continue;
+                }
+                matches.add(new EmbeddingMatch<>(hit.score(), nodes.get(hit.document()).id(), null, segment));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLexicalIndex() {
+        if (lexicalIndex != null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (lexicalIndex != null) {
+                return;
+            }
+            Bm25Index index = new Bm25Index();
+            for (int node = 0; node < nodes.size(); node++) {
+                TextSegment segment = dead.get(node) ? null : textSegment(node);
+                if (segment != null) {
+                    index.add(node, segment.text());
+                }
+            }
+            lexicalIndex = index;
+            log.info("内嵌Vector Store全文索引已构建: path={}, 文档数={}", directory, index.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> ids = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, textSegments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                write(ids.get(i), embeddings.get(i).vector(), textSegments == null ? null : textSegments.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入内嵌Vector Store失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleIndexing();
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer node = liveNodes.get(id);
+                if (node != null) {
+                    markDead(node);
+                }
+            }
+            tombstones.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除内嵌Vector Store记录失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        Set<String> talkers = FilterSupport.talkers(filter);
+        // 仅按talker相等过滤时无需解析元数据
+        boolean talkerOnly = filter instanceof IsEqualTo isEqualTo && FilterSupport.TALKER_KEY.equals(isEqualTo.key());
+        lock.writeLock().lock();
+        try {
+            List<Integer> pool = talkers == null
+                    ? Stream.iterate(0, node -> node < nodes.size(), node -> node + 1).toList()
+                    : talkers.stream().flatMap(talker -> talkerNodes.getOrDefault(talker, List.of()).stream()).toList();
+            int removed = 0;
+            for (int node : pool) {
+                if (dead.get(node) || (!talkerOnly && !matches(filter, textSegment(node)))) {
+                    continue;
+                }
+                markDead(node);
+                removed++;
+            }
+            tombstones.force(false);
+            log.info("内嵌Vector Store按条件删除: path={}, 删除数={}", directory, removed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除内嵌Vector Store记录失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            for (EmbeddedSegment segment : segments) {
+                segment.delete();
+            }
+            tombstones.truncate(0);
+            clearState();
+            log.info("内嵌Vector Store已清空: path={}", directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空内嵌Vector Store失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 记录数（含已删除）
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有效记录数
+     */
+    public int liveSize() {
+        lock.readLock().lock();
+        try {
+            return liveNodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 是否所有记录都已加入HNSW图
+     */
+    public boolean isFullyIndexed() {
+        lock.readLock().lock();
+        try {
+            return graph.size() == nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 合并数据段：只保留有效记录写入新段，删除旧段和墓碑，重建HNSW图
+     * 合并期间持有写锁，读写会短暂阻塞
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            List<EmbeddedSegment> oldSegments = new ArrayList<>(segments);
+            List<Node> oldNodes = new ArrayList<>(nodes);
+            BitSet oldDead = (BitSet) dead.clone();
+            int before = oldNodes.size();
+            clearState();
+
+            for (int node = 0; node < oldNodes.size(); node++) {
+                if (oldDead.get(node)) {
+                    continue;
+                }
+                Node record = oldNodes.get(node);
+                EmbeddedSegment segment = oldSegments.get(record.segment());
+                append(record.id(), record.talker(), segment.vector(record.ordinal()), segment.payload(record.ordinal()));
+            }
+            segments.forEach(EmbeddedSegment::force);
+            // 新段落盘后再删除旧段，旧段残留时重启会因ID重复自动判为已删除
+            for (EmbeddedSegment segment : oldSegments) {
+                segment.delete();
+            }
+            tombstones.truncate(0);
+            log.info("内嵌Vector Store合并完成: path={}, 记录数 {} -> {}", directory, before, nodes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("合并内嵌Vector Store数据段失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleIndexing();
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            segments.forEach(EmbeddedSegment::force);
+            tombstones.force(true);
+            tombstones.close();
+            log.info("内嵌Vector Store已落盘: path={}, 记录数={}", directory, nodes.size());
+        } catch (IOException e) {
+            log.error("关闭内嵌Vector Store失败: path={}", directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(String id, float[] vector, TextSegment textSegment) throws IOException {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(String.format("向量维度不匹配: 期望%d，实际%d", dimension, vector.length));
+        }
+        String talker = textSegment == null ? null : textSegment.metadata().getString(FilterSupport.TALKER_KEY);
+        // 同ID的旧记录在register中判为已删除，重启时按数据段顺序同样判定，无需写墓碑
+        append(id, talker, normalize(vector), encode(id, talker, textSegment));
+        if (lexicalIndex != null && textSegment != null) {
+            lexicalIndex.add(nodes.size() - 1, textSegment.text());
+        }
+    }
+
+    /**
+     * 追加记录并更新内存索引
+     */
+    private void append(String id, String talker, float[] normalized, byte[] payload) throws IOException {
+        EmbeddedSegment segment = activeSegment(payload.length);
+        int ordinal = segment.append(normalized, payload);
+        register(new Node(segments.size() - 1, ordinal, id, talker), ScalarQuantizer.quantize(normalized));
+    }
+
+    private void register(Node record, ScalarQuantizer.Int8Vector code) {
+        int node = nodes.size();
+        nodes.add(record);
+        codes.add(code);
+        Integer previous = liveNodes.put(record.id(), node);
+        if (previous != null && !dead.get(previous)) {
+            // 后写入的记录覆盖同ID的旧记录
+            dead.set(previous);
+            deadCount++;
+        }
+        if (record.talker() != null) {
+            talkerNodes.computeIfAbsent(record.talker(), key -> new ArrayList<>()).add(node);
+        }
+    }
+
+    private void markDead(int node) throws IOException {
+        if (dead.get(node)) {
+            return;
+        }
+        dead.set(node);
+        deadCount++;
+        Node record = nodes.get(node);
+        liveNodes.remove(record.id(), node);
+        ByteBuffer entry = ByteBuffer.allocate(TOMBSTONE_BYTES)
+                .putInt(segments.get(record.segment()).id())
+                .putInt(record.ordinal())
+                .flip();
+        while (entry.hasRemaining()) {
+            tombstones.write(entry);
+        }
+    }
+
+    private EmbeddedSegment activeSegment(int payloadLength) throws IOException {
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).hasRoom(payloadLength)) {
+            return segments.get(segments.size() - 1);
+        }
+        EmbeddedSegment segment = openSegment(nextSegmentId++);
+        if (!segment.hasRoom(payloadLength)) {
+            throw new IllegalArgumentException("单条记录超过元数据段大小: " + payloadLength);
+        }
+        segments.add(segment);
+        segmentBases.add(nodes.size());
+        return segment;
+    }
+
+    private EmbeddedSegment openSegment(int id) throws IOException {
+        return EmbeddedSegment.open(directory, id, dimension, config.getSegmentCapacity(),
+                config.getMetadataSegmentMb() * 1024 * 1024);
+    }
+
+    /**
+     * 映射已有数据段，重建内存索引并应用墓碑
+     */
+    private void load() throws IOException {
+        List<Integer> segmentIds;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentIds = files.map(EmbeddedSegment::parseId)
+                    .filter(id -> id >= 0)
+                    .sorted()
+                    .toList();
+        }
+        Map<Integer, Integer> segmentIndexes = new HashMap<>();
+        for (int id : segmentIds) {
+            EmbeddedSegment segment = openSegment(id);
+            segmentIndexes.put(id, segments.size());
+            segments.add(segment);
+            segmentBases.add(nodes.size());
+            for (int ordinal = 0; ordinal < segment.size(); ordinal++) {
+                try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(segment.payload(ordinal)))) {
+                    String recordId = input.readUTF();
+                    String talker = input.readUTF();
+                    register(new Node(segments.size() - 1, ordinal, recordId, talker.isEmpty() ? null : talker),
+                            ScalarQuantizer.quantize(segment.vector(ordinal)));
+                }
+            }
+            nextSegmentId = id + 1;
+        }
+
+        tombstones = FileChannel.open(directory.resolve(TOMBSTONE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) tombstones.size());
+        while (buffer.hasRemaining() && tombstones.read(buffer) >= 0) {
+            // 读取完整的墓碑文件
+        }
+        buffer.flip();
+        while (buffer.remaining() >= TOMBSTONE_BYTES) {
+            Integer segmentIndex = segmentIndexes.get(buffer.getInt());
+            int ordinal = buffer.getInt();
+            // 合并后残留的墓碑指向已删除的数据段，直接忽略
+            if (segmentIndex != null && ordinal < segments.get(segmentIndex).size()) {
+                int node = segmentBases.get(segmentIndex) + ordinal;
+                if (!dead.get(node)) {
+                    dead.set(node);
+                    deadCount++;
+                    liveNodes.remove(nodes.get(node).id(), node);
+                }
+            }
+        }
+        tombstones.position(tombstones.size());
+    }
+
+    private void clearState() {
+        segments.clear();
+        segmentBases.clear();
+        nodes.clear();
+        codes.clear();
+        dead.clear();
+        liveNodes.clear();
+        talkerNodes.clear();
+        deadCount = 0;
+        graph = newGraph();
+        lexicalIndex = null;
+    }
+
+    private HnswGraph newGraph() {
+        return new HnswGraph(config.getHnswM(), config.getEfConstruction(), codes::get);
+    }
+
+    /**
+     * 在后台把尚未入图的节点加入HNSW图
+     */
+    private void scheduleIndexing() {
+        if (!indexing.compareAndSet(false, true)) {
+            return;
+        }
+        maintenance.execute(() -> {
+            try {
+                boolean pending = true;
+                while (pending) {
+                    lock.writeLock().lock();
+                    try {
+                        int end = Math.min(nodes.size(), graph.size() + INDEX_BATCH);
+                        for (int node = graph.size(); node < end; node++) {
+                            graph.add(node);
+                        }
+                        pending = graph.size() < nodes.size();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("构建HNSW图失败: path={}", directory, e);
+            } finally {
+                indexing.set(false);
+            }
+            // 结束标记之前可能有新写入
+            lock.readLock().lock();
+            boolean behind;
+            try {
+                behind = graph.size() < nodes.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (behind) {
+                scheduleIndexing();
+            }
+        });
+    }
+
+    private void compactIfNeeded() {
+        try {
+            int total;
+            int deleted;
+            lock.readLock().lock();
+            try {
+                total = nodes.size();
+                deleted = deadCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (deleted > 0 && deleted >= total * config.getCompactionRatio()) {
+                log.info("内嵌Vector Store已删除比例超过阈值，开始合并: path={}, 已删除={}/{}", directory, deleted, total);
+                compact();
+            }
+        } catch (RuntimeException e) {
+            log.error("合并内嵌Vector Store数据段失败: path={}", directory, e);
+        }
+    }
+
+    /**
+     * 载荷格式: [UTF id][UTF talker][JSON {text, metadata}]
+     */
+    private static byte[] encode(String id, String talker, TextSegment textSegment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(id);
+            output.writeUTF(talker == null ? "" : talker);
+            Map<String, Object> document = new LinkedHashMap<>();
+            if (textSegment != null) {
+                document.put("text", textSegment.text());
+                document.put("metadata", textSegment.metadata().toMap());
+            }
+            output.write(OBJECT_MAPPER.writeValueAsBytes(document));
+        }
+        return bytes.toByteArray();
+    }
+
+    private TextSegment textSegment(int node) {
+        Node record = nodes.get(node);
+        try (DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(segments.get(record.segment()).payload(record.ordinal())))) {
+            input.readUTF();
+            input.readUTF();
+            Map<String, Object> document = OBJECT_MAPPER.readValue(input, new TypeReference<>() {
+            });
+            Object text = document.get("text");
+            if (text == null) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metadata = (Map<String, Object>) document.getOrDefault("metadata", Map.of());
+            return TextSegment.from(text.toString(), Metadata.from(metadata));
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取内嵌Vector Store记录失败: id=" + record.id(), e);
+        }
+    }
+
+    private static boolean matches(Filter filter, TextSegment textSegment) {
+        return textSegment != null && filter.test(textSegment.metadata());
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * inverse;
+        }
+        return normalized;
+    }
+}
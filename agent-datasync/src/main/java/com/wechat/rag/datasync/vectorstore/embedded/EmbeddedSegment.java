@@ -0,0 +1,202 @@
+package com.wechat.rag.datasync.vectorstore.embedded;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 内嵌Vector Store的数据段
+ * 由两个内存映射文件组成：
+ * 1. 向量文件（.vec）：定长槽位，第i条记录的向量位于 i * 维度 * 4
+ * 2. 元数据文件（.meta）：变长记录 [int 提交标记][int 长度][载荷]
+ * 先写向量再写元数据，提交标记最后写入，启动扫描遇到未提交的记录即停止
+ */
+final class EmbeddedSegment {
+    private static final int COMMIT_MARKER = 0x45565331;
+
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private static final String PREFIX = "segment-";
+
+    static final String VECTOR_SUFFIX = ".vec";
+
+    static final String META_SUFFIX = ".meta";
+
+    private final int id;
+
+    private final Path vectorFile;
+
+    private final Path metaFile;
+
+    private final int dimension;
+
+    private final int capacity;
+
+    private final int metaBytes;
+
+    private final MappedByteBuffer vectors;
+
+    private final MappedByteBuffer meta;
+
+    /**
+     * 每条记录在元数据文件中的偏移
+     */
+    private int[] metaOffsets;
+
+    private int size;
+
+    private int metaPosition;
+
+    private EmbeddedSegment(int id, Path directory, int dimension, int capacity, int metaBytes) throws IOException {
+        this.id = id;
+        this.vectorFile = directory.resolve(fileName(id, VECTOR_SUFFIX));
+        this.metaFile = directory.resolve(fileName(id, META_SUFFIX));
+        this.dimension = dimension;
+        this.capacity = capacity;
+        this.metaBytes = metaBytes;
+        this.vectors = map(vectorFile, (long) capacity * dimension * Float.BYTES);
+        this.meta = map(metaFile, metaBytes);
+        this.metaOffsets = new int[Math.min(capacity, 1024)];
+        scan();
+    }
+
+    /**
+     * 打开（或创建）数据段并扫描已提交的记录
+     */
+    static EmbeddedSegment open(Path directory, int id, int dimension, int capacity, int metaBytes) throws IOException {
+        return new EmbeddedSegment(id, directory, dimension, capacity, metaBytes);
+    }
+
+    static String fileName(int id, String suffix) {
+        return String.format("%s%06d%s", PREFIX, id, suffix);
+    }
+
+    /**
+     * 从文件名解析段ID，不是数据段文件时返回-1
+     */
+    static int parseId(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(VECTOR_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - VECTOR_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int id() {
+        return id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 是否还能写入一条元数据长度为payloadLength的记录
+     */
+    boolean hasRoom(int payloadLength) {
+        return size < capacity && metaPosition + RECORD_HEADER_BYTES + payloadLength <= metaBytes;
+    }
+
+    /**
+     * 追加一条记录，调用前需确认hasRoom
+     *
+     * @return 段内序号
+     */
+    int append(float[] vector, byte[] payload) {
+        int ordinal = size;
+        int position = ordinal * dimension * Float.BYTES;
+        for (int i = 0; i < dimension; i++) {
+            vectors.putFloat(position + i * Float.BYTES, vector[i]);
+        }
+        int offset = metaPosition;
+        meta.putInt(offset + Integer.BYTES, payload.length);
+        meta.put(offset + RECORD_HEADER_BYTES, payload);
+        // 最后写入提交标记
+        meta.putInt(offset, COMMIT_MARKER);
+
+        addOffset(ordinal, offset);
+        metaPosition += RECORD_HEADER_BYTES + payload.length;
+        size++;
+        return ordinal;
+    }
+
+    float[] vector(int ordinal) {
+        float[] vector = new float[dimension];
+        int position = ordinal * dimension * Float.BYTES;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors.getFloat(position + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    /**
+     * 全精度点积，避免复制向量
+     */
+    float dot(int ordinal, float[] query) {
+        int position = ordinal * dimension * Float.BYTES;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors.getFloat(position + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    byte[] payload(int ordinal) {
+        int offset = metaOffsets[ordinal];
+        byte[] payload = new byte[meta.getInt(offset + Integer.BYTES)];
+        meta.get(offset + RECORD_HEADER_BYTES, payload);
+        return payload;
+    }
+
+    void force() {
+        vectors.force();
+        meta.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(vectorFile);
+        Files.deleteIfExists(metaFile);
+    }
+
+    private void scan() {
+        int offset = 0;
+        while (size < capacity && offset + RECORD_HEADER_BYTES <= metaBytes && meta.getInt(offset) == COMMIT_MARKER) {
+            int length = meta.getInt(offset + Integer.BYTES);
+            if (length < 0 || offset + RECORD_HEADER_BYTES + length > metaBytes) {
+                break;
+            }
+            addOffset(size++, offset);
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        metaPosition = offset;
+    }
+
+    private void addOffset(int ordinal, int offset) {
+        if (ordinal == metaOffsets.length) {
+            metaOffsets = Arrays.copyOf(metaOffsets, Math.min(capacity, metaOffsets.length * 2));
+        }
+        metaOffsets[ordinal] = offset;
+    }
+
+    private static MappedByteBuffer map(Path file, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("数据段过大，请调小segment-capacity: " + bytes);
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            if (randomAccessFile.length() < bytes) {
+                randomAccessFile.setLength(bytes);
+            }
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+}
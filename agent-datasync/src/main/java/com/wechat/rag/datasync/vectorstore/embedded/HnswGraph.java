@@ -0,0 +1,227 @@
+package com.wechat.rag.datasync.vectorstore.embedded;
+
+import com.wechat.rag.datasync.vectorstore.quantization.ScalarQuantizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * 基于int8编码的HNSW图
+ * 节点按0..n-1的顺序加入，构建与检索都使用int8编码计算近似相似度，最终结果由调用方用float32向量重打分
+ * 已删除的节点保留在图中作为路由节点，由调用方过滤，合并数据段后整图重建
+ * 非线程安全，由调用方加锁
+ */
+final class HnswGraph {
+    private final int m;
+
+    private final int maxConnectionsLevel0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final IntFunction<ScalarQuantizer.Int8Vector> codes;
+
+    private final Random random = new Random(42);
+
+    /**
+     * 节点 -> 各层邻居，邻居数组首元素为邻居数量
+     */
+    private final List<int[][]> neighbors = new ArrayList<>();
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    HnswGraph(int m, int efConstruction, IntFunction<ScalarQuantizer.Int8Vector> codes) {
+        this.m = m;
+        this.maxConnectionsLevel0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.codes = codes;
+    }
+
+    int size() {
+        return neighbors.size();
+    }
+
+    /**
+     * 加入下一个节点，节点编号必须等于当前size()
+     */
+    void add(int node) {
+        if (node != neighbors.size()) {
+            throw new IllegalArgumentException("HNSW节点必须按顺序加入: expected=" + neighbors.size() + ", actual=" + node);
+        }
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] links = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[l] = new int[maxConnections(l) + 1];
+        }
+        neighbors.add(links);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        ScalarQuantizer.Int8Vector code = codes.apply(node);
+        IntToDoubleFunction similarity = other -> similarity(code, codes.apply(other));
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(similarity, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(similarity, current, efConstruction, l);
+            candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            int connections = Math.min(m, candidates.size());
+            for (int i = 0; i < connections; i++) {
+                int neighbor = candidates.get(i).node();
+                link(node, neighbor, l);
+                link(neighbor, node, l);
+            }
+            current = candidates.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 近似检索
+     *
+     * @param query 归一化的查询向量
+     * @param ef    候选队列大小
+     * @return 最多ef个候选节点
+     */
+    int[] search(float[] query, int ef) {
+        if (entryPoint < 0) {
+            return new int[0];
+        }
+        IntToDoubleFunction similarity = node -> ScalarQuantizer.dot(query, codes.apply(node));
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedy(similarity, current, l);
+        }
+        return searchLayer(similarity, current, ef, 0).stream().mapToInt(Candidate::node).toArray();
+    }
+
+    private int greedy(IntToDoubleFunction similarity, int start, int level) {
+        int current = start;
+        double best = similarity.applyAsDouble(current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] links = neighbors.get(current)[level];
+            for (int i = 1; i <= links[0]; i++) {
+                double score = similarity.applyAsDouble(links[i]);
+                if (score > best) {
+                    best = score;
+                    current = links[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Candidate> searchLayer(IntToDoubleFunction similarity, int entry, int ef, int level) {
+        BitSet visited = new BitSet(neighbors.size());
+        // 待扩展队列按分数降序，结果队列按分数升序（堆顶为最差结果）
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        Candidate start = new Candidate(entry, similarity.applyAsDouble(entry));
+        visited.set(entry);
+        frontier.add(start);
+        results.add(start);
+        while (!frontier.isEmpty()) {
+            Candidate candidate = frontier.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[][] links = neighbors.get(candidate.node());
+            if (level >= links.length) {
+                continue;
+            }
+            int[] levelLinks = links[level];
+            for (int i = 1; i <= levelLinks[0]; i++) {
+                int neighbor = levelLinks[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                double score = similarity.applyAsDouble(neighbor);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate next = new Candidate(neighbor, score);
+                    frontier.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * 添加单向连接，超出上限时只保留与该节点最相似的邻居
+     */
+    private void link(int node, int neighbor, int level) {
+        int[][] links = neighbors.get(node);
+        int[] levelLinks = links[level];
+        int count = levelLinks[0];
+        if (count < levelLinks.length - 1) {
+            levelLinks[count + 1] = neighbor;
+            levelLinks[0] = count + 1;
+            return;
+        }
+        ScalarQuantizer.Int8Vector code = codes.apply(node);
+        int[] all = Arrays.copyOfRange(levelLinks, 1, count + 2);
+        all[count] = neighbor;
+        double[] scores = new double[all.length];
+        for (int i = 0; i < all.length; i++) {
+            scores[i] = similarity(code, codes.apply(all[i]));
+        }
+        // 淘汰最不相似的一个
+        int worst = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (scores[i] < scores[worst]) {
+                worst = i;
+            }
+        }
+        int position = 1;
+        for (int i = 0; i < all.length; i++) {
+            if (i != worst) {
+                levelLinks[position++] = all[i];
+            }
+        }
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxConnectionsLevel0 : m;
+    }
+
+    /**
+     * 两个int8编码的近似点积
+     */
+    static double similarity(ScalarQuantizer.Int8Vector a, ScalarQuantizer.Int8Vector b) {
+        byte[] codesA = a.codes();
+        byte[] codesB = b.codes();
+        int sum = 0;
+        for (int i = 0; i < codesA.length; i++) {
+            sum += codesA[i] * codesB[i];
+        }
+        return sum / (a.scale() * b.scale());
+    }
+
+    private record Candidate(int node, double score) {
+    }
+}
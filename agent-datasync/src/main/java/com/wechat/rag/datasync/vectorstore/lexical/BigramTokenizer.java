@@ -0,0 +1,49 @@
+package com.wechat.rag.datasync.vectorstore.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字符二元组分词
+ * 中文无需分词词典，按连续的字母/数字片段切分后取字符二元组作为词项，单字片段保留单字
+ * 产品编号、昵称、URL片段等也能按子串命中
+ */
+public final class BigramTokenizer {
+
+    private BigramTokenizer() {
+    }
+
+    /**
+     * 切分为字符二元组
+     *
+     * @param text 文本
+     * @return 词项列表（含重复）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int[] codePoints = text.toLowerCase().codePoints().toArray();
+        int start = 0;
+        while (start < codePoints.length) {
+            if (!Character.isLetterOrDigit(codePoints[start])) {
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < codePoints.length && Character.isLetterOrDigit(codePoints[end])) {
+                end++;
+            }
+            if (end - start == 1) {
+                terms.add(new String(codePoints, start, 1));
+            } else {
+                for (int i = start; i < end - 1; i++) {
+                    terms.add(new String(codePoints, i, 2));
+                }
+            }
+            start = end;
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,124 @@
+package com.wechat.rag.datasync.vectorstore.lexical;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * 基于字符二元组的BM25倒排索引
+ * 文档编号由调用方分配且递增，删除由调用方通过accept过滤
+ * 非线程安全，由调用方加锁
+ */
+public class Bm25Index {
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * 文档编号 -> 词项数
+     */
+    private int[] lengths = new int[1024];
+
+    private int documents;
+
+    private long totalLength;
+
+    /**
+     * 检索结果
+     */
+    public record Hit(int document, double score) {
+    }
+
+    /**
+     * 加入文档
+     *
+     * @param document 文档编号
+     * @param text     文本
+     */
+    public void add(int document, String text) {
+        List<String> terms = BigramTokenizer.tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new Postings()).add(document, frequency));
+        if (document >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, document + 1));
+        }
+        lengths[document] = terms.size();
+        documents++;
+        totalLength += terms.size();
+    }
+
+    /**
+     * 文档数
+     */
+    public int size() {
+        return documents;
+    }
+
+    /**
+     * BM25检索
+     *
+     * @param query  查询文本
+     * @param limit  最大结果数
+     * @param accept 文档过滤条件
+     * @return 按分数降序的结果
+     */
+    public List<Hit> search(String query, int limit, IntPredicate accept) {
+        if (documents == 0) {
+            return List.of();
+        }
+        int n = documents;
+        double averageLength = Math.max(1.0, (double) totalLength / n);
+        Map<Integer, Double> scores = new HashMap<>();
+        // 查询中的重复词项只计一次
+        for (String term : new LinkedHashSet<>(BigramTokenizer.tokenize(query))) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (n - termPostings.size + 0.5) / (termPostings.size + 0.5));
+            for (int i = 0; i < termPostings.size; i++) {
+                int document = termPostings.documents[i];
+                if (!accept.test(document)) {
+                    continue;
+                }
+                int frequency = termPostings.frequencies[i];
+                double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                scores.merge(document, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .map(entry -> new Hit(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(Hit::score).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 单个词项的倒排列表
+     */
+    private static class Postings {
+        private int[] documents = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
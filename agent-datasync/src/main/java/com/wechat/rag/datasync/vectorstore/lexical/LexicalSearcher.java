@@ -0,0 +1,31 @@
+package com.wechat.rag.datasync.vectorstore.lexical;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.List;
+
+/**
+ * 全文检索
+ * 与向量检索并行执行，结果按倒数排名融合，弥补向量检索对产品编号、昵称、URL等字面词项的漏召回
+ */
+public interface LexicalSearcher {
+
+    /**
+     * 全文检索
+     *
+     * @param query      查询文本
+     * @param maxResults 最大结果数
+     * @param filter     元数据过滤条件，可为null
+     * @return 按相关度降序的结果，分数为全文检索分数
+     */
+    List<EmbeddingMatch<TextSegment>> searchLexical(String query, int maxResults, Filter filter);
+
+    /**
+     * 是否支持全文检索
+     */
+    default boolean supportsLexicalSearch() {
+        return true;
+    }
+}
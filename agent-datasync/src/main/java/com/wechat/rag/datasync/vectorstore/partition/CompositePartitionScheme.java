@@ -0,0 +1,63 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 组合分区方案，分区键为 外层键__内层键（如 s03__202501）
+ * 查询和删除时两层分别裁剪，同时满足的分区才会被访问
+ */
+public class CompositePartitionScheme implements PartitionScheme {
+    private static final String SEPARATOR = "__";
+
+    private final PartitionScheme outer;
+
+    private final PartitionScheme inner;
+
+    public CompositePartitionScheme(PartitionScheme outer, PartitionScheme inner) {
+        this.outer = outer;
+        this.inner = inner;
+    }
+
+    @Override
+    public String partitionOf(TextSegment textSegment) {
+        return outer.partitionOf(textSegment) + SEPARATOR + inner.partitionOf(textSegment);
+    }
+
+    @Override
+    public Set<String> prune(Filter filter, Collection<String> partitions) {
+        Set<String> pruned = new LinkedHashSet<>();
+        for (String partition : partitions) {
+            String[] keys = split(partition);
+            if (!outer.prune(filter, List.of(keys[0])).isEmpty() && !inner.prune(filter, List.of(keys[1])).isEmpty()) {
+                pruned.add(partition);
+            }
+        }
+        return pruned;
+    }
+
+    @Override
+    public Set<String> ownedBy(Set<String> talkers, Collection<String> partitions) {
+        Set<String> owned = new LinkedHashSet<>();
+        for (String partition : partitions) {
+            String[] keys = split(partition);
+            if (!outer.ownedBy(talkers, List.of(keys[0])).isEmpty() || !inner.ownedBy(talkers, List.of(keys[1])).isEmpty()) {
+                owned.add(partition);
+            }
+        }
+        return owned;
+    }
+
+    private static String[] split(String partition) {
+        int index = partition.indexOf(SEPARATOR);
+        if (index < 0) {
+            return new String[]{partition, DEFAULT_PARTITION};
+        }
+        return new String[]{partition.substring(0, index), partition.substring(index + SEPARATOR.length())};
+    }
+}
@@ -0,0 +1,52 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 分区注册表
+ * 每个集合已创建的分区保存在Redis集合中，重启后据此恢复分区列表
+ * EmbeddingStore为同步接口，这里在调用边界等待Redis结果
+ */
+@Slf4j
+public class PartitionRegistry {
+    private static final String KEY_PREFIX = "vectorstore:partitions:";
+
+    private final ReactiveRedisTemplate<String, Object> redisTemplate;
+
+    public PartitionRegistry(ReactiveRedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 加载集合的分区
+     *
+     * @param collectionName 集合名称
+     * @return 分区键
+     */
+    public Set<String> load(String collectionName) {
+        Set<String> partitions = redisTemplate.opsForSet().members(KEY_PREFIX + collectionName)
+                .map(Object::toString)
+                .collect(Collectors.toSet())
+                .block();
+        log.info("加载分区: collection={}, 分区数={}", collectionName, partitions == null ? 0 : partitions.size());
+        return partitions == null ? Set.of() : partitions;
+    }
+
+    /**
+     * 注册分区
+     */
+    public void register(String collectionName, String partition) {
+        redisTemplate.opsForSet().add(KEY_PREFIX + collectionName, partition).block();
+    }
+
+    /**
+     * 注销分区
+     */
+    public void unregister(String collectionName, String partition) {
+        redisTemplate.opsForSet().remove(KEY_PREFIX + collectionName, partition).block();
+    }
+}
@@ -0,0 +1,47 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 分区方案
+ * 决定写入时文档落在哪个分区，以及查询时根据过滤条件只访问哪些分区
+ */
+public interface PartitionScheme {
+
+    /**
+     * 无法确定分区的文档（缺少路由字段）写入的分区
+     */
+    String DEFAULT_PARTITION = "default";
+
+    /**
+     * 文档所属分区
+     *
+     * @param textSegment 文本片段，可为null
+     * @return 分区键，只包含小写字母、数字和下划线
+     */
+    String partitionOf(TextSegment textSegment);
+
+    /**
+     * 根据过滤条件裁剪分区
+     *
+     * @param filter     过滤条件，可为null
+     * @param partitions 已有分区
+     * @return 可能包含匹配文档的分区
+     */
+    Set<String> prune(Filter filter, Collection<String> partitions);
+
+    /**
+     * 只包含指定talker数据的分区，删除这些talker时可直接删除整个分区
+     *
+     * @param talkers    talker集合
+     * @param partitions 已有分区
+     * @return 可整体删除的分区
+     */
+    default Set<String> ownedBy(Set<String> talkers, Collection<String> partitions) {
+        return Set.of();
+    }
+}
@@ -0,0 +1,307 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import com.wechat.rag.datasync.vectorstore.ChunkedRemover;
+import com.wechat.rag.datasync.vectorstore.FilterSupport;
+import com.wechat.rag.datasync.vectorstore.lexical.LexicalSearcher;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * 分区Vector Store
+ * 每个分区是一个独立的集合（集合名_分区键），由PartitionScheme决定写入的分区和查询时访问的分区
+ * 查询只发往裁剪后的分区，各分区并行检索后按分数合并取top-k
+ * 按ID删除无法确定分区，会发往所有分区；按talker删除时，只含这些talker数据的分区整体删除
+ * <p>
+ * 已注册的分区在首次被访问（查询裁剪命中、写入、删除）时才打开，启动时不为每个分区创建Vector Store，
+ * 分区数多时避免一次性加载全部分区及其后台维护线程
+ */
+@Slf4j
+public class PartitionedEmbeddingStore implements EmbeddingStore<TextSegment>, LexicalSearcher, ChunkedRemover {
+
+    @Getter
+    private final String collectionName;
+
+    private final PartitionScheme scheme;
+
+    /**
+     * 分区集合名称 -> Vector Store
+     */
+    private final Function<String, EmbeddingStore<TextSegment>> storeFactory;
+
+    /**
+     * 分区集合名称 -> 全文检索，不支持时为null
+     */
+    private final Function<String, LexicalSearcher> lexicalSearchers;
+
+    /**
+     * 删除分区集合
+     */
+    private final Consumer<String> dropper;
+
+    private final PartitionRegistry registry;
+
+    private final int concurrency;
+
+    /**
+     * 已有分区键（含尚未打开的分区）
+     */
+    private final Set<String> partitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已打开的分区键 -> Vector Store
+     */
+    private final Map<String, EmbeddingStore<TextSegment>> opened = new ConcurrentHashMap<>();
+
+    public PartitionedEmbeddingStore(String collectionName, PartitionScheme scheme,
+                                     Function<String, EmbeddingStore<TextSegment>> storeFactory,
+                                     Function<String, LexicalSearcher> lexicalSearchers,
+                                     Consumer<String> dropper, PartitionRegistry registry, int concurrency) {
+        this.collectionName = collectionName;
+        this.scheme = scheme;
+        this.storeFactory = storeFactory;
+        this.lexicalSearchers = lexicalSearchers;
+        this.dropper = dropper;
+        this.registry = registry;
+        this.concurrency = concurrency;
+        partitions.addAll(registry.load(collectionName));
+    }
+
+    /**
+     * 分区对应的集合名称
+     */
+    public String partitionCollection(String partition) {
+        return collectionName + "_" + partition;
+    }
+
+    /**
+     * 已有分区
+     */
+    public Set<String> getPartitions() {
+        return Set.copyOf(partitions);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Set<String> targets = scheme.prune(request.filter(), partitions);
+        log.debug("分区检索: collection={}, 访问分区 {}/{}", collectionName, targets.size(), partitions.size());
+        List<EmbeddingMatch<TextSegment>> matches = fanOut(targets,
+                partition -> open(partition).search(request).matches(), request.maxResults());
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public boolean supportsLexicalSearch() {
+        return lexicalSearchers != null;
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> searchLexical(String query, int maxResults, Filter filter) {
+        if (lexicalSearchers == null) {
+            return List.of();
+        }
+        Set<String> targets = scheme.prune(filter, partitions);
+        return fanOut(targets, partition -> {
+            LexicalSearcher searcher = lexicalSearchers.apply(partitionCollection(partition));
+            return searcher == null ? List.of() : searcher.searchLexical(query, maxResults, filter);
+        }, maxResults);
+    }
+
+    /**
+     * 并行检索各分区，按分数合并取前maxResults条
+     */
+    private List<EmbeddingMatch<TextSegment>> fanOut(Set<String> targets,
+                                                      Function<String, List<EmbeddingMatch<TextSegment>>> search,
+                                                      int maxResults) {
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+        if (targets.size() == 1) {
+            return search.apply(targets.iterator().next());
+        }
+        List<EmbeddingMatch<TextSegment>> matches = Flux.fromIterable(targets)
+                .flatMap(partition -> Mono.fromCallable(() -> search.apply(partition))
+                        .subscribeOn(Schedulers.boundedElastic()), concurrency)
+                .flatMapIterable(list -> list)
+                .collectList()
+                .block();
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed())
+                .limit(maxResults)
+                .toList();
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        partition(PartitionScheme.DEFAULT_PARTITION).add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return partition(PartitionScheme.DEFAULT_PARTITION).addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> ids = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, textSegments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        Map<String, Batch> batches = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            TextSegment textSegment = textSegments == null ? null : textSegments.get(i);
+            batches.computeIfAbsent(scheme.partitionOf(textSegment), key -> new Batch())
+                    .add(ids.get(i), embeddings.get(i), textSegment);
+        }
+        batches.forEach((partition, batch) ->
+                partition(partition).addAll(batch.ids, batch.embeddings, batch.textSegments));
+    }
+
+    @Override
+    public void remove(String id) {
+        partitions.forEach(partition -> open(partition).remove(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        partitions.forEach(partition -> open(partition).removeAll(ids));
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        dropOwned(filter, count -> {
+        });
+        scheme.prune(filter, partitions).forEach(partition -> open(partition).removeAll(filter));
+    }
+
+    @Override
+    public long count(Filter filter) {
+        long total = 0;
+        for (String partition : scheme.prune(filter, partitions)) {
+            long count = ChunkedRemover.count(open(partition), filter);
+            if (count < 0) {
+                return -1;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public void removeAll(Filter filter, int chunkSize, LongConsumer onRemoved) {
+        dropOwned(filter, onRemoved);
+        for (String partition : scheme.prune(filter, partitions)) {
+            ChunkedRemover.removeAll(open(partition), filter, chunkSize, onRemoved);
+        }
+    }
+
+    /**
+     * 过滤条件只有talker时，独占分区整体删除，无需逐条删除
+     *
+     * @param onRemoved 回调删除分区前统计的文档数（无法统计时不回调）
+     */
+    private void dropOwned(Filter filter, LongConsumer onRemoved) {
+        if (!FilterSupport.isTalkerOnly(filter)) {
+            return;
+        }
+        for (String partition : scheme.ownedBy(FilterSupport.talkers(filter), partitions)) {
+            long count = ChunkedRemover.count(open(partition), null);
+            drop(partition);
+            if (count >= 0) {
+                onRemoved.accept(count);
+            }
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        partitions.forEach(partition -> open(partition).removeAll());
+    }
+
+    /**
+     * 获取分区，不存在时创建并注册
+     */
+    private EmbeddingStore<TextSegment> partition(String partition) {
+        if (partitions.add(partition)) {
+            log.info("创建分区: collection={}, partition={}", collectionName, partition);
+            registry.register(collectionName, partition);
+        }
+        return open(partition);
+    }
+
+    /**
+     * 打开已有分区的Vector Store，首次访问时创建
+     */
+    private EmbeddingStore<TextSegment> open(String partition) {
+        return opened.computeIfAbsent(partition, key -> storeFactory.apply(partitionCollection(key)));
+    }
+
+    /**
+     * 删除分区：删除集合并注销
+     */
+    private void drop(String partition) {
+        if (!partitions.remove(partition)) {
+            return;
+        }
+        opened.remove(partition);
+        log.info("删除分区: collection={}, partition={}", collectionName, partition);
+        dropper.accept(partitionCollection(partition));
+        registry.unregister(collectionName, partition);
+    }
+
+    /**
+     * 同一分区的一批写入
+     */
+    private static class Batch {
+        private final List<String> ids = new ArrayList<>();
+
+        private final List<Embedding> embeddings = new ArrayList<>();
+
+        private final List<TextSegment> textSegments = new ArrayList<>();
+
+        void add(String id, Embedding embedding, TextSegment textSegment) {
+            ids.add(id);
+            embeddings.add(embedding);
+            textSegments.add(textSegment);
+        }
+    }
+}
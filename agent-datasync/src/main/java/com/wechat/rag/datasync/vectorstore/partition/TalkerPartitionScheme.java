@@ -0,0 +1,107 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import com.wechat.rag.datasync.vectorstore.FilterSupport;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 按talker分片
+ * 1. 独占分片：配置的大群各自一个分区（t_可读前缀_原始talker哈希），删除该群时直接删除整个分区；
+ * 可读前缀只保留字母数字，中文备注名、大小写和标点不同的talker靠哈希区分，不同talker不会共用独占分区
+ * 2. 哈希分片：其余talker按哈希落到固定数量的分区（s00 ~ sNN）
+ * 查询带talker条件（[CONTEXT]的groups或解析出的talkerName）时只访问这些talker所在的分区
+ */
+public class TalkerPartitionScheme implements PartitionScheme {
+    private static final int MAX_READABLE_LENGTH = 32;
+
+    private final int shards;
+
+    private final Set<String> dedicatedTalkers;
+
+    public TalkerPartitionScheme(int shards, Collection<String> dedicatedTalkers) {
+        this.shards = Math.max(1, shards);
+        this.dedicatedTalkers = Set.copyOf(dedicatedTalkers);
+        Map<String, String> keys = new HashMap<>();
+        for (String talker : this.dedicatedTalkers) {
+            String previous = keys.putIfAbsent(dedicatedPartition(talker), talker);
+            if (previous != null) {
+                throw new IllegalArgumentException("独占分片的分区键冲突: " + previous + ", " + talker);
+            }
+        }
+    }
+
+    @Override
+    public String partitionOf(TextSegment textSegment) {
+        String talker = textSegment == null ? null : textSegment.metadata().getString(FilterSupport.TALKER_KEY);
+        return talker == null ? DEFAULT_PARTITION : partitionOf(talker);
+    }
+
+    /**
+     * talker所在分区
+     */
+    String partitionOf(String talker) {
+        if (dedicatedTalkers.contains(talker)) {
+            return dedicatedPartition(talker);
+        }
+        return String.format("s%02d", Math.floorMod(hash(talker), shards));
+    }
+
+    /**
+     * 独占分区键：可读前缀（截断，避免超出索引名长度）+ 原始talker的哈希
+     * 前缀不含连续下划线，不会与组合分区键的分隔符"__"混淆
+     */
+    private static String dedicatedPartition(String talker) {
+        String readable = StringUtils.left(talker.toLowerCase().replaceAll("[^a-z0-9]+", "_"), MAX_READABLE_LENGTH);
+        readable = StringUtils.strip(readable, "_");
+        return readable.isEmpty()
+                ? String.format("t_%08x", hash(talker))
+                : String.format("t_%s_%08x", readable, hash(talker));
+    }
+
+    @Override
+    public Set<String> prune(Filter filter, Collection<String> partitions) {
+        Set<String> talkers = filter == null ? null : FilterSupport.talkers(filter);
+        if (talkers == null) {
+            return new LinkedHashSet<>(partitions);
+        }
+        Set<String> targets = talkers.stream().map(this::partitionOf).collect(Collectors.toSet());
+        Set<String> pruned = new LinkedHashSet<>();
+        for (String partition : partitions) {
+            if (targets.contains(partition)) {
+                pruned.add(partition);
+            }
+        }
+        return pruned;
+    }
+
+    @Override
+    public Set<String> ownedBy(Set<String> talkers, Collection<String> partitions) {
+        Set<String> owned = talkers.stream()
+                .filter(dedicatedTalkers::contains)
+                .map(this::partitionOf)
+                .collect(Collectors.toSet());
+        owned.retainAll(partitions);
+        return owned;
+    }
+
+    /**
+     * 稳定的哈希（不依赖String.hashCode的实现），分片数不变时同一talker始终落在同一分区
+     */
+    private static int hash(String talker) {
+        int hash = 0x811c9dc5;
+        for (byte b : talker.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,151 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.IsoFields;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 按消息时间分区
+ * seq即消息时间戳（毫秒），按月（202501）或ISO周（2025w03）划分分区
+ * 查询时从过滤条件中提取seq范围（TimeParser.TimeRange生成的条件），只访问与范围重叠的分区
+ */
+public class TimePartitionScheme implements PartitionScheme {
+    private static final String SEQ_KEY = "seq";
+
+    private final Granularity granularity;
+
+    private final ZoneId zoneId;
+
+    public TimePartitionScheme(Granularity granularity, ZoneId zoneId) {
+        this.granularity = granularity;
+        this.zoneId = zoneId;
+    }
+
+    @Override
+    public String partitionOf(TextSegment textSegment) {
+        Long seq = textSegment == null ? null : textSegment.metadata().getLong(SEQ_KEY);
+        if (seq == null) {
+            return DEFAULT_PARTITION;
+        }
+        LocalDate date = Instant.ofEpochMilli(seq).atZone(zoneId).toLocalDate();
+        return switch (granularity) {
+            case MONTH -> String.format("%04d%02d", date.getYear(), date.getMonthValue());
+            case WEEK -> String.format("%04dw%02d",
+                    date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        };
+    }
+
+    @Override
+    public Set<String> prune(Filter filter, Collection<String> partitions) {
+        Range range = filter == null ? Range.ALL : range(filter);
+        Set<String> pruned = new LinkedHashSet<>();
+        for (String partition : partitions) {
+            Range partitionRange = partitionRange(partition);
+            // 默认分区和无法解析的分区时间范围未知，始终访问
+            if (partitionRange == null || partitionRange.overlaps(range)) {
+                pruned.add(partition);
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * 分区覆盖的时间范围[start, end]
+     */
+    Range partitionRange(String partition) {
+        try {
+            ZonedDateTime start;
+            ZonedDateTime end;
+            if (granularity == Granularity.MONTH) {
+                YearMonth month = YearMonth.of(Integer.parseInt(partition.substring(0, 4)), Integer.parseInt(partition.substring(4)));
+                start = month.atDay(1).atStartOfDay(zoneId);
+                end = month.plusMonths(1).atDay(1).atStartOfDay(zoneId);
+            } else {
+                int year = Integer.parseInt(partition.substring(0, 4));
+                int week = Integer.parseInt(partition.substring(5));
+                LocalDate monday = LocalDate.of(year, 1, 4)
+                        .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, week)
+                        .with(DayOfWeek.MONDAY);
+                start = monday.atStartOfDay(zoneId);
+                end = monday.plusWeeks(1).atStartOfDay(zoneId);
+            }
+            return new Range(start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli() - 1);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 提取过滤条件限定的seq范围，And取交集，Or取并集的外包范围，其它条件视为不限
+     */
+    static Range range(Filter filter) {
+        if (filter instanceof IsGreaterThan f && SEQ_KEY.equals(f.key()) && f.comparisonValue() instanceof Number value) {
+            return new Range(value.longValue() + 1, Long.MAX_VALUE);
+        }
+        if (filter instanceof IsGreaterThanOrEqualTo f && SEQ_KEY.equals(f.key()) && f.comparisonValue() instanceof Number value) {
+            return new Range(value.longValue(), Long.MAX_VALUE);
+        }
+        if (filter instanceof IsLessThan f && SEQ_KEY.equals(f.key()) && f.comparisonValue() instanceof Number value) {
+            return new Range(Long.MIN_VALUE, value.longValue() - 1);
+        }
+        if (filter instanceof IsLessThanOrEqualTo f && SEQ_KEY.equals(f.key()) && f.comparisonValue() instanceof Number value) {
+            return new Range(Long.MIN_VALUE, value.longValue());
+        }
+        if (filter instanceof And f) {
+            return range(f.left()).intersect(range(f.right()));
+        }
+        if (filter instanceof Or f) {
+            return range(f.left()).hull(range(f.right()));
+        }
+        return Range.ALL;
+    }
+
+    /**
+     * 闭区间[start, end]
+     */
+    record Range(long start, long end) {
+        static final Range ALL = new Range(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        boolean overlaps(Range other) {
+            return start <= other.end && other.start <= end;
+        }
+
+        Range intersect(Range other) {
+            return new Range(Math.max(start, other.start), Math.min(end, other.end));
+        }
+
+        Range hull(Range other) {
+            return new Range(Math.min(start, other.start), Math.max(end, other.end));
+        }
+    }
+
+    @Getter
+    public enum Granularity {
+        MONTH("month"),
+        WEEK("week"),
+        ;
+
+        private final String value;
+
+        Granularity(String value) {
+            this.value = value;
+        }
+    }
+}
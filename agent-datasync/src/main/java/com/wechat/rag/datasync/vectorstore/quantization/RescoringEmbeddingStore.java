@@ -0,0 +1,132 @@
+package com.wechat.rag.datasync.vectorstore.quantization;
+
+import com.wechat.rag.datasync.vectorstore.ChunkedRemover;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 全精度重打分装饰器
+ * 底层索引使用量化向量检索候选时，分数只是近似值。这里按oversample倍数多取候选，
+ * 再用文档自带的float32向量重新计算余弦相似度，过滤minScore并截取maxResults
+ */
+@Slf4j
+public class RescoringEmbeddingStore implements EmbeddingStore<TextSegment>, ChunkedRemover {
+    /**
+     * Elasticsearch kNN的k上限
+     */
+    private static final int MAX_CANDIDATES = 10000;
+
+    private final EmbeddingStore<TextSegment> delegate;
+
+    private final int oversample;
+
+    private final double minScoreMargin;
+
+    public RescoringEmbeddingStore(EmbeddingStore<TextSegment> delegate, int oversample, double minScoreMargin) {
+        this.delegate = delegate;
+        this.oversample = oversample;
+        this.minScoreMargin = minScoreMargin;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        // 量化分数可能略低于真实分数，候选阶段放宽minScore避免误删
+        EmbeddingSearchRequest candidateRequest = EmbeddingSearchRequest.builder()
+                .queryEmbedding(request.queryEmbedding())
+                .maxResults(Math.min(request.maxResults() * oversample, MAX_CANDIDATES))
+                .minScore(Math.max(0, request.minScore() - minScoreMargin))
+                .filter(request.filter())
+                .build();
+        List<EmbeddingMatch<TextSegment>> candidates = delegate.search(candidateRequest).matches();
+
+        List<EmbeddingMatch<TextSegment>> matches = candidates.stream()
+                .map(match -> rescore(request.queryEmbedding(), match))
+                .filter(match -> match.score() >= request.minScore())
+                .sorted(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed())
+                .limit(request.maxResults())
+                .toList();
+        log.debug("量化候选重打分: 候选数={}, 结果数={}", candidates.size(), matches.size());
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private EmbeddingMatch<TextSegment> rescore(Embedding queryEmbedding, EmbeddingMatch<TextSegment> match) {
+        if (match.embedding() == null) {
+            return match;
+        }
+        double score = RelevanceScore.fromCosineSimilarity(CosineSimilarity.between(queryEmbedding, match.embedding()));
+        return new EmbeddingMatch<>(score, match.embeddingId(), match.embedding(), match.embedded());
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        return delegate.add(embedding, textSegment);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        return delegate.addAll(embeddings, textSegments);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        delegate.addAll(ids, embeddings, textSegments);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        return ChunkedRemover.count(delegate, filter);
+    }
+
+    @Override
+    public void removeAll(Filter filter, int chunkSize, LongConsumer onRemoved) {
+        ChunkedRemover.removeAll(delegate, filter, chunkSize, onRemoved);
+    }
+}
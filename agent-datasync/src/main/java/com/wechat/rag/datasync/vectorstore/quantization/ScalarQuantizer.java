@@ -0,0 +1,78 @@
+package com.wechat.rag.datasync.vectorstore.quantization;
+
+/**
+ * int8标量量化
+ * 每个向量按自身最大绝对值对称缩放到[-127, 127]，额外保存一个float缩放系数
+ * 查询向量保持float32，与int8编码做非对称点积，精度损失小于双方都量化
+ */
+public final class ScalarQuantizer {
+
+    private ScalarQuantizer() {
+    }
+
+    /**
+     * 量化向量
+     *
+     * @param vector float32向量
+     * @return int8编码
+     */
+    public static Int8Vector quantize(float[] vector) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 1f : 127f / maxAbs;
+        byte[] codes = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            codes[i] = (byte) Math.round(vector[i] * scale);
+        }
+        return new Int8Vector(codes, scale);
+    }
+
+    /**
+     * float32查询向量与int8编码的近似点积
+     *
+     * @param query  查询向量
+     * @param vector int8编码
+     * @return 近似点积
+     */
+    public static float dot(float[] query, Int8Vector vector) {
+        byte[] codes = vector.codes();
+        float sum = 0f;
+        for (int i = 0; i < codes.length; i++) {
+            sum += query[i] * codes[i];
+        }
+        return sum / vector.scale();
+    }
+
+    /**
+     * 还原为float32向量
+     *
+     * @param vector int8编码
+     * @return 近似的float32向量
+     */
+    public static float[] dequantize(Int8Vector vector) {
+        byte[] codes = vector.codes();
+        float[] result = new float[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            result[i] = codes[i] / vector.scale();
+        }
+        return result;
+    }
+
+    /**
+     * 单个编码占用的字节数
+     *
+     * @param dimension 向量维度
+     * @return 字节数
+     */
+    public static int bytesPerVector(int dimension) {
+        return dimension + Float.BYTES;
+    }
+
+    /**
+     * int8编码及其缩放系数
+     */
+    public record Int8Vector(byte[] codes, float scale) {
+    }
+}
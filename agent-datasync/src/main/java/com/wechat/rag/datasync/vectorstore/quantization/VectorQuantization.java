@@ -0,0 +1,35 @@
+package com.wechat.rag.datasync.vectorstore.quantization;
+
+import lombok.Getter;
+
+/**
+ * 向量量化方式
+ */
+@Getter
+public enum VectorQuantization {
+    /**
+     * 不量化，float32存储（每维4字节）
+     */
+    NONE("none", null),
+    /**
+     * int8标量量化（每维1字节，约为float32的1/4）
+     */
+    INT8("int8", "int8_hnsw"),
+    /**
+     * 二值量化（每维1比特，约为float32的1/32）
+     */
+    BINARY("binary", "bbq_hnsw"),
+    ;
+
+    private final String value;
+
+    /**
+     * 对应的Elasticsearch dense_vector index_options.type
+     */
+    private final String elasticsearchIndexType;
+
+    VectorQuantization(String value, String elasticsearchIndexType) {
+        this.value = value;
+        this.elasticsearchIndexType = elasticsearchIndexType;
+    }
+}
@@ -3,15 +3,14 @@ package com.wechat.rag.web.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wechat.rag.core.agent.Assistant;
+import com.wechat.rag.core.agent.aggregator.NeighborContextExpander;
 import com.wechat.rag.core.agent.injector.MetadataContentInjector;
 import com.wechat.rag.core.agent.retriever.EnhancedContentRetriever;
 import com.wechat.rag.core.constants.CommonConstant;
 import com.wechat.rag.web.dto.ChatCompletionResponse;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
-import dev.langchain4j.model.scoring.ScoringModel;
 import dev.langchain4j.rag.DefaultRetrievalAugmentor;
-import dev.langchain4j.rag.content.aggregator.ReRankingContentAggregator;
 import dev.langchain4j.service.AiServices;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +39,7 @@ public class ChatController {
     private MetadataContentInjector contentInjector;
 
     @Autowired
-    private ScoringModel scoringModel;
+    private NeighborContextExpander contentAggregator;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -53,11 +52,6 @@ public class ChatController {
 
         return Mono.fromCallable(() -> {
                     // 在弹性线程池中执行所有同步操作
-                    // 重排器
-                    ReRankingContentAggregator contentAggregator = ReRankingContentAggregator.builder()
-                            .scoringModel(scoringModel)
-                            .minScore(0.001)
-                            .build();
                     // 创建检索增强器，包含元数据注入
                     DefaultRetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
                             .contentAggregator(contentAggregator)
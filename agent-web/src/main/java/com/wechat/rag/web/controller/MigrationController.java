@@ -0,0 +1,64 @@
+package com.wechat.rag.web.controller;
+
+import com.wechat.rag.core.migration.EmbeddingMigrationService;
+import com.wechat.rag.core.migration.MigrationStatus;
+import com.wechat.rag.web.dto.MigrationRequest;
+import com.wechat.rag.web.dto.VectorizationResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Embedding模型迁移控制器
+ */
+@RestController
+@RequestMapping("/api/migration")
+@RequiredArgsConstructor
+@Slf4j
+public class MigrationController {
+
+    private final EmbeddingMigrationService embeddingMigrationService;
+
+    /**
+     * 开始迁移：后台回填影子集合并双写增量数据
+     *
+     * @param request 迁移请求
+     */
+    @PostMapping
+    public Mono<VectorizationResponse> start(@Valid @RequestBody MigrationRequest request) {
+        log.info("开始Embedding模型迁移: model={}, collection={}", request.getModel(), request.getCollectionName());
+        // 创建目标模型时会调用一次Embedding API探测维度
+        return Mono.fromCallable(() -> embeddingMigrationService.start(request.getModel(), request.getCollectionName()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(taskId -> new VectorizationResponse("SUCCESS", "迁移任务已启动", taskId));
+    }
+
+    /**
+     * 查询迁移状态
+     */
+    @GetMapping
+    public Mono<MigrationStatus> status() {
+        return Mono.fromCallable(embeddingMigrationService::getStatus);
+    }
+
+    /**
+     * 手动切换到影子集合（auto-cutover关闭时使用）
+     */
+    @PostMapping("/cutover")
+    public Mono<VectorizationResponse> cutover() {
+        return embeddingMigrationService.cutover()
+                .thenReturn(new VectorizationResponse("SUCCESS", "已切换到新模型和集合"));
+    }
+
+    /**
+     * 取消迁移
+     */
+    @DeleteMapping
+    public Mono<VectorizationResponse> cancel() {
+        return Mono.fromRunnable(embeddingMigrationService::cancel)
+                .thenReturn(new VectorizationResponse("SUCCESS", "迁移已取消"));
+    }
+}
@@ -58,12 +58,39 @@ public class VectorizationController {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * 删除已同步的群信息 - 后台分块删除，通过 /progress/{taskId} 查询进度
+     *
+     * @param talker 群聊ID或用户ID
+     * @param time   时间范围 格式：YYYY-MM-DD 或 YYYY-MM-DD~YYYY-MM-DD，为空时删除全部并清除同步状态
+     * @return 删除任务ID
+     */
     @DeleteMapping("/sync/{talker}")
-    public Mono<Void> deleteSyncedChatlogs(@PathVariable String talker) {
-        log.info("删除已同步的群信息: talker={}", talker);
+    public Mono<ResponseEntity<VectorizationResponse>> deleteSyncedChatlogs(
+            @PathVariable String talker,
+            @RequestParam(value = "time", required = false) String time) {
+        String taskId = UUID.randomUUID().toString();
+        log.info("删除已同步的群信息: talker={}, time={}, taskId={}", talker, time, taskId);
+
+        progressService.initProgress(taskId, talker, time);
+        progressService.updateProgress(taskId, ProgressStatus.DELETING, 0);
+
+        // 异步执行删除，只更新进度
+        chatlogVectorService.deleteChatlogs(talker, time,
+                        (status, percentage, totalCount, processedCount) ->
+                                progressService.updateProgress(taskId, status, percentage, totalCount, processedCount))
+                .doOnSuccess(deleted -> {
+                    log.info("删除任务完成: taskId={}, 删除{}条", taskId, deleted);
+                    progressService.completeProgress(taskId);
+                })
+                .doOnError(error -> {
+                    log.error("删除任务失败: taskId={}", taskId, error);
+                    progressService.failProgress(taskId, error.getMessage());
+                })
+                .subscribe();
 
-        // 删除指定的群聊同步记录
-        return chatlogVectorService.deleteSyncedChatlogs(talker);
+        return Mono.just(ResponseEntity.accepted()
+                .body(new VectorizationResponse("SUCCESS", "删除任务已提交", taskId)));
     }
 
     /**
@@ -193,6 +220,19 @@ public class VectorizationController {
                 });
     }
 
+    /**
+     * 查询任务进度
+     *
+     * @param taskId 任务ID
+     * @return 进度信息
+     */
+    @GetMapping("/progress/{taskId}")
+    public Mono<ResponseEntity<ProgressResponse>> getProgress(@PathVariable String taskId) {
+        return Mono.fromCallable(() -> progressService.getProgress(taskId)
+                .map(progress -> ResponseEntity.ok(convertToProgressResponse(progress)))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
     /**
      * 删除已完成任务的进度信息（清理接口）
      *
@@ -0,0 +1,23 @@
+package com.wechat.rag.web.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * Embedding模型迁移请求DTO
+ */
+@Data
+public class MigrationRequest {
+
+    /**
+     * 目标Embedding模型
+     */
+    @NotBlank(message = "model不能为空")
+    private String model;
+
+    /**
+     * 影子集合名称
+     */
+    @NotBlank(message = "collectionName不能为空")
+    private String collectionName;
+}
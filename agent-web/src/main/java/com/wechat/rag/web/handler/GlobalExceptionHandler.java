@@ -1,5 +1,6 @@
 package com.wechat.rag.web.handler;
 
+import com.wechat.rag.core.migration.MigrationStateException;
 import com.wechat.rag.web.dto.VectorizationResponse;
 import com.wechat.rag.web.dto.ChatCompletionResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -61,6 +62,23 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.badRequest().body(response));
     }
 
+    /**
+     * 处理迁移状态冲突异常
+     */
+    @ExceptionHandler(MigrationStateException.class)
+    public Mono<ResponseEntity<VectorizationResponse>> handleMigrationStateException(
+            MigrationStateException ex) {
+
+        log.warn("迁移状态冲突: {}", ex.getMessage());
+
+        VectorizationResponse response = new VectorizationResponse(
+                "CONFLICT",
+                ex.getMessage()
+        );
+
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(response));
+    }
+
     /**
      * 处理通用异常
      */
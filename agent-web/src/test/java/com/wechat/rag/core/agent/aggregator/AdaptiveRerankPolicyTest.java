@@ -0,0 +1,43 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveRerankPolicy单元测试
+ */
+class AdaptiveRerankPolicyTest {
+    private final AdaptiveRerankPolicy policy = new AdaptiveRerankPolicy(3, 0.05);
+
+    @Test
+    @DisplayName("测试候选很少时跳过重排")
+    void testSkipFewResults() {
+        AdaptiveRerankPolicy.Decision decision = policy.decide(List.of(0.82, 0.75));
+        assertEquals(AdaptiveRerankPolicy.Type.SKIP, decision.type());
+        assertEquals(2, decision.size());
+    }
+
+    @Test
+    @DisplayName("测试分数陡降时只保留或只重排头部")
+    void testDropOff() {
+        AdaptiveRerankPolicy.Decision skip = policy.decide(List.of(0.92, 0.91, 0.80, 0.79, 0.78));
+        assertEquals(AdaptiveRerankPolicy.Type.SKIP, skip.type());
+        assertEquals(2, skip.size());
+
+        AdaptiveRerankPolicy.Decision shrink = policy.decide(List.of(0.92, 0.91, 0.90, 0.89, 0.88, 0.80, 0.79));
+        assertEquals(AdaptiveRerankPolicy.Type.SHRINK, shrink.type());
+        assertEquals(5, shrink.size());
+    }
+
+    @Test
+    @DisplayName("测试分数平缓时完整重排")
+    void testFullRerank() {
+        AdaptiveRerankPolicy.Decision decision = policy.decide(List.of(0.81, 0.80, 0.79, 0.78, 0.77, 0.76));
+        assertEquals(AdaptiveRerankPolicy.Type.FULL, decision.type());
+        assertEquals(6, decision.size());
+    }
+}
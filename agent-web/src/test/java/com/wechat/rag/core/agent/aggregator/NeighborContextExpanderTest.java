@@ -0,0 +1,221 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import com.wechat.rag.core.config.RerankConfig;
+import com.wechat.rag.core.config.RetrievalConfig;
+import com.wechat.rag.datasync.service.ChatlogVectorService;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NeighborContextExpander单元测试
+ */
+class NeighborContextExpanderTest {
+
+    @Test
+    @DisplayName("测试重叠和相邻的窗口合并为一段")
+    void testMergeWindows() {
+        List<NeighborContextExpander.Window> windows = NeighborContextExpander.mergeWindows(List.of(10, 4, 30, 37), 3, 100);
+
+        assertEquals(List.of(
+                new NeighborContextExpander.Window(1, 14),
+                new NeighborContextExpander.Window(27, 41)), windows);
+    }
+
+    @Test
+    @DisplayName("测试窗口在当天首尾截断")
+    void testClampWindows() {
+        List<NeighborContextExpander.Window> windows = NeighborContextExpander.mergeWindows(List.of(0, 9), 3, 10);
+
+        assertEquals(List.of(
+                new NeighborContextExpander.Window(0, 4),
+                new NeighborContextExpander.Window(6, 10)), windows);
+    }
+
+    @Test
+    @DisplayName("测试按（talker, 日期）分组获取，每组只请求一次并带上组内全部命中的seq")
+    void testGroupByTalkerAndDay() {
+        FakeChatlogVectorService service = new FakeChatlogVectorService(request -> Mono.just(day(request)));
+        NeighborContextExpander expander = expander(service, Duration.ofSeconds(5));
+
+        expander.aggregate(query(hits()));
+
+        assertEquals(Set.of(
+                new FetchRequest("group_a", "2024-05-01", List.of(5L, 6L)),
+                new FetchRequest("group_b", "2024-05-01", List.of(3L)),
+                new FetchRequest("group_a", "2024-05-02", List.of(2L))), Set.copyOf(service.requests));
+        assertEquals(3, service.requests.size());
+    }
+
+    @Test
+    @DisplayName("测试按命中的重排顺序输出对话段，同一段只输出一次")
+    void testSectionsInRerankOrder() {
+        FakeChatlogVectorService service = new FakeChatlogVectorService(request -> Mono.just(day(request)));
+        NeighborContextExpander expander = expander(service, Duration.ofSeconds(5));
+
+        List<Content> result = expander.aggregate(query(hits()));
+
+        assertEquals(List.of(
+                "group_a 2024-05-01 #4", "hit group_a 2024-05-01 #5", "hit group_a 2024-05-01 #6", "group_a 2024-05-01 #7",
+                "group_b 2024-05-01 #2", "hit group_b 2024-05-01 #3", "group_b 2024-05-01 #4",
+                "group_a 2024-05-02 #1", "hit group_a 2024-05-02 #2", "group_a 2024-05-02 #3"), texts(result));
+        // 命中本身保留重排分数
+        assertEquals(0.9, result.get(1).metadata().get(ContentMetadata.SCORE));
+    }
+
+    @Test
+    @DisplayName("测试只扩展前maxHits个命中，其余命中原样追加")
+    void testAppendHitsBeyondMaxHits() {
+        FakeChatlogVectorService service = new FakeChatlogVectorService(request -> Mono.just(day(request)));
+        NeighborContextExpander expander = expander(service, Duration.ofSeconds(5), 2);
+
+        List<Content> hits = hits();
+        List<Content> result = expander.aggregate(query(hits));
+
+        assertEquals(List.of(
+                "group_a 2024-05-01 #4", "hit group_a 2024-05-01 #5", "group_a 2024-05-01 #6",
+                "group_b 2024-05-01 #2", "hit group_b 2024-05-01 #3", "group_b 2024-05-01 #4",
+                "hit group_a 2024-05-01 #6", "hit group_a 2024-05-02 #2"), texts(result));
+        assertSame(hits.get(2), result.get(6));
+        assertSame(hits.get(3), result.get(7));
+        assertEquals(Set.of(
+                new FetchRequest("group_a", "2024-05-01", List.of(5L)),
+                new FetchRequest("group_b", "2024-05-01", List.of(3L))), Set.copyOf(service.requests));
+    }
+
+    @Test
+    @DisplayName("测试获取失败的组只输出命中本身")
+    void testFallbackOnFailure() {
+        FakeChatlogVectorService service = new FakeChatlogVectorService(request -> request.talker().equals("group_b")
+                ? Mono.error(new RuntimeException("chatlog unavailable"))
+                : Mono.just(day(request)));
+        NeighborContextExpander expander = expander(service, Duration.ofSeconds(5));
+
+        List<Content> result = expander.aggregate(query(hits()));
+
+        assertEquals(List.of(
+                "group_a 2024-05-01 #4", "hit group_a 2024-05-01 #5", "hit group_a 2024-05-01 #6", "group_a 2024-05-01 #7",
+                "hit group_b 2024-05-01 #3",
+                "group_a 2024-05-02 #1", "hit group_a 2024-05-02 #2", "group_a 2024-05-02 #3"), texts(result));
+    }
+
+    @Test
+    @DisplayName("测试获取超时时只输出命中本身")
+    void testFallbackOnTimeout() {
+        FakeChatlogVectorService service = new FakeChatlogVectorService(request -> Mono.never());
+        NeighborContextExpander expander = expander(service, Duration.ofMillis(100));
+
+        List<Content> hits = hits();
+        List<Content> result = expander.aggregate(query(hits));
+
+        assertEquals(texts(hits), texts(result));
+    }
+
+    private static NeighborContextExpander expander(ChatlogVectorService service, Duration timeout) {
+        return expander(service, timeout, new RetrievalConfig.Context().getMaxHits());
+    }
+
+    private static NeighborContextExpander expander(ChatlogVectorService service, Duration timeout, int maxHits) {
+        RetrievalConfig retrievalConfig = new RetrievalConfig();
+        retrievalConfig.getContext().setWindow(1);
+        retrievalConfig.getContext().setTimeout(timeout);
+        retrievalConfig.getContext().setMaxHits(maxHits);
+        return new NeighborContextExpander(new PassThroughAggregator(), service, retrievalConfig);
+    }
+
+    /**
+     * 按重排顺序排列的命中
+     */
+    private static List<Content> hits() {
+        return List.of(
+                hit("group_a", "2024-05-01", 5, 0.9),
+                hit("group_b", "2024-05-01", 3, 0.8),
+                hit("group_a", "2024-05-01", 6, 0.7),
+                hit("group_a", "2024-05-02", 2, 0.6));
+    }
+
+    private static Content hit(String talker, String day, long seq, double score) {
+        TextSegment segment = TextSegment.from("hit " + talker + " " + day + " #" + seq, metadata(talker, day, seq));
+        return Content.from(segment, Map.of(ContentMetadata.SCORE, score));
+    }
+
+    /**
+     * 当天seq为1~10的消息
+     */
+    private static List<TextSegment> day(FetchRequest request) {
+        return LongStream.rangeClosed(1, 10)
+                .mapToObj(seq -> TextSegment.from(request.talker() + " " + request.day() + " #" + seq,
+                        metadata(request.talker(), request.day(), seq)))
+                .toList();
+    }
+
+    private static Metadata metadata(String talker, String day, long seq) {
+        return new Metadata().put("talker", talker).put("time", day + " 10:00:00").put("seq", seq);
+    }
+
+    private static Map<Query, Collection<List<Content>>> query(List<Content> contents) {
+        return Map.of(Query.from("问题"), List.of(contents));
+    }
+
+    private static List<String> texts(List<Content> contents) {
+        return contents.stream().map(content -> content.textSegment().text()).toList();
+    }
+
+    private record FetchRequest(String talker, String day, List<Long> seqs) {
+    }
+
+    /**
+     * 按请求返回预设结果并记录请求
+     */
+    private static class FakeChatlogVectorService extends ChatlogVectorService {
+        private final List<FetchRequest> requests = Collections.synchronizedList(new ArrayList<>());
+
+        private final Function<FetchRequest, Mono<List<TextSegment>>> responses;
+
+        FakeChatlogVectorService(Function<FetchRequest, Mono<List<TextSegment>>> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public Mono<List<TextSegment>> fetchSegmentsAround(String talker, String day, Collection<Long> seqs,
+                                                           int window, int maxMessages) {
+            FetchRequest request = new FetchRequest(talker, day, List.copyOf(seqs));
+            requests.add(request);
+            return responses.apply(request);
+        }
+    }
+
+    /**
+     * 直接返回第一路候选，不重排
+     */
+    private static class PassThroughAggregator extends RerankContentAggregator {
+
+        PassThroughAggregator() {
+            super((segments, query) -> Response.from(List.of()), new RerankConfig(), new SimpleMeterRegistry());
+        }
+
+        @Override
+        public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+            return queryToContents.values().iterator().next().iterator().next();
+        }
+    }
+}
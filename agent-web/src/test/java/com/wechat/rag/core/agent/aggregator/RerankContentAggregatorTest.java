@@ -0,0 +1,84 @@
+package com.wechat.rag.core.agent.aggregator;
+
+import com.wechat.rag.core.config.RerankConfig;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RerankContentAggregator单元测试
+ */
+class RerankContentAggregatorTest {
+
+    @Test
+    @DisplayName("测试跳过重排时保留全部候选并保持向量顺序")
+    void testSkipKeepsAllCandidates() {
+        RecordingScoringModel scoringModel = new RecordingScoringModel();
+        RerankContentAggregator aggregator = aggregator(scoringModel);
+
+        List<Content> contents = contents(0.90, 0.84, 0.83, 0.82, 0.81);
+        List<Content> result = aggregator.aggregate(Map.of(Query.from("问题"), List.of(contents)));
+
+        assertEquals(contents.size(), result.size());
+        assertEquals(texts(contents), texts(result));
+        assertEquals(0, scoringModel.scored.size());
+    }
+
+    @Test
+    @DisplayName("测试缩小重排时只重排头部并保留尾部")
+    void testShrinkKeepsTail() {
+        RecordingScoringModel scoringModel = new RecordingScoringModel();
+        RerankContentAggregator aggregator = aggregator(scoringModel);
+
+        List<Content> contents = contents(0.92, 0.91, 0.90, 0.89, 0.88, 0.80, 0.79);
+        List<Content> result = aggregator.aggregate(Map.of(Query.from("问题"), List.of(contents)));
+
+        assertEquals(contents.size(), result.size());
+        assertEquals(5, scoringModel.scored.size());
+        // 头部按重排分数（文本越靠后分数越高）倒序，尾部保持向量顺序
+        assertEquals(List.of("m4", "m3", "m2", "m1", "m0", "m5", "m6"), texts(result));
+    }
+
+    private static RerankContentAggregator aggregator(ScoringModel scoringModel) {
+        return new RerankContentAggregator(scoringModel, new RerankConfig(), new SimpleMeterRegistry());
+    }
+
+    private static List<Content> contents(double... scores) {
+        List<Content> contents = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            contents.add(Content.from(TextSegment.from("m" + i), Map.of(ContentMetadata.SCORE, scores[i])));
+        }
+        return contents;
+    }
+
+    private static List<String> texts(List<Content> contents) {
+        return contents.stream().map(content -> content.textSegment().text()).toList();
+    }
+
+    /**
+     * 按文本序号打分并记录送入重排的文档
+     */
+    private static class RecordingScoringModel implements ScoringModel {
+        private final List<TextSegment> scored = new ArrayList<>();
+
+        @Override
+        public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+            scored.addAll(segments);
+            return Response.from(segments.stream()
+                    .map(segment -> 0.5 + Integer.parseInt(segment.text().substring(1)) / 100.0)
+                    .toList());
+        }
+    }
+}
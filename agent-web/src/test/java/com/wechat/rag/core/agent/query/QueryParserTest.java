@@ -0,0 +1,64 @@
+package com.wechat.rag.core.agent.query;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryParser单元测试
+ */
+class QueryParserTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试改写查询去除空白、重复及与搜索查询相同的项")
+    void testParseParaphrasesDeduplicates() throws Exception {
+        JsonNode node = objectMapper.readTree("""
+                {"paraphrases": ["  周五  开会 ", "周五 开会", "", "季度 总结会  时间", "季度 总结会 时间"]}
+                """);
+
+        List<String> paraphrases = QueryParser.parseParaphrases(node, "季度总结会 时间", 5);
+
+        assertEquals(List.of("周五 开会", "季度 总结会 时间"), paraphrases);
+    }
+
+    @Test
+    @DisplayName("测试改写查询与合并空白后的搜索查询相同时丢弃")
+    void testParseParaphrasesDropsSearchQuery() throws Exception {
+        JsonNode node = objectMapper.readTree("""
+                {"paraphrases": ["周五  会议 安排", "周五会议的议程"]}
+                """);
+
+        List<String> paraphrases = QueryParser.parseParaphrases(node, " 周五 会议  安排", 5);
+
+        assertEquals(List.of("周五会议的议程"), paraphrases);
+    }
+
+    @Test
+    @DisplayName("测试改写查询最多保留配置的数量")
+    void testParseParaphrasesCap() throws Exception {
+        JsonNode node = objectMapper.readTree("""
+                {"paraphrases": ["改写1", "改写2", "改写3"]}
+                """);
+
+        assertEquals(List.of("改写1", "改写2"), QueryParser.parseParaphrases(node, "问题", 2));
+        assertEquals(List.of(), QueryParser.parseParaphrases(node, "问题", 0));
+    }
+
+    @Test
+    @DisplayName("测试缺少或格式错误的改写字段返回空列表")
+    void testParseParaphrasesMissingOrMalformed() throws Exception {
+        assertEquals(List.of(), QueryParser.parseParaphrases(objectMapper.readTree("{}"), "问题", 2));
+        assertEquals(List.of(), QueryParser.parseParaphrases(
+                objectMapper.readTree("{\"paraphrases\": null}"), "问题", 2));
+        assertEquals(List.of(), QueryParser.parseParaphrases(
+                objectMapper.readTree("{\"paraphrases\": \"改写1\"}"), "问题", 2));
+        assertEquals(List.of("改写1"), QueryParser.parseParaphrases(
+                objectMapper.readTree("{\"paraphrases\": [1, {\"text\": \"x\"}, null, \"改写1\"]}"), "问题", 2));
+    }
+}
@@ -0,0 +1,48 @@
+package com.wechat.rag.core.agent.retriever;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveRetrievalPolicy单元测试
+ */
+class AdaptiveRetrievalPolicyTest {
+
+    private final AdaptiveRetrievalPolicy policy =
+            new AdaptiveRetrievalPolicy(50, 2, 0.05, 0.2, 0.1, Duration.ofDays(90));
+
+    @Test
+    @DisplayName("测试预算随过滤条件的选择度缩小")
+    void testBudget() {
+        assertEquals(500, policy.budget(null, 500));
+        assertEquals(200, policy.budget(metadataKey("talker").isIn(List.of("a", "b")), 500));
+
+        long day = Duration.ofDays(1).toMillis();
+        Filter lastWeek = metadataKey("seq").isGreaterThanOrEqualTo(0L)
+                .and(metadataKey("seq").isLessThanOrEqualTo(9 * day));
+        assertEquals(50, policy.budget(lastWeek, 500));
+        assertEquals(50, policy.budget(metadataKey("talker").isEqualTo("a").and(lastWeek), 500));
+    }
+
+    @Test
+    @DisplayName("测试尾部分数接近头部时扩展k，出现落差或取完时停止")
+    void testNextK() {
+        List<Double> flat = List.of(0.90, 0.89, 0.88, 0.87);
+        assertEquals(8, policy.nextK(flat, 4, 500));
+        assertEquals(6, policy.nextK(flat, 4, 6));
+        assertEquals(-1, policy.nextK(flat, 4, 4));
+
+        List<Double> steep = List.of(0.95, 0.90, 0.80, 0.75);
+        assertEquals(-1, policy.nextK(steep, 4, 500));
+
+        // 结果不足k个，候选已取完
+        assertEquals(-1, policy.nextK(flat, 8, 500));
+    }
+}
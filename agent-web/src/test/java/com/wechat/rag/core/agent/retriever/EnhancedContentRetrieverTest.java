@@ -0,0 +1,118 @@
+package com.wechat.rag.core.agent.retriever;
+
+import com.wechat.rag.core.agent.query.QueryParser;
+import com.wechat.rag.core.config.EmbeddingConfig;
+import com.wechat.rag.core.config.RetrievalConfig;
+import com.wechat.rag.core.embedding.QueryEmbeddingCache;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EnhancedContentRetriever单元测试
+ */
+class EnhancedContentRetrieverTest {
+    private static final Map<String, Float> QUERY_IDS = Map.of("搜索查询", 1f, "改写成功", 2f, "改写失败", 3f, "改写超时", 4f);
+
+    @Test
+    @DisplayName("测试改写查询检索失败或超时时丢弃其结果，不影响整个查询")
+    void testFailedParaphraseSearchDropped() {
+        EnhancedContentRetriever retriever = retriever();
+        QueryParser.QueryParseResult parseResult = QueryParser.QueryParseResult.builder()
+                .searchQuery("搜索查询")
+                .paraphrases(List.of("改写失败", "改写超时", "改写成功"))
+                .build();
+
+        List<List<EmbeddingMatch<TextSegment>>> rankings = retriever.performVectorSearches(parseResult, 10);
+
+        assertEquals(List.of("搜索查询", "改写成功"),
+                rankings.stream().map(ranking -> ranking.getFirst().embedded().text()).toList());
+    }
+
+    @Test
+    @DisplayName("测试搜索查询检索失败时整个查询失败")
+    void testFailedSearchQueryPropagates() {
+        EnhancedContentRetriever retriever = retriever();
+        QueryParser.QueryParseResult parseResult = QueryParser.QueryParseResult.builder()
+                .searchQuery("改写失败")
+                .paraphrases(List.of("改写成功"))
+                .build();
+
+        assertThrows(RuntimeException.class, () -> retriever.performVectorSearches(parseResult, 10));
+    }
+
+    private static EnhancedContentRetriever retriever() {
+        RetrievalConfig config = new RetrievalConfig();
+        config.getAdaptive().setEnabled(false);
+        config.getMultiQuery().setTimeout(Duration.ofMillis(200));
+        EmbeddingModel embeddingModel = segments -> Response.from(segments.stream()
+                .map(segment -> Embedding.from(new float[]{QUERY_IDS.get(segment.text())}))
+                .toList());
+        QueryEmbeddingCache queryEmbeddingCache = new QueryEmbeddingCache(embeddingModel, new EmbeddingConfig(),
+                new SimpleMeterRegistry());
+        return new EnhancedContentRetriever(queryEmbeddingCache, new ScriptedStore(), null, config,
+                new RetrievalResultCache(config, new SimpleMeterRegistry()));
+    }
+
+    /**
+     * 按查询向量决定检索行为：“改写失败”抛出异常，“改写超时”长时间阻塞，其余返回以查询文本为内容的结果
+     */
+    private static class ScriptedStore implements EmbeddingStore<TextSegment> {
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            float id = request.queryEmbedding().vector()[0];
+            String query = QUERY_IDS.entrySet().stream()
+                    .filter(entry -> entry.getValue() == id)
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElseThrow();
+            if (query.equals("改写失败")) {
+                throw new RuntimeException("search failed");
+            }
+            if (query.equals("改写超时")) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new EmbeddingSearchResult<>(List.of(
+                    new EmbeddingMatch<>(0.9, query, request.queryEmbedding(), TextSegment.from(query))));
+        }
+
+        @Override
+        public String add(Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment textSegment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.wechat.rag.core.agent.retriever;
+
+import com.wechat.rag.core.agent.aggregator.RerankContentAggregator;
+import com.wechat.rag.core.config.RerankConfig;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RankFusion单元测试
+ */
+class RankFusionTest {
+
+    @Test
+    @DisplayName("测试两路检索都命中的文档排在前面")
+    void testFuse() {
+        List<EmbeddingMatch<TextSegment>> vector = List.of(match("a", 0.92), match("b", 0.90), match("c", 0.85));
+        List<EmbeddingMatch<TextSegment>> lexical = List.of(match("d", 12.3), match("c", 8.1), match("a", 2.0));
+
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.fuse(List.of(vector), lexical, 60, 10);
+
+        assertEquals(List.of("a", "c", "d", "b"), fused.stream().map(EmbeddingMatch::embeddingId).toList());
+        assertEquals(1.0 / 61 + 1.0 / 63, fused.get(0).embedded().metadata().getDouble(RankFusion.SCORE_KEY), 1e-9);
+        assertEquals("a", fused.get(0).embedded().text());
+    }
+
+    @Test
+    @DisplayName("测试融合结果保留最高的向量相似度，只有全文命中的结果没有相似度")
+    void testFuseKeepsVectorSimilarity() {
+        List<EmbeddingMatch<TextSegment>> original = List.of(match("a", 0.80), match("b", 0.75));
+        List<EmbeddingMatch<TextSegment>> paraphrase = List.of(match("b", 0.91), match("a", 0.78));
+        List<EmbeddingMatch<TextSegment>> lexical = List.of(match("c", 15.2), match("a", 9.4));
+
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.fuse(List.of(original, paraphrase), lexical, 60, 10);
+
+        assertEquals(0.80, score(fused, "a"), 1e-9);
+        assertEquals(0.91, score(fused, "b"), 1e-9);
+        assertTrue(Double.isNaN(score(fused, "c")));
+        // 原始文本片段的元数据不被修改
+        assertNull(original.get(0).embedded().metadata().getDouble(RankFusion.SCORE_KEY));
+    }
+
+    @Test
+    @DisplayName("测试融合结果数受maxResults限制")
+    void testMaxResults() {
+        List<EmbeddingMatch<TextSegment>> vector = List.of(match("a", 0.9), match("b", 0.8), match("c", 0.7));
+
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.fuse(List.of(vector), List.of(), 60, 2);
+
+        assertEquals(List.of("a", "b"), fused.stream().map(EmbeddingMatch::embeddingId).toList());
+    }
+
+    @Test
+    @DisplayName("测试混合检索加多查询融合后，自适应重排按向量相似度识别陡降")
+    void testAdaptiveRerankAfterFusion() {
+        // 默认链路：搜索查询 + 2个改写查询的向量检索，加一路全文检索
+        List<EmbeddingMatch<TextSegment>> original = new ArrayList<>(List.of(match("w1", 0.93), match("w2", 0.91)));
+        List<EmbeddingMatch<TextSegment>> paraphrase1 = new ArrayList<>(List.of(match("w2", 0.92), match("w1", 0.90)));
+        List<EmbeddingMatch<TextSegment>> paraphrase2 = new ArrayList<>(List.of(match("w1", 0.89), match("w2", 0.88)));
+        for (int i = 0; i < 10; i++) {
+            original.add(match("n" + i, 0.70 - i * 0.001));
+            paraphrase1.add(match("n" + (9 - i), 0.69 - i * 0.001));
+            paraphrase2.add(match("n" + i, 0.68 - i * 0.001));
+        }
+        List<EmbeddingMatch<TextSegment>> lexical = List.of(match("n3", 11.0), match("w1", 9.0));
+
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.fuse(
+                List.of(original, paraphrase1, paraphrase2), lexical, 60, 200);
+        List<Content> contents = EnhancedContentRetriever.convertToContent(fused);
+
+        RecordingScoringModel scoringModel = new RecordingScoringModel();
+        RerankContentAggregator aggregator = new RerankContentAggregator(
+                scoringModel, new RerankConfig(), new SimpleMeterRegistry());
+        List<Content> result = aggregator.aggregate(Map.of(Query.from("问题"), List.of(contents)));
+
+        // 相似度在w2之后陡降（0.91 -> 0.70），头部只有2条，不超过skipBelow，跳过重排
+        assertEquals(0, scoringModel.scored.size());
+        assertEquals(contents.size(), result.size());
+        assertEquals(List.of("w1", "w2"), result.subList(0, 2).stream().map(content -> content.textSegment().text()).toList());
+        assertEquals(0.93, (double) result.get(0).metadata().get(ContentMetadata.SCORE), 1e-9);
+    }
+
+    private static double score(List<EmbeddingMatch<TextSegment>> matches, String id) {
+        return matches.stream().filter(match -> match.embeddingId().equals(id)).findFirst().orElseThrow().score();
+    }
+
+    private static EmbeddingMatch<TextSegment> match(String id, double score) {
+        return new EmbeddingMatch<>(score, id, null, TextSegment.from(id, new Metadata()));
+    }
+
+    /**
+     * 记录送入重排的文档
+     */
+    private static class RecordingScoringModel implements ScoringModel {
+        private final List<TextSegment> scored = new ArrayList<>();
+
+        @Override
+        public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+            scored.addAll(segments);
+            return Response.from(segments.stream().map(segment -> 0.5).toList());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.wechat.rag.core.agent.retriever;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ResultDiversifier单元测试
+ */
+class ResultDiversifierTest {
+
+    @Test
+    @DisplayName("测试转发公告和接龙消息只保留排名最高的一条")
+    void testDeduplicate() {
+        ResultDiversifier diversifier = new ResultDiversifier(3, 0.7, 100);
+        List<EmbeddingMatch<TextSegment>> matches = List.of(
+                match("1", 0.95, "【通知】本周五下午三点在三楼会议室开季度总结会，请准时参加", 1, 0, 0),
+                match("2", 0.94, "【通知】本周五下午三点在三楼会议室开季度总结会，请准时参加！", 1, 0, 0),
+                match("3", 0.93, "+1", 1, 0.1f, 0),
+                match("4", 0.92, "+1", 1, 0.1f, 0),
+                match("5", 0.91, "周五会议我可能晚到十分钟", 1, 0.2f, 0));
+
+        List<EmbeddingMatch<TextSegment>> result = diversifier.diversify(matches);
+
+        assertEquals(List.of("1", "3", "5"), result.stream().map(EmbeddingMatch::embeddingId).toList());
+    }
+
+    @Test
+    @DisplayName("测试不同会话或不同日期的相同短句不互相去重")
+    void testDeduplicateWithinTalkerAndDay() {
+        ResultDiversifier diversifier = new ResultDiversifier(3, 0.7, 100);
+        List<EmbeddingMatch<TextSegment>> matches = List.of(
+                match("1", 0.95, "收到", "group_a", "2024-05-01 10:00:00"),
+                match("2", 0.94, "收到", "group_a", "2024-05-01 18:30:00"),
+                match("3", 0.93, "收到", "group_b", "2024-05-01 10:00:00"),
+                match("4", 0.92, "收到", "group_a", "2024-05-02 09:00:00"));
+
+        List<EmbeddingMatch<TextSegment>> result = diversifier.diversify(matches);
+
+        assertEquals(List.of("1", "3", "4"), result.stream().map(EmbeddingMatch::embeddingId).toList());
+    }
+
+    @Test
+    @DisplayName("测试MMR优先选取与已选结果不相似的候选")
+    void testMmr() {
+        ResultDiversifier diversifier = new ResultDiversifier(3, 0.5, 2);
+        List<EmbeddingMatch<TextSegment>> matches = List.of(
+                match("a", 0.95, "周五开季度总结会", 1, 0, 0),
+                match("b", 0.94, "季度总结会改到周五下午", 1, 0.01f, 0),
+                match("c", 0.90, "总结会需要准备哪些材料", 0, 1, 0));
+
+        List<EmbeddingMatch<TextSegment>> result = diversifier.diversify(matches);
+
+        assertEquals(List.of("a", "c"), result.stream().map(EmbeddingMatch::embeddingId).toList());
+    }
+
+    private static EmbeddingMatch<TextSegment> match(String id, double score, String text, float... vector) {
+        return new EmbeddingMatch<>(score, id, Embedding.from(vector), TextSegment.from(text));
+    }
+
+    private static EmbeddingMatch<TextSegment> match(String id, double score, String text, String talker, String time) {
+        Metadata metadata = new Metadata().put("talker", talker).put("time", time);
+        return new EmbeddingMatch<>(score, id, Embedding.from(new float[]{1, 0}), TextSegment.from(text, metadata));
+    }
+}
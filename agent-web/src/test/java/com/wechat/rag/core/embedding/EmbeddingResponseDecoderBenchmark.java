@@ -0,0 +1,161 @@
+package com.wechat.rag.core.embedding;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding响应解码基准测试
+ * 对比原DTO路径（聚合响应体后绑定到List&lt;Float&gt;，再由Embedding.from(List)拷贝）与EmbeddingResponseDecoder
+ * 流式解码的耗时和分配量，分配量看GC profiler输出的gc.alloc.rate.norm（字节/次）
+ * <p>
+ * 不在单元测试中执行，手动运行main方法：
+ * mvn -pl agent-web test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wechat.rag.core.embedding.EmbeddingResponseDecoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingResponseDecoderBenchmark {
+
+    /**
+     * WebClient默认每个DataBuffer的大小
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 每个响应中的向量数（对应maxBatchSize）
+     */
+    @Param({"1", "32"})
+    private int batchSize;
+
+    /**
+     * 向量维度（bge-m3为1024维）
+     */
+    @Param({"1024"})
+    private int dimension;
+
+    private List<ByteBuffer> chunks;
+
+    @Setup
+    public void setup() {
+        byte[] body = response(batchSize, dimension).getBytes(StandardCharsets.UTF_8);
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            chunks.add(ByteBuffer.wrap(body, offset, Math.min(CHUNK_SIZE, body.length - offset)).slice());
+        }
+    }
+
+    /**
+     * 原路径：bodyToMono先把数据块聚合为完整响应体，再由Jackson绑定到DTO
+     */
+    @Benchmark
+    public List<Embedding> dto() throws IOException {
+        int length = 0;
+        for (ByteBuffer chunk : chunks) {
+            length += chunk.remaining();
+        }
+        byte[] body = new byte[length];
+        int offset = 0;
+        for (ByteBuffer chunk : chunks) {
+            int remaining = chunk.remaining();
+            chunk.duplicate().get(body, offset, remaining);
+            offset += remaining;
+        }
+        EmbedResponse response = objectMapper.readValue(body, EmbedResponse.class);
+        return response.getData().stream()
+                .map(data -> Embedding.from(data.getEmbedding()))
+                .toList();
+    }
+
+    /**
+     * 新路径：逐块解析数据块的ByteBuffer，向量直接写入float[]
+     */
+    @Benchmark
+    public List<Embedding> decoder() {
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        for (ByteBuffer chunk : chunks) {
+            decoder.feed(chunk.duplicate());
+        }
+        return decoder.finish();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmbeddingResponseDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    private static String response(int batchSize, int dimension) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"model\":\"BAAI/bge-m3\",\"object\":\"list\",\"data\":[");
+        for (int i = 0; i < batchSize; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"object\":\"embedding\",\"index\":").append(i).append(",\"embedding\":[");
+            for (int j = 0; j < dimension; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append(random.nextFloat() * 2 - 1);
+            }
+            json.append("]}");
+        }
+        json.append("],\"usage\":{\"prompt_tokens\":128,\"completion_tokens\":0,\"total_tokens\":128}}");
+        return json.toString();
+    }
+
+    /**
+     * 原SiliconflowEmbeddingModel的响应DTO
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class EmbedResponse {
+        private String model;
+
+        private List<EmbeddingData> data;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class EmbeddingData {
+        private List<Float> embedding;
+
+        private Integer index;
+
+        private String object;
+    }
+}
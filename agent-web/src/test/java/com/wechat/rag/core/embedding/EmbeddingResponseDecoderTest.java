@@ -0,0 +1,112 @@
+package com.wechat.rag.core.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingResponseDecoder单元测试
+ */
+class EmbeddingResponseDecoderTest {
+
+    private static final String RESPONSE = """
+            {
+              "model": "BAAI/bge-m3",
+              "data": [
+                {"object": "embedding", "embedding": [0.5, -0.25, 1e-3], "index": 1},
+                {"object": "embedding", "index": 0, "embedding": [1, 2.5, -3]}
+              ],
+              "usage": {"prompt_tokens": 12, "completion_tokens": 0, "total_tokens": 12}
+            }
+            """;
+
+    @Test
+    @DisplayName("测试整包解码并按index排序")
+    void testDecodeWholeResponse() {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        decoder.feed(bytes, 0, bytes.length);
+
+        List<Embedding> embeddings = decoder.finish();
+
+        assertEquals(2, embeddings.size());
+        assertArrayEquals(new float[]{1f, 2.5f, -3f}, embeddings.get(0).vector());
+        assertArrayEquals(new float[]{0.5f, -0.25f, 0.001f}, embeddings.get(1).vector());
+    }
+
+    @Test
+    @DisplayName("测试跨数据块边界的流式解码")
+    void testDecodeChunkedResponse() {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        // 以很小的块输入，确保数字和字段名会被切断
+        for (int offset = 0; offset < bytes.length; offset += 3) {
+            decoder.feed(bytes, offset, Math.min(3, bytes.length - offset));
+        }
+
+        List<Embedding> embeddings = decoder.finish();
+
+        assertEquals(2, embeddings.size());
+        assertArrayEquals(new float[]{1f, 2.5f, -3f}, embeddings.get(0).vector());
+        assertArrayEquals(new float[]{0.5f, -0.25f, 0.001f}, embeddings.get(1).vector());
+    }
+
+    @Test
+    @DisplayName("测试复用同一个ByteBuffer分块输入")
+    void testDecodeReusedByteBuffer() {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        // feed返回后解码器不再持有buffer中的数据，覆盖写入下一块不影响结果
+        ByteBuffer scratch = ByteBuffer.allocateDirect(5);
+        for (int offset = 0; offset < bytes.length; offset += scratch.capacity()) {
+            scratch.clear();
+            scratch.put(bytes, offset, Math.min(scratch.capacity(), bytes.length - offset));
+            scratch.flip();
+            decoder.feed(scratch);
+        }
+
+        List<Embedding> embeddings = decoder.finish();
+
+        assertEquals(2, embeddings.size());
+        assertArrayEquals(new float[]{1f, 2.5f, -3f}, embeddings.get(0).vector());
+        assertArrayEquals(new float[]{0.5f, -0.25f, 0.001f}, embeddings.get(1).vector());
+    }
+
+    @Test
+    @DisplayName("测试超过初始容量的向量")
+    void testDecodeLargeVector() {
+        int dimension = 3000;
+        StringBuilder json = new StringBuilder("{\"data\":[{\"index\":0,\"embedding\":[");
+        for (int i = 0; i < dimension; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(i / 1000.0);
+        }
+        json.append("]}]}");
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        decoder.feed(bytes, 0, bytes.length);
+
+        float[] vector = decoder.finish().getFirst().vector();
+
+        assertEquals(dimension, vector.length);
+        assertEquals(2.999f, vector[dimension - 1], 1e-6);
+    }
+
+    @Test
+    @DisplayName("测试不完整响应")
+    void testIncompleteResponse() {
+        byte[] bytes = "{\"data\":[{\"index\":0,\"embedding\":[0.1,".getBytes(StandardCharsets.UTF_8);
+        EmbeddingResponseDecoder decoder = new EmbeddingResponseDecoder();
+        decoder.feed(bytes, 0, bytes.length);
+
+        assertThrows(RuntimeException.class, decoder::finish);
+    }
+}
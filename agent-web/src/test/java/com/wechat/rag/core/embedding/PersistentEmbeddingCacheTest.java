@@ -0,0 +1,92 @@
+package com.wechat.rag.core.embedding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PersistentEmbeddingCache单元测试
+ */
+class PersistentEmbeddingCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("测试按模型和文本读写向量")
+    void testGetAndPut() {
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 4096)) {
+            cache.put("bge-m3", "你好", new float[]{0.1f, 0.2f, 0.3f});
+
+            assertArrayEquals(new float[]{0.1f, 0.2f, 0.3f}, cache.get("bge-m3", "你好"));
+            assertNull(cache.get("bge-large", "你好"));
+            assertNull(cache.get("bge-m3", "你好呀"));
+        }
+    }
+
+    @Test
+    @DisplayName("测试重新打开后恢复索引并跨段写入")
+    void testReopenAcrossSegments() {
+        // 每条记录 40 + 16*4 = 104 字节，256字节的段只能放两条
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 256)) {
+            for (int i = 0; i < 5; i++) {
+                cache.put("bge-m3", "消息" + i, vector(i));
+            }
+        }
+
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 256)) {
+            assertEquals(5, cache.size());
+            for (int i = 0; i < 5; i++) {
+                assertArrayEquals(vector(i), cache.get("bge-m3", "消息" + i));
+            }
+
+            cache.put("bge-m3", "消息5", vector(5));
+            assertArrayEquals(vector(5), cache.get("bge-m3", "消息5"));
+            assertArrayEquals(vector(4), cache.get("bge-m3", "消息4"));
+        }
+    }
+
+    @Test
+    @DisplayName("测试按文件名加载编号不连续的分段文件")
+    void testReopenWithMissingSegment() throws Exception {
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 256)) {
+            for (int i = 0; i < 5; i++) {
+                cache.put("bge-m3", "消息" + i, vector(i));
+            }
+        }
+        // 删除中间的分段（消息2、消息3）
+        Files.delete(directory.resolve("segment-000001.dat"));
+
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 256)) {
+            assertEquals(3, cache.size());
+            assertArrayEquals(vector(0), cache.get("bge-m3", "消息0"));
+            assertArrayEquals(vector(4), cache.get("bge-m3", "消息4"));
+            assertNull(cache.get("bge-m3", "消息2"));
+
+            // 最后一段写满后新建编号更大的分段，不复用被删除的编号
+            cache.put("bge-m3", "消息5", vector(5));
+            cache.put("bge-m3", "消息6", vector(6));
+            assertFalse(Files.exists(directory.resolve("segment-000001.dat")));
+            assertTrue(Files.exists(directory.resolve("segment-000003.dat")));
+        }
+
+        try (PersistentEmbeddingCache cache = new PersistentEmbeddingCache(directory, 256)) {
+            assertEquals(5, cache.size());
+            assertArrayEquals(vector(4), cache.get("bge-m3", "消息4"));
+            assertArrayEquals(vector(6), cache.get("bge-m3", "消息6"));
+        }
+    }
+
+    private float[] vector(int seed) {
+        float[] vector = new float[16];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = seed + i / 100f;
+        }
+        return vector;
+    }
+}
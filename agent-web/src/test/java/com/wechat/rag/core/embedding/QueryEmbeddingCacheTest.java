@@ -0,0 +1,162 @@
+package com.wechat.rag.core.embedding;
+
+import com.wechat.rag.core.config.EmbeddingConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryEmbeddingCache单元测试
+ */
+class QueryEmbeddingCacheTest {
+
+    @Test
+    @DisplayName("测试仅空白不同的查询复用同一个向量")
+    void testEmbedNormalizesWhitespace() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        QueryEmbeddingCache cache = cache(recording(calls));
+
+        Embedding first = cache.embed("会议 时间").block(Duration.ofSeconds(5));
+        Embedding second = cache.embed("  会议   时间 ").block(Duration.ofSeconds(5));
+
+        assertEquals(vector("会议 时间"), first.vectorAsList());
+        assertEquals(first.vectorAsList(), second.vectorAsList());
+        assertEquals(List.of(List.of("会议 时间")), calls);
+    }
+
+    @Test
+    @DisplayName("测试同一查询的并发请求只向量化一次")
+    void testSingleFlight() throws Exception {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        EmbeddingModel recording = recording(calls);
+        QueryEmbeddingCache cache = cache(segments -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return recording.embedAll(segments);
+        });
+
+        CompletableFuture<Embedding> first = cache.embed("报销流程").toFuture();
+        CompletableFuture<Embedding> second = cache.embed("报销流程").toFuture();
+        release.countDown();
+
+        assertEquals(vector("报销流程"), first.get(5, TimeUnit.SECONDS).vectorAsList());
+        assertEquals(vector("报销流程"), second.get(5, TimeUnit.SECONDS).vectorAsList());
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    @DisplayName("测试向量化失败不缓存，下次请求重新向量化")
+    void testFailureNotCached() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        EmbeddingModel recording = recording(calls);
+        QueryEmbeddingCache cache = cache(segments -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException("embedding unavailable");
+            }
+            return recording.embedAll(segments);
+        });
+
+        assertThrows(RuntimeException.class, () -> cache.embed("年终奖").block(Duration.ofSeconds(5)));
+        assertEquals(vector("年终奖"), cache.embed("年终奖").block(Duration.ofSeconds(5)).vectorAsList());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    @DisplayName("测试清空缓存后重新向量化")
+    void testInvalidateAll() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        QueryEmbeddingCache cache = cache(recording(calls));
+
+        cache.embed("周五 团建").block(Duration.ofSeconds(5));
+        cache.invalidateAll();
+        cache.embed("周五 团建").block(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    @DisplayName("测试未启用时每次都调用模型")
+    void testDisabled() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        EmbeddingConfig config = new EmbeddingConfig();
+        config.getQueryCache().setEnabled(false);
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(recording(calls), config, new SimpleMeterRegistry());
+
+        cache.embed("会议 时间").block(Duration.ofSeconds(5));
+        cache.embed("会议 时间").block(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    @DisplayName("测试部分命中缓存时只向量化未命中的查询并保持输入顺序")
+    void testEmbedAllPreservesOrderWithPartialHits() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        QueryEmbeddingCache cache = cache(recording(calls));
+
+        cache.embed("会议 时间").block(Duration.ofSeconds(5));
+        cache.embed("报销流程").block(Duration.ofSeconds(5));
+        List<Embedding> embeddings = cache.embedAll(List.of("周五 团建", "报销流程", " 会议  时间 ", "年终奖"))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(vector("周五 团建"), vector("报销流程"), vector("会议 时间"), vector("年终奖")),
+                embeddings.stream().map(Embedding::vectorAsList).toList());
+        assertEquals(3, calls.size());
+        // 未命中的两条合并为一次调用
+        assertEquals(Set.of("周五 团建", "年终奖"), Set.copyOf(calls.get(2)));
+    }
+
+    @Test
+    @DisplayName("测试全部命中缓存时不调用模型")
+    void testEmbedAllAllHits() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        QueryEmbeddingCache cache = cache(recording(calls));
+
+        cache.embedAll(List.of("a", "b")).block(Duration.ofSeconds(5));
+        List<Embedding> embeddings = cache.embedAll(List.of("b", "a")).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(vector("b"), vector("a")), embeddings.stream().map(Embedding::vectorAsList).toList());
+        assertEquals(1, calls.size());
+    }
+
+    private static QueryEmbeddingCache cache(EmbeddingModel embeddingModel) {
+        return new QueryEmbeddingCache(embeddingModel, new EmbeddingConfig(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * 记录每次调用的文本，向量由文本决定
+     */
+    private static EmbeddingModel recording(List<List<String>> calls) {
+        return segments -> {
+            calls.add(segments.stream().map(TextSegment::text).toList());
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(vector(segment.text())))
+                    .toList());
+        };
+    }
+
+    private static List<Float> vector(String text) {
+        return List.of((float) text.hashCode(), (float) text.length());
+    }
+}
@@ -0,0 +1,97 @@
+package com.wechat.rag.core.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RoutingEmbeddingModel单元测试
+ */
+class RoutingEmbeddingModelTest {
+
+    @Test
+    @DisplayName("测试端点失败后切换到健康端点并熔断")
+    void testFailover() {
+        AtomicInteger failingCalls = new AtomicInteger();
+        AtomicInteger healthyCalls = new AtomicInteger();
+        EmbeddingModel failing = segments -> {
+            failingCalls.incrementAndGet();
+            throw status(HttpStatus.TOO_MANY_REQUESTS);
+        };
+        EmbeddingModel healthy = segments -> {
+            healthyCalls.incrementAndGet();
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().length()}))
+                    .toList());
+        };
+        RoutingEmbeddingModel model = new RoutingEmbeddingModel(List.of(
+                new RoutingEmbeddingModel.Endpoint("failing", failing, 1.0),
+                new RoutingEmbeddingModel.Endpoint("healthy", healthy, 1.0)),
+                2, Duration.ofSeconds(5), 1, Duration.ofMinutes(1));
+
+        List<TextSegment> segments = IntStream.range(0, 20)
+                .mapToObj(i -> TextSegment.from("x".repeat(i + 1)))
+                .toList();
+        List<Embedding> embeddings = model.embedAllAsync(segments).block();
+
+        assertNotNull(embeddings);
+        assertEquals(20, embeddings.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + 1, embeddings.get(i).vector()[0]);
+        }
+        assertEquals(10, healthyCalls.get());
+        // 失败一次即熔断，之后不再路由到该端点
+        assertTrue(failingCalls.get() <= 2, "failing端点调用次数: " + failingCalls.get());
+    }
+
+    @Test
+    @DisplayName("测试所有端点都失败时返回错误")
+    void testAllEndpointsFail() {
+        EmbeddingModel failing = segments -> {
+            throw status(HttpStatus.SERVICE_UNAVAILABLE);
+        };
+        RoutingEmbeddingModel model = new RoutingEmbeddingModel(List.of(
+                new RoutingEmbeddingModel.Endpoint("a", failing, 1.0),
+                new RoutingEmbeddingModel.Endpoint("b", failing, 1.0)),
+                32, Duration.ofSeconds(5), 3, Duration.ofMinutes(1));
+
+        assertThrows(RuntimeException.class, () -> model.embedAll(List.of(TextSegment.from("你好"))));
+    }
+
+    @Test
+    @DisplayName("测试400错误不切换端点也不熔断")
+    void testClientErrorPropagates() {
+        AtomicInteger calls = new AtomicInteger();
+        EmbeddingModel badRequest = segments -> {
+            calls.incrementAndGet();
+            throw status(HttpStatus.BAD_REQUEST);
+        };
+        RoutingEmbeddingModel.Endpoint a = new RoutingEmbeddingModel.Endpoint("a", badRequest, 1.0);
+        RoutingEmbeddingModel.Endpoint b = new RoutingEmbeddingModel.Endpoint("b", badRequest, 1.0);
+        RoutingEmbeddingModel model = new RoutingEmbeddingModel(List.of(a, b),
+                32, Duration.ofSeconds(5), 1, Duration.ofMinutes(1));
+
+        WebClientResponseException error = assertThrows(WebClientResponseException.class,
+                () -> model.embedAll(List.of(TextSegment.from("你好"))));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), error.getStatusCode().value());
+        assertEquals(1, calls.get());
+        assertFalse(a.isOpen());
+        assertFalse(b.isOpen());
+    }
+
+    private static WebClientResponseException status(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+    }
+}
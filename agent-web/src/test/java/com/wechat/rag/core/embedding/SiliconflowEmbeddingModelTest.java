@@ -0,0 +1,94 @@
+package com.wechat.rag.core.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SiliconflowEmbeddingModel单元测试
+ */
+class SiliconflowEmbeddingModelTest {
+
+    private static final String RESPONSE = """
+            {
+              "model": "BAAI/bge-m3",
+              "data": [
+                {"object": "embedding", "index": 1, "embedding": [0.5, -0.25]},
+                {"object": "embedding", "index": 0, "embedding": [1, 2.5]}
+              ]
+            }
+            """;
+
+    private static final List<TextSegment> SEGMENTS = List.of(TextSegment.from("会议时间"), TextSegment.from("报销"));
+
+    @Test
+    @DisplayName("测试阻塞接口与异步接口返回相同的向量")
+    void testBlockingMatchesAsync() {
+        AtomicInteger requests = new AtomicInteger();
+        SiliconflowEmbeddingModel model = new SiliconflowEmbeddingModel("BAAI/bge-m3",
+                webClient(HttpStatus.OK, RESPONSE, requests));
+
+        List<Embedding> blocking = model.embedAll(SEGMENTS).content();
+        List<Embedding> async = model.embedAllAsync(SEGMENTS).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(List.of(1f, 2.5f), List.of(0.5f, -0.25f)), vectors(blocking));
+        assertEquals(vectors(blocking), vectors(async));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("测试空输入返回空列表且不发送请求")
+    void testEmptyInput() {
+        AtomicInteger requests = new AtomicInteger();
+        SiliconflowEmbeddingModel model = new SiliconflowEmbeddingModel("BAAI/bge-m3",
+                webClient(HttpStatus.OK, RESPONSE, requests));
+
+        assertEquals(List.of(), model.embedAll(List.of()).content());
+        assertEquals(List.of(), model.embedAllAsync(List.of()).block(Duration.ofSeconds(5)));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    @DisplayName("测试接口错误在阻塞和异步接口上抛出相同的异常")
+    void testErrorPath() {
+        SiliconflowEmbeddingModel model = new SiliconflowEmbeddingModel("BAAI/bge-m3",
+                webClient(HttpStatus.SERVICE_UNAVAILABLE, "{}", new AtomicInteger()));
+
+        WebClientResponseException blocking = assertThrows(WebClientResponseException.class,
+                () -> model.embedAll(SEGMENTS));
+        WebClientResponseException async = assertThrows(WebClientResponseException.class,
+                () -> model.embedAllAsync(SEGMENTS).block(Duration.ofSeconds(5)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), blocking.getStatusCode().value());
+        assertEquals(blocking.getStatusCode(), async.getStatusCode());
+    }
+
+    private static WebClient webClient(HttpStatus status, String body, AtomicInteger requests) {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.incrementAndGet();
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+    }
+
+    private static List<List<Float>> vectors(List<Embedding> embeddings) {
+        return embeddings.stream().map(Embedding::vectorAsList).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package com.wechat.rag.core.rerank;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CachingScoringModel单元测试
+ */
+class CachingScoringModelTest {
+
+    @Test
+    @DisplayName("测试仅未命中的文档交给底层模型打分")
+    void testOnlyMissesScored() {
+        List<String> scored = new ArrayList<>();
+        ScoringModel delegate = new ScoringModel() {
+            @Override
+            public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+                segments.forEach(segment -> scored.add(segment.text()));
+                return Response.from(segments.stream().map(segment -> (double) segment.text().length()).toList());
+            }
+        };
+        CachingScoringModel model = new CachingScoringModel(delegate, Caffeine.newBuilder().build());
+
+        List<Double> first = model.scoreAll(List.of(message("a", 1), message("bb", 2)), "你好").content();
+        assertEquals(List.of(1.0, 2.0), first);
+        assertEquals(List.of("a", "bb"), scored);
+
+        // 相同查询下已打分的文档直接命中缓存
+        scored.clear();
+        List<Double> second = model.scoreAll(List.of(message("bb", 2), message("ccc", 3), message("a", 1)),
+                "你好").content();
+        assertEquals(List.of(2.0, 3.0, 1.0), second);
+        assertEquals(List.of("ccc"), scored);
+
+        // 不同查询不会复用分数
+        scored.clear();
+        model.scoreAll(List.of(message("a", 1)), "再见");
+        assertEquals(List.of("a"), scored);
+    }
+
+    @Test
+    @DisplayName("测试缓存键与交给底层模型的查询和文本一致")
+    void testKeyMatchesDelegateInput() {
+        List<String> scored = new ArrayList<>();
+        ScoringModel delegate = new ScoringModel() {
+            @Override
+            public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+                segments.forEach(segment -> scored.add(query + "|" + segment.text()));
+                return Response.from(segments.stream().map(segment -> (double) segment.text().length()).toList());
+            }
+        };
+        CachingScoringModel model = new CachingScoringModel(delegate, Caffeine.newBuilder().build());
+        model.scoreAll(List.of(message("a", 1)), "你好");
+
+        // 查询仅空白不同时底层模型收到的查询不同，不复用分数
+        scored.clear();
+        model.scoreAll(List.of(message("a", 1)), " 你好");
+        assertEquals(List.of(" 你好|a"), scored);
+
+        // 同一条消息（talker:seq相同）文本被修改后重新打分
+        scored.clear();
+        List<Double> edited = model.scoreAll(List.of(message("aaa", 1)), "你好").content();
+        assertEquals(List.of(3.0), edited);
+        assertEquals(List.of("你好|aaa"), scored);
+    }
+
+    private static TextSegment message(String text, long seq) {
+        return TextSegment.from(text, Metadata.from("talker", "group@chatroom").put("seq", seq));
+    }
+}
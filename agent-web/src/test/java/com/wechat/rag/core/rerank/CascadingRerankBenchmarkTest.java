@@ -0,0 +1,142 @@
+package com.wechat.rag.core.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 级联重排基准
+ * 模拟交叉编码器按真实相关度打分，比较级联预排序与全量重排的recall@10以及送入重排的文档数
+ * 候选按带噪声的向量分数排序，其中一部分相关文档与查询没有字面重合（纯语义匹配）
+ */
+@Slf4j
+class CascadingRerankBenchmarkTest {
+    private static final int QUERIES = 50;
+    private static final int CANDIDATES = 200;
+    private static final int CASCADE_TOP_K = 50;
+    private static final int TOP_K = 10;
+    private static final int VOCABULARY = 3000;
+    private static final int WORDS_PER_DOCUMENT = 15;
+
+    /**
+     * 模拟远程重排每个文档的耗时（毫秒）
+     */
+    private static final double RERANK_MILLIS_PER_DOCUMENT = 2.0;
+
+    @Test
+    @DisplayName("BM25级联预排序的召回率与重排文档数")
+    void testCascadeRecall() {
+        Random random = new Random(42);
+        List<String> vocabulary = IntStream.range(0, VOCABULARY)
+                .mapToObj(i -> randomWord(random))
+                .toList();
+
+        double recallSum = 0;
+        long prefilterNanos = 0;
+        AtomicLong fullDocuments = new AtomicLong();
+        AtomicLong cascadeDocuments = new AtomicLong();
+        for (int q = 0; q < QUERIES; q++) {
+            List<String> queryWords = List.of(vocabulary.get(random.nextInt(VOCABULARY)),
+                    vocabulary.get(random.nextInt(VOCABULARY)),
+                    vocabulary.get(random.nextInt(VOCABULARY)));
+            String query = String.join("", queryWords) + "是什么时候说的";
+
+            Map<String, Double> relevance = new HashMap<>();
+            List<double[]> vectorScores = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            for (int d = 0; d < CANDIDATES; d++) {
+                // 相关度0~3：大部分候选不相关
+                int grade = random.nextDouble() < 0.8 ? 0 : 1 + random.nextInt(3);
+                boolean semanticOnly = grade > 0 && random.nextDouble() < 0.15;
+                StringBuilder text = new StringBuilder();
+                for (int w = 0; w < WORDS_PER_DOCUMENT; w++) {
+                    text.append(vocabulary.get(random.nextInt(VOCABULARY)));
+                }
+                if (!semanticOnly) {
+                    for (int g = 0; g < grade; g++) {
+                        text.insert(random.nextInt(text.length() + 1), queryWords.get(g));
+                    }
+                }
+                String documentText = text.append('#').append(d).toString();
+                texts.add(documentText);
+                relevance.put(documentText, grade + random.nextDouble() * 0.5);
+                vectorScores.add(new double[]{d, grade + random.nextGaussian()});
+            }
+            // 候选按向量分数降序输入
+            List<TextSegment> candidates = vectorScores.stream()
+                    .sorted(Comparator.comparingDouble((double[] score) -> score[1]).reversed())
+                    .map(score -> TextSegment.from(texts.get((int) score[0])))
+                    .toList();
+
+            ScoringModel fullReranker = crossEncoder(relevance, fullDocuments);
+            ScoringModel cascadeReranker = new CascadingScoringModel(crossEncoder(relevance, cascadeDocuments), CASCADE_TOP_K);
+
+            Set<String> expected = topK(candidates, fullReranker.scoreAll(candidates, query).content());
+            long start = System.nanoTime();
+            List<Double> cascadeScores = cascadeReranker.scoreAll(candidates, query).content();
+            prefilterNanos += System.nanoTime() - start;
+            Set<String> actual = topK(candidates, cascadeScores);
+
+            Set<String> hits = new HashSet<>(expected);
+            hits.retainAll(actual);
+            recallSum += (double) hits.size() / TOP_K;
+        }
+
+        double recall = recallSum / QUERIES;
+        double fullMillis = fullDocuments.get() * RERANK_MILLIS_PER_DOCUMENT / QUERIES;
+        double cascadeMillis = cascadeDocuments.get() * RERANK_MILLIS_PER_DOCUMENT / QUERIES
+                + prefilterNanos / 1e6 / QUERIES;
+        log.info("级联重排: recall@{}={}, 重排文档数 {} -> {}, 每次查询模拟耗时 {}ms -> {}ms",
+                TOP_K, String.format("%.3f", recall), fullDocuments.get() / QUERIES, cascadeDocuments.get() / QUERIES,
+                String.format("%.1f", fullMillis), String.format("%.1f", cascadeMillis));
+
+        assertEquals((long) CASCADE_TOP_K * QUERIES, cascadeDocuments.get());
+        assertTrue(recall >= 0.9, "recall@10: " + recall);
+    }
+
+    /**
+     * 模拟交叉编码器：返回真实相关度，并统计打分文档数
+     */
+    private static ScoringModel crossEncoder(Map<String, Double> relevance, AtomicLong counter) {
+        return new ScoringModel() {
+            @Override
+            public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+                counter.addAndGet(segments.size());
+                return Response.from(segments.stream().map(segment -> relevance.get(segment.text())).toList());
+            }
+        };
+    }
+
+    private static Set<String> topK(List<TextSegment> candidates, List<Double> scores) {
+        return IntStream.range(0, candidates.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> scores.get(i)).reversed())
+                .limit(TOP_K)
+                .map(i -> candidates.get(i).text())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 随机的两字中文词
+     */
+    private static String randomWord(Random random) {
+        return new String(new char[]{(char) (0x4E00 + random.nextInt(3000)), (char) (0x4E00 + random.nextInt(3000))});
+    }
+}
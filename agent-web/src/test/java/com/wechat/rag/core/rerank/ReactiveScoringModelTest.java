@@ -0,0 +1,81 @@
+package com.wechat.rag.core.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReactiveScoringModel单元测试
+ */
+class ReactiveScoringModelTest {
+
+    private static final ScoringModel BLOCKING = new ScoringModel() {
+        @Override
+        public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+            return Response.from(segments.stream()
+                    .map(segment -> (double) (segment.text().length() + query.length()))
+                    .toList());
+        }
+    };
+
+    @Test
+    @DisplayName("测试阻塞模型经响应式适配后结果与阻塞调用一致")
+    void testBlockingAdapterMatchesBlockingCall() {
+        List<TextSegment> segments = List.of(TextSegment.from("会议时间"), TextSegment.from("报销"));
+
+        assertEquals(BLOCKING.scoreAll(segments, "周五").content(),
+                ReactiveScoringModel.scoreAll(BLOCKING, segments, "周五").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    @DisplayName("测试空输入返回空列表")
+    void testEmptyInput() {
+        assertEquals(BLOCKING.scoreAll(List.of(), "周五").content(),
+                ReactiveScoringModel.scoreAll(BLOCKING, List.of(), "周五").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    @DisplayName("测试阻塞模型抛出的异常原样传递")
+    void testErrorPropagates() {
+        IllegalStateException failure = new IllegalStateException("rerank unavailable");
+        ScoringModel failing = new ScoringModel() {
+            @Override
+            public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+                throw failure;
+            }
+        };
+        List<TextSegment> segments = List.of(TextSegment.from("你好"));
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> failing.scoreAll(segments, "周五")));
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> ReactiveScoringModel.scoreAll(failing, segments, "周五").block(Duration.ofSeconds(5))));
+    }
+
+    @Test
+    @DisplayName("测试响应式模型直接使用其异步实现")
+    void testReactiveModelUsesAsyncImplementation() {
+        ReactiveScoringModel reactive = new ReactiveScoringModel() {
+            @Override
+            public Mono<List<Double>> scoreAllAsync(List<TextSegment> textSegments, String query) {
+                return Mono.fromSupplier(() -> BLOCKING.scoreAll(textSegments, query).content());
+            }
+
+            @Override
+            public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+                throw new UnsupportedOperationException("不应调用阻塞接口");
+            }
+        };
+        List<TextSegment> segments = List.of(TextSegment.from("会议时间"));
+
+        assertEquals(BLOCKING.scoreAll(segments, "周五").content(),
+                ReactiveScoringModel.scoreAll(reactive, segments, "周五").block(Duration.ofSeconds(5)));
+    }
+}
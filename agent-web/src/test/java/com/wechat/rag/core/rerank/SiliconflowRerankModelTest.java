@@ -0,0 +1,98 @@
+package com.wechat.rag.core.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SiliconflowRerankModel单元测试
+ */
+class SiliconflowRerankModelTest {
+
+    /**
+     * 接口按相关度降序返回结果
+     */
+    private static final String RESPONSE = """
+            {
+              "results": [
+                {"index": 1, "relevance_score": 0.9},
+                {"index": 0, "relevance_score": 0.2}
+              ]
+            }
+            """;
+
+    private static final List<TextSegment> SEGMENTS = List.of(TextSegment.from("会议时间"), TextSegment.from("报销"));
+
+    @Test
+    @DisplayName("测试阻塞接口与异步接口返回相同的分数")
+    void testBlockingMatchesAsync() {
+        AtomicInteger requests = new AtomicInteger();
+        SiliconflowRerankModel model = model(webClient(HttpStatus.OK, RESPONSE, requests));
+
+        List<Double> blocking = model.scoreAll(SEGMENTS, "报销流程").content();
+        List<Double> async = model.scoreAllAsync(SEGMENTS, "报销流程").block(Duration.ofSeconds(5));
+
+        // 按输入顺序还原
+        assertEquals(List.of(0.2, 0.9), blocking);
+        assertEquals(blocking, async);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("测试空输入返回空列表且不发送请求")
+    void testEmptyInput() {
+        AtomicInteger requests = new AtomicInteger();
+        SiliconflowRerankModel model = model(webClient(HttpStatus.OK, RESPONSE, requests));
+
+        assertEquals(List.of(), model.scoreAll(List.of(), "报销流程").content());
+        assertEquals(List.of(), model.scoreAllAsync(List.of(), "报销流程").block(Duration.ofSeconds(5)));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    @DisplayName("测试接口错误在阻塞和异步接口上抛出相同的异常")
+    void testErrorPath() {
+        SiliconflowRerankModel model = model(webClient(HttpStatus.TOO_MANY_REQUESTS, "{}", new AtomicInteger()));
+
+        WebClientResponseException blocking = assertThrows(WebClientResponseException.class,
+                () -> model.scoreAll(SEGMENTS, "报销流程"));
+        WebClientResponseException async = assertThrows(WebClientResponseException.class,
+                () -> model.scoreAllAsync(SEGMENTS, "报销流程").block(Duration.ofSeconds(5)));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), blocking.getStatusCode().value());
+        assertEquals(blocking.getStatusCode(), async.getStatusCode());
+    }
+
+    private static SiliconflowRerankModel model(WebClient webClient) {
+        return SiliconflowRerankModel.builder()
+                .model("BAAI/bge-reranker-v2-m3")
+                .webClient(webClient)
+                .chunkSize(32)
+                .concurrency(1)
+                .build();
+    }
+
+    private static WebClient webClient(HttpStatus status, String body, AtomicInteger requests) {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.incrementAndGet();
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+    }
+}
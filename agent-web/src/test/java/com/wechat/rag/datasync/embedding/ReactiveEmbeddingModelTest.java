@@ -0,0 +1,82 @@
+package com.wechat.rag.datasync.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReactiveEmbeddingModel单元测试
+ */
+class ReactiveEmbeddingModelTest {
+
+    private static final EmbeddingModel BLOCKING = segments -> Response.from(segments.stream()
+            .map(segment -> Embedding.from(new float[]{segment.text().length(), segment.text().hashCode()}))
+            .toList());
+
+    @Test
+    @DisplayName("测试阻塞模型经响应式适配后结果与阻塞调用一致")
+    void testBlockingAdapterMatchesBlockingCall() {
+        List<TextSegment> segments = List.of(TextSegment.from("会议时间"), TextSegment.from("报销"));
+
+        List<Embedding> reactive = ReactiveEmbeddingModel.embedAll(BLOCKING, segments).block(Duration.ofSeconds(5));
+        Embedding single = ReactiveEmbeddingModel.embed(BLOCKING, "会议时间").block(Duration.ofSeconds(5));
+
+        assertEquals(vectors(BLOCKING.embedAll(segments).content()), vectors(reactive));
+        assertEquals(BLOCKING.embed("会议时间").content().vectorAsList(), single.vectorAsList());
+    }
+
+    @Test
+    @DisplayName("测试空输入返回空列表")
+    void testEmptyInput() {
+        assertEquals(BLOCKING.embedAll(List.of()).content(),
+                ReactiveEmbeddingModel.embedAll(BLOCKING, List.of()).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    @DisplayName("测试阻塞模型抛出的异常原样传递")
+    void testErrorPropagates() {
+        IllegalStateException failure = new IllegalStateException("embedding unavailable");
+        EmbeddingModel failing = segments -> {
+            throw failure;
+        };
+
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> failing.embedAll(List.of(TextSegment.from("你好")))));
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> ReactiveEmbeddingModel.embedAll(failing, List.of(TextSegment.from("你好"))).block(Duration.ofSeconds(5))));
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> ReactiveEmbeddingModel.embed(failing, "你好").block(Duration.ofSeconds(5))));
+    }
+
+    @Test
+    @DisplayName("测试响应式模型直接使用其异步实现")
+    void testReactiveModelUsesAsyncImplementation() {
+        ReactiveEmbeddingModel reactive = new ReactiveEmbeddingModel() {
+            @Override
+            public Mono<List<Embedding>> embedAllAsync(List<TextSegment> textSegments) {
+                return Mono.fromSupplier(() -> BLOCKING.embedAll(textSegments).content());
+            }
+
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                throw new UnsupportedOperationException("不应调用阻塞接口");
+            }
+        };
+
+        assertEquals(BLOCKING.embed("报销").content().vectorAsList(),
+                ReactiveEmbeddingModel.embed(reactive, "报销").block(Duration.ofSeconds(5)).vectorAsList());
+    }
+
+    private static List<List<Float>> vectors(List<Embedding> embeddings) {
+        return embeddings.stream().map(Embedding::vectorAsList).toList();
+    }
+}
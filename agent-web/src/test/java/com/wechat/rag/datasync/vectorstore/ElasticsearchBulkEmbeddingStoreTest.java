@@ -0,0 +1,135 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ElasticsearchBulkEmbeddingStore单元测试
+ */
+class ElasticsearchBulkEmbeddingStoreTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String NO_ERRORS = "{\"errors\":false}";
+
+    @Test
+    @DisplayName("测试_bulk请求体为index动作加文档的NDJSON")
+    void testBulkBody() throws IOException {
+        RecordingStore store = new RecordingStore(1024 * 1024, NO_ERRORS);
+        store.addAll(List.of("id-1", "id-2"), embeddings(2), List.of(segment("你好", 1L), segment("收到", 2L)));
+
+        assertEquals(1, store.bodies.size());
+        String body = store.bodies.get(0);
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+
+        JsonNode action = OBJECT_MAPPER.readTree(lines[0]).path("index");
+        assertEquals("chatlog", action.path("_index").asText());
+        assertEquals("id-1", action.path("_id").asText());
+        JsonNode source = OBJECT_MAPPER.readTree(lines[1]);
+        assertEquals("你好", source.path("text").asText());
+        assertEquals("a@chatroom", source.path("metadata").path("talker").asText());
+        assertEquals(1L, source.path("metadata").path("seq").asLong());
+        assertEquals(2, source.path("vector").size());
+        assertEquals("id-2", OBJECT_MAPPER.readTree(lines[2]).path("index").path("_id").asText());
+    }
+
+    @Test
+    @DisplayName("测试按请求体字节数分批")
+    void testSplitByBytes() {
+        RecordingStore store = new RecordingStore(1, NO_ERRORS);
+        store.addAll(List.of("id-1", "id-2", "id-3"), embeddings(3),
+                List.of(segment("a", 1L), segment("b", 2L), segment("c", 3L)));
+
+        // 单条文档超过上限时也单独成批，不会被丢弃
+        assertEquals(3, store.bodies.size());
+        store.bodies.forEach(body -> assertEquals(2, body.split("\n").length));
+    }
+
+    @Test
+    @DisplayName("测试被拒绝的文档跳过，可重试的失败使整批失败")
+    void testItemErrors() {
+        String rejected = """
+                {"errors":true,"items":[
+                  {"index":{"_id":"id-1","status":400,"error":{"type":"mapper_parsing_exception","reason":"failed to parse field [metadata.time]"}}},
+                  {"index":{"_id":"id-2","status":201}}
+                ]}""";
+        RecordingStore store = new RecordingStore(1024 * 1024, rejected);
+        assertDoesNotThrow(() -> store.addAll(List.of("id-1", "id-2"), embeddings(2),
+                List.of(segment("a", 1L), segment("b", 2L))));
+
+        String retryable = """
+                {"errors":true,"items":[
+                  {"index":{"_id":"id-1","status":429,"error":{"type":"es_rejected_execution_exception","reason":"queue full"}}}
+                ]}""";
+        RecordingStore failing = new RecordingStore(1024 * 1024, retryable);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> failing.addAll(List.of("id-1"), embeddings(1), List.of(segment("a", 1L))));
+        assertTrue(e.getMessage().contains("queue full"));
+    }
+
+    @Test
+    @DisplayName("测试解析_bulk响应中的失败文档")
+    void testParseFailures() throws IOException {
+        JsonNode response = OBJECT_MAPPER.readTree("""
+                {"errors":true,"items":[
+                  {"index":{"_id":"a","status":400,"error":{"type":"mapper_parsing_exception","reason":"bad"}}},
+                  {"index":{"_id":"b","status":503,"error":{"type":"unavailable_shards_exception","reason":"down"}}},
+                  {"index":{"_id":"c","status":201}}
+                ]}""");
+
+        ElasticsearchBulkEmbeddingStore.BulkFailures failures = ElasticsearchBulkEmbeddingStore.BulkFailures.parse(response);
+        assertEquals(Map.of("a", "mapper_parsing_exception: bad"), failures.rejected());
+        assertEquals(Map.of("b", "unavailable_shards_exception: down"), failures.retryable());
+
+        ElasticsearchBulkEmbeddingStore.BulkFailures none =
+                ElasticsearchBulkEmbeddingStore.BulkFailures.parse(OBJECT_MAPPER.readTree(NO_ERRORS));
+        assertTrue(none.rejected().isEmpty());
+        assertTrue(none.retryable().isEmpty());
+    }
+
+    private static List<Embedding> embeddings(int count) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            embeddings.add(Embedding.from(new float[]{i, 1f}));
+        }
+        return embeddings;
+    }
+
+    private static TextSegment segment(String text, long seq) {
+        return TextSegment.from(text, Metadata.from(Map.of("talker", "a@chatroom", "seq", seq)));
+    }
+
+    /**
+     * 记录_bulk请求体并返回固定响应，不连接Elasticsearch
+     */
+    private static class RecordingStore extends ElasticsearchBulkEmbeddingStore {
+        private final List<String> bodies = new ArrayList<>();
+
+        private final String response;
+
+        RecordingStore(int maxBytes, String response) {
+            super(null, null, "chatlog", maxBytes, "wait_for", 0);
+            this.response = response;
+        }
+
+        @Override
+        JsonNode bulk(byte[] body) throws IOException {
+            bodies.add(new String(body, StandardCharsets.UTF_8));
+            return OBJECT_MAPPER.readTree(response);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ElasticsearchIndexManager单元测试
+ */
+class ElasticsearchIndexManagerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试索引映射：量化向量、keyword元数据和容错的时间字段")
+    void testIndexBody() {
+        JsonNode body = objectMapper.valueToTree(ElasticsearchIndexManager.indexBody(1024, "int8_hnsw", "5s"));
+        JsonNode properties = body.path("mappings").path("properties");
+
+        assertEquals("5s", body.path("settings").path("index").path("refresh_interval").asText());
+        assertEquals(1024, properties.path("vector").path("dims").asInt());
+        assertEquals("int8_hnsw", properties.path("vector").path("index_options").path("type").asText());
+        assertEquals("cjk", properties.path("text").path("fields").path("cjk").path("analyzer").asText());
+
+        JsonNode metadata = properties.path("metadata").path("properties");
+        JsonNode talker = metadata.path("talker");
+        assertFalse(talker.path("index").asBoolean());
+        assertEquals("keyword", talker.path("fields").path("keyword").path("type").asText());
+        assertEquals("long", metadata.path("seq").path("type").asText());
+        assertEquals("date", metadata.path("time").path("type").asText());
+        assertTrue(metadata.path("time").path("ignore_malformed").asBoolean());
+
+        JsonNode template = body.path("mappings").path("dynamic_templates").get(0).path("metadata_strings");
+        assertEquals("metadata.*", template.path("path_match").asText());
+    }
+
+    @Test
+    @DisplayName("测试未配置向量索引类型和刷新间隔时使用Elasticsearch默认值")
+    void testIndexBodyDefaults() {
+        JsonNode body = objectMapper.valueToTree(ElasticsearchIndexManager.indexBody(768, null, null));
+
+        assertTrue(body.path("settings").isMissingNode());
+        assertTrue(body.path("mappings").path("properties").path("vector").path("index_options").isMissingNode());
+    }
+}
@@ -0,0 +1,56 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FilterSupport单元测试
+ */
+class FilterSupportTest {
+
+    @Test
+    @DisplayName("测试书写顺序不同的等价过滤条件规范形式相同")
+    void testCanonical() {
+        Filter talker = metadataKey("talker").isIn(List.of("b@chatroom", "a@chatroom"));
+        Filter sender = metadataKey("sender").isEqualTo("wxid_1");
+        Filter time = metadataKey("seq").isGreaterThanOrEqualTo(1000L)
+                .and(metadataKey("seq").isLessThanOrEqualTo(2000L));
+
+        Filter left = talker.and(sender).and(time);
+        Filter right = time.and(sender.and(metadataKey("talker").isIn(List.of("a@chatroom", "b@chatroom"))));
+
+        assertEquals(FilterSupport.canonical(left), FilterSupport.canonical(right));
+        assertNotEquals(FilterSupport.canonical(left), FilterSupport.canonical(talker.and(time)));
+        assertEquals("", FilterSupport.canonical(null));
+    }
+
+    @Test
+    @DisplayName("测试提取过滤条件限定的talker")
+    void testTalkers() {
+        Filter sender = metadataKey("sender").isEqualTo("wxid_1");
+
+        assertEquals(Set.of("a", "b"), FilterSupport.talkers(metadataKey("talker").isIn(List.of("a", "b")).and(sender)));
+        assertEquals(Set.of("a"), FilterSupport.talkers(metadataKey("talker").isEqualTo("a")
+                .or(metadataKey("talker").isEqualTo("a"))));
+        assertNull(FilterSupport.talkers(sender));
+        assertNull(FilterSupport.talkers(metadataKey("talker").isEqualTo("a").or(sender)));
+    }
+
+    @Test
+    @DisplayName("测试只限定talker的过滤条件")
+    void testIsTalkerOnly() {
+        Filter talker = metadataKey("talker").isEqualTo("a@chatroom");
+
+        assertTrue(FilterSupport.isTalkerOnly(talker));
+        assertTrue(FilterSupport.isTalkerOnly(metadataKey("talker").isIn(List.of("a@chatroom", "b@chatroom"))));
+        assertFalse(FilterSupport.isTalkerOnly(talker.and(metadataKey("seq").isGreaterThanOrEqualTo(1000L))));
+        assertFalse(FilterSupport.isTalkerOnly(null));
+    }
+}
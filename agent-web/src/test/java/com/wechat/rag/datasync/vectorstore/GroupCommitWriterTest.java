@@ -0,0 +1,193 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GroupCommitWriter单元测试
+ */
+class GroupCommitWriterTest {
+
+    @Test
+    @DisplayName("测试多个调用方的写入合并为一次写入，各自拿到自己的文档ID")
+    void testCoalesceAcrossCallers() throws Exception {
+        RecordingStore store = new RecordingStore();
+        GroupCommitWriter writer = new GroupCommitWriter(store, 5, Duration.ofSeconds(10), 100);
+
+        CompletableFuture<List<String>> first = writer.write(ids("a", "b"), embeddings(2), segments("a", "b")).toFuture();
+        CompletableFuture<List<String>> second = writer.write(ids("c", "d", "e"), embeddings(3), segments("c", "d", "e")).toFuture();
+
+        List<String> firstIds = first.get(5, TimeUnit.SECONDS);
+        List<String> secondIds = second.get(5, TimeUnit.SECONDS);
+        assertEquals(1, store.calls.size());
+        assertEquals(5, store.calls.get(0).size());
+        assertTrue(Collections.disjoint(firstIds, secondIds));
+        // 每个调用方拿到的是自己那段文档的ID
+        assertEquals(List.of("a", "b"), textsOf(store, firstIds));
+        assertEquals(List.of("c", "d", "e"), textsOf(store, secondIds));
+    }
+
+    @Test
+    @DisplayName("测试使用调用方给定的文档ID写入，重试时覆盖同一文档")
+    void testCallerProvidedIds() throws Exception {
+        RecordingStore store = new RecordingStore();
+        GroupCommitWriter writer = new GroupCommitWriter(store, 2, Duration.ofSeconds(10), 100);
+
+        List<String> first = writer.write(ids("a", "b"), embeddings(2), segments("a", "b")).toFuture().get(5, TimeUnit.SECONDS);
+        List<String> retried = writer.write(ids("a", "b"), embeddings(2), segments("a", "b")).toFuture().get(5, TimeUnit.SECONDS);
+
+        assertEquals(ids("a", "b"), first);
+        assertEquals(first, retried);
+        assertEquals(List.of(ids("a", "b"), ids("a", "b")), store.calls);
+    }
+
+    @Test
+    @DisplayName("测试合并写入失败时同批所有调用方都失败")
+    void testFailurePropagatesToAllCallers() {
+        RecordingStore store = new RecordingStore();
+        store.failure = new RuntimeException("bulk failed");
+        GroupCommitWriter writer = new GroupCommitWriter(store, 3, Duration.ofSeconds(10), 100);
+
+        CompletableFuture<List<String>> first = writer.write(ids("a"), embeddings(1), segments("a")).toFuture();
+        CompletableFuture<List<String>> second = writer.write(ids("b", "c"), embeddings(2), segments("b", "c")).toFuture();
+
+        ExecutionException firstError = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        ExecutionException secondError = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertSame(store.failure, firstError.getCause());
+        assertSame(store.failure, secondError.getCause());
+    }
+
+    @Test
+    @DisplayName("测试未完成文档数达到上限时新的写入等待")
+    void testBackpressure() throws Exception {
+        RecordingStore store = new RecordingStore();
+        store.gate = new CountDownLatch(1);
+        GroupCommitWriter writer = new GroupCommitWriter(store, 2, Duration.ofMillis(50), 2);
+
+        CompletableFuture<List<String>> first = writer.write(ids("a", "b"), embeddings(2), segments("a", "b")).toFuture();
+        CompletableFuture<List<String>> second = writer.write(ids("c"), embeddings(1), segments("c")).toFuture();
+
+        // 第一批写入被阻塞，配额耗尽，第二个写入无法进入缓冲
+        Thread.sleep(300);
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, store.calls.size());
+
+        store.gate.countDown();
+        assertEquals(2, first.get(5, TimeUnit.SECONDS).size());
+        assertEquals(1, second.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, store.calls.size());
+    }
+
+    @Test
+    @DisplayName("测试flush等待缓冲中及进行中的批次写完")
+    void testFlushWaitsForInFlightBatches() throws Exception {
+        RecordingStore store = new RecordingStore();
+        store.gate = new CountDownLatch(1);
+        GroupCommitWriter writer = new GroupCommitWriter(store, 10, Duration.ofSeconds(10), 100);
+
+        CompletableFuture<List<String>> write = writer.write(ids("a"), embeddings(1), segments("a")).toFuture();
+        // 等待写入进入缓冲
+        Thread.sleep(100);
+        CompletableFuture<Void> flushed = writer.flush();
+        Thread.sleep(100);
+        assertFalse(flushed.isDone());
+
+        store.gate.countDown();
+        flushed.get(5, TimeUnit.SECONDS);
+        assertTrue(write.isDone());
+        assertEquals(1, store.calls.size());
+    }
+
+    private static List<String> textsOf(RecordingStore store, List<String> ids) {
+        List<String> batchIds = store.calls.get(0);
+        return ids.stream().map(id -> store.texts.get(0).get(batchIds.indexOf(id))).toList();
+    }
+
+    private static List<String> ids(String... texts) {
+        return Arrays.stream(texts).map(text -> "id-" + text).toList();
+    }
+
+    private static List<Embedding> embeddings(int count) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            embeddings.add(Embedding.from(new float[]{i}));
+        }
+        return embeddings;
+    }
+
+    private static List<TextSegment> segments(String... texts) {
+        return Arrays.stream(texts).map(TextSegment::from).toList();
+    }
+
+    /**
+     * 记录每次addAll的文档ID和文本，可阻塞或失败
+     */
+    private static class RecordingStore implements EmbeddingStore<TextSegment> {
+        private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<List<String>> texts = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile CountDownLatch gate;
+
+        private volatile RuntimeException failure;
+
+        @Override
+        public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+            calls.add(List.copyOf(ids));
+            texts.add(textSegments.stream().map(TextSegment::text).toList());
+            if (gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public String add(Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment textSegment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
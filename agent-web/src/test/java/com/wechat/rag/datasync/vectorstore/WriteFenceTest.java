@@ -0,0 +1,56 @@
+package com.wechat.rag.datasync.vectorstore;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WriteFence单元测试
+ */
+class WriteFenceTest {
+
+    @Test
+    @DisplayName("测试切换等待进行中的写入完成，切换期间的写入在切换后执行")
+    void testExclusiveDrainsInFlightWrites() {
+        WriteFence fence = new WriteFence();
+        AtomicReference<String> model = new AtomicReference<>("old");
+
+        Sinks.One<String> inFlight = Sinks.one();
+        AtomicReference<String> firstResult = new AtomicReference<>();
+        fence.guard(() -> inFlight.asMono().map(value -> model.get())).subscribe(firstResult::set);
+
+        AtomicBoolean switched = new AtomicBoolean();
+        fence.exclusive(() -> model.set("new"), Duration.ofSeconds(5)).subscribe(null, null, () -> switched.set(true));
+        assertFalse(switched.get());
+
+        // 切换期间到达的写入等待切换完成
+        AtomicReference<String> secondResult = new AtomicReference<>();
+        fence.guard(() -> Mono.fromSupplier(model::get)).subscribe(secondResult::set);
+        assertNull(secondResult.get());
+
+        inFlight.tryEmitValue("done");
+        assertEquals("old", firstResult.get());
+        assertTrue(switched.get());
+        assertEquals("new", secondResult.get());
+    }
+
+    @Test
+    @DisplayName("测试等待超时时切换失败并重新打开栅栏")
+    void testExclusiveTimeout() {
+        WriteFence fence = new WriteFence();
+        fence.guard(Mono::never).subscribe();
+
+        AtomicBoolean switched = new AtomicBoolean();
+        assertThrows(RuntimeException.class,
+                () -> fence.exclusive(() -> switched.set(true), Duration.ofMillis(50)).block());
+        assertFalse(switched.get());
+        assertEquals("ok", fence.guard(() -> Mono.just("ok")).block(Duration.ofSeconds(1)));
+    }
+}
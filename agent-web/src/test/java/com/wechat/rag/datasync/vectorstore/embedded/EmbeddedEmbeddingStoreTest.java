@@ -0,0 +1,168 @@
+package com.wechat.rag.datasync.vectorstore.embedded;
+
+import com.wechat.rag.datasync.config.VectorStoreConfig;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddedEmbeddingStore单元测试
+ */
+class EmbeddedEmbeddingStoreTest {
+    private static final int DIMENSION = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("测试HNSW检索召回率以及按talker过滤")
+    void testSearch() throws Exception {
+        Random random = new Random(42);
+        List<float[]> vectors = IntStream.range(0, 3000).mapToObj(i -> randomVector(random)).toList();
+        try (EmbeddedEmbeddingStore store = new EmbeddedEmbeddingStore(directory, DIMENSION, config())) {
+            addAll(store, vectors);
+            awaitIndexed(store);
+
+            int hits = 0;
+            int queries = 20;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector(random);
+                Set<String> expected = exactTopK(vectors, query, 10);
+                Set<String> actual = ids(store.search(request(query, 10, null)).matches());
+                actual.retainAll(expected);
+                hits += actual.size();
+            }
+            double recall = hits / (queries * 10.0);
+            assertTrue(recall >= 0.9, "recall@10: " + recall);
+
+            List<EmbeddingMatch<TextSegment>> matches = store.search(request(randomVector(random), 20,
+                    metadataKey("talker").isEqualTo("talker-1"))).matches();
+            assertEquals(20, matches.size());
+            matches.forEach(match -> assertEquals("talker-1", match.embedded().metadata().getString("talker")));
+        }
+    }
+
+    @Test
+    @DisplayName("测试删除、重启恢复与合并数据段")
+    void testDeleteReopenAndCompact() throws Exception {
+        Random random = new Random(7);
+        List<float[]> vectors = IntStream.range(0, 1200).mapToObj(i -> randomVector(random)).toList();
+        try (EmbeddedEmbeddingStore store = new EmbeddedEmbeddingStore(directory, DIMENSION, config())) {
+            addAll(store, vectors);
+            store.removeAll(metadataKey("talker").isEqualTo("talker-0"));
+            // 覆盖写入同一ID
+            store.addAll(List.of("id-1"), List.of(Embedding.from(vectors.get(1))),
+                    List.of(segment(1, "updated")));
+            assertEquals(800, store.liveSize());
+        }
+
+        try (EmbeddedEmbeddingStore store = new EmbeddedEmbeddingStore(directory, DIMENSION, config())) {
+            assertEquals(800, store.liveSize());
+            EmbeddingMatch<TextSegment> match = store.search(request(vectors.get(1), 1, null)).matches().get(0);
+            assertEquals("id-1", match.embeddingId());
+            assertEquals("updated", match.embedded().text());
+            assertTrue(store.search(request(vectors.get(0), 5, metadataKey("talker").isEqualTo("talker-0")))
+                    .matches().isEmpty());
+
+            store.compact();
+            assertEquals(800, store.size());
+        }
+
+        try (EmbeddedEmbeddingStore store = new EmbeddedEmbeddingStore(directory, DIMENSION, config())) {
+            assertEquals(800, store.size());
+            assertEquals(800, store.liveSize());
+            assertEquals("id-1", store.search(request(vectors.get(1), 1, null)).matches().get(0).embeddingId());
+        }
+    }
+
+    private static VectorStoreConfig.Embedded config() {
+        VectorStoreConfig.Embedded config = new VectorStoreConfig.Embedded();
+        // 小数据段，覆盖跨段读写
+        config.setSegmentCapacity(500);
+        config.setMetadataSegmentMb(1);
+        return config;
+    }
+
+    private static void addAll(EmbeddedEmbeddingStore store, List<float[]> vectors) {
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            ids.add("id-" + i);
+            embeddings.add(Embedding.from(vectors.get(i)));
+            segments.add(segment(i, "消息" + i));
+        }
+        store.addAll(ids, embeddings, segments);
+    }
+
+    private static TextSegment segment(int i, String text) {
+        return TextSegment.from(text, Metadata.from("talker", "talker-" + (i % 3)).put("seq", (long) i));
+    }
+
+    private static void awaitIndexed(EmbeddedEmbeddingStore store) throws InterruptedException {
+        for (int i = 0; i < 200 && !store.isFullyIndexed(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(store.isFullyIndexed());
+    }
+
+    private static EmbeddingSearchRequest request(float[] query, int maxResults,
+                                                  dev.langchain4j.store.embedding.filter.Filter filter) {
+        return EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query))
+                .maxResults(maxResults)
+                .minScore(0.0)
+                .filter(filter)
+                .build();
+    }
+
+    private static Set<String> exactTopK(List<float[]> vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.size())
+                .boxed()
+                .sorted((a, b) -> Double.compare(cosine(query, vectors.get(b)), cosine(query, vectors.get(a))))
+                .limit(k)
+                .map(i -> "id-" + i)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,127 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PartitionedEmbeddingStore单元测试
+ */
+class PartitionedEmbeddingStoreTest {
+    private final TalkerPartitionScheme scheme = new TalkerPartitionScheme(8, List.of());
+
+    private final List<String> openedCollections = new ArrayList<>();
+
+    private final Set<String> registered = new HashSet<>();
+
+    @Test
+    @DisplayName("测试启动时不打开已注册的分区，查询只打开裁剪命中的分区")
+    void testOpenPartitionsLazily() {
+        String shardA = scheme.partitionOf("wxid_a");
+        String shardB = scheme.partitionOf("wxid_b");
+        registered.addAll(Set.of(shardA, shardB, PartitionScheme.DEFAULT_PARTITION));
+        PartitionedEmbeddingStore store = store();
+
+        assertEquals(registered, store.getPartitions());
+        assertTrue(openedCollections.isEmpty());
+
+        store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0}))
+                .filter(metadataKey("talker").isEqualTo("wxid_a"))
+                .build());
+        assertEquals(List.of("chatlog_" + shardA), openedCollections);
+
+        // 再次访问复用已打开的分区
+        store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0}))
+                .filter(metadataKey("talker").isEqualTo("wxid_a"))
+                .build());
+        assertEquals(1, openedCollections.size());
+    }
+
+    @Test
+    @DisplayName("测试写入新分区时注册并打开")
+    void testWriteRegistersNewPartition() {
+        PartitionedEmbeddingStore store = store();
+        String shard = scheme.partitionOf("wxid_a");
+
+        store.addAll(List.of("1"), List.of(Embedding.from(new float[]{1, 0})),
+                List.of(TextSegment.from("你好", new Metadata().put("talker", "wxid_a"))));
+
+        assertEquals(Set.of(shard), registered);
+        assertEquals(Set.of(shard), store.getPartitions());
+        assertEquals(List.of("chatlog_" + shard), openedCollections);
+    }
+
+    private PartitionedEmbeddingStore store() {
+        PartitionRegistry registry = new PartitionRegistry(null) {
+            @Override
+            public Set<String> load(String collectionName) {
+                return Set.copyOf(registered);
+            }
+
+            @Override
+            public void register(String collectionName, String partition) {
+                registered.add(partition);
+            }
+
+            @Override
+            public void unregister(String collectionName, String partition) {
+                registered.remove(partition);
+            }
+        };
+        return new PartitionedEmbeddingStore("chatlog", scheme, collection -> {
+            openedCollections.add(collection);
+            return new EmptyStore();
+        }, null, collection -> {
+        }, registry, 4);
+    }
+
+    /**
+     * 不含数据的分区
+     */
+    private static class EmptyStore implements EmbeddingStore<TextSegment> {
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            return new EmbeddingSearchResult<>(List.of());
+        }
+
+        @Override
+        public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        }
+
+        @Override
+        public String add(Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment textSegment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
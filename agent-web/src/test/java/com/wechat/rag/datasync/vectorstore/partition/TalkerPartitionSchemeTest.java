@@ -0,0 +1,88 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TalkerPartitionScheme单元测试
+ */
+class TalkerPartitionSchemeTest {
+    private static final String BIG_GROUP = "12345@chatroom";
+
+    private final TalkerPartitionScheme scheme = new TalkerPartitionScheme(8, List.of(BIG_GROUP));
+
+    private final String dedicated = scheme.partitionOf(BIG_GROUP);
+
+    @Test
+    @DisplayName("测试按talker确定分片")
+    void testPartitionOf() {
+        assertTrue(dedicated.matches("t_12345_chatroom_[0-9a-f]{8}"));
+        assertEquals(dedicated, scheme.partitionOf(segment(BIG_GROUP)));
+        assertTrue(scheme.partitionOf(segment("wxid_a")).matches("s0[0-7]"));
+        assertEquals(scheme.partitionOf(segment("wxid_a")), scheme.partitionOf(segment("wxid_a")));
+        assertEquals(PartitionScheme.DEFAULT_PARTITION, scheme.partitionOf(TextSegment.from("无talker")));
+    }
+
+    @Test
+    @DisplayName("测试只访问talker所在的分片")
+    void testPrune() {
+        String shard = scheme.partitionOf("wxid_a");
+        List<String> partitions = List.of(dedicated, "s00", "s01", "s02", "s03", "s04", "s05", "s06", "s07");
+        Filter groups = metadataKey("talker").isIn(BIG_GROUP, "wxid_a")
+                .and(metadataKey("sender").isEqualTo("张三"));
+
+        assertEquals(Set.of(dedicated, shard), scheme.prune(groups, partitions));
+        assertEquals(Set.copyOf(partitions), scheme.prune(metadataKey("sender").isEqualTo("张三"), partitions));
+        assertEquals(Set.copyOf(partitions), scheme.prune(null, partitions));
+    }
+
+    @Test
+    @DisplayName("测试只有独占分片可整体删除")
+    void testOwnedBy() {
+        List<String> partitions = List.of(dedicated, "s00", "s01");
+
+        assertEquals(Set.of(dedicated), scheme.ownedBy(Set.of(BIG_GROUP), partitions));
+        assertTrue(scheme.ownedBy(Set.of("wxid_a"), partitions).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试可读前缀相同的独占talker不共用分区")
+    void testDedicatedPartitionsDoNotCollide() {
+        TalkerPartitionScheme collisions = new TalkerPartitionScheme(8, List.of("项目群", "产品群", "Group-A", "group_a"));
+        Set<String> partitions = Set.of(collisions.partitionOf("项目群"), collisions.partitionOf("产品群"),
+                collisions.partitionOf("Group-A"), collisions.partitionOf("group_a"));
+
+        assertEquals(4, partitions.size());
+        partitions.forEach(partition -> assertFalse(partition.contains("__"), partition));
+        assertEquals(Set.of(collisions.partitionOf("项目群")), collisions.ownedBy(Set.of("项目群"), partitions));
+    }
+
+    @Test
+    @DisplayName("测试talker分片与时间分区组合")
+    void testComposite() {
+        CompositePartitionScheme composite = new CompositePartitionScheme(scheme,
+                new TimePartitionScheme(TimePartitionScheme.Granularity.MONTH, ZoneId.of("Asia/Shanghai")));
+        List<String> partitions = List.of(dedicated + "__202501", dedicated + "__202502",
+                scheme.partitionOf("wxid_a") + "__202501");
+
+        assertEquals(Set.of(dedicated + "__202501", dedicated + "__202502"),
+                composite.prune(metadataKey("talker").isEqualTo(BIG_GROUP), partitions));
+        assertEquals(Set.of(dedicated + "__202501", dedicated + "__202502"),
+                composite.ownedBy(Set.of(BIG_GROUP), partitions));
+    }
+
+    private static TextSegment segment(String talker) {
+        return TextSegment.from("消息", Metadata.from(Map.of("talker", talker)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.wechat.rag.datasync.vectorstore.partition;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TimePartitionScheme单元测试
+ */
+class TimePartitionSchemeTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    @DisplayName("测试按消息时间确定分区")
+    void testPartitionOf() {
+        TimePartitionScheme monthly = new TimePartitionScheme(TimePartitionScheme.Granularity.MONTH, ZONE);
+        TimePartitionScheme weekly = new TimePartitionScheme(TimePartitionScheme.Granularity.WEEK, ZONE);
+        TextSegment segment = segment(LocalDateTime.of(2025, 1, 15, 10, 30));
+
+        assertEquals("202501", monthly.partitionOf(segment));
+        assertEquals("2025w03", weekly.partitionOf(segment));
+        assertEquals(PartitionScheme.DEFAULT_PARTITION, monthly.partitionOf(TextSegment.from("无seq")));
+    }
+
+    @Test
+    @DisplayName("测试只访问与时间范围重叠的分区")
+    void testPrune() {
+        TimePartitionScheme monthly = new TimePartitionScheme(TimePartitionScheme.Granularity.MONTH, ZONE);
+        List<String> partitions = List.of("202411", "202412", "202501", "202502", PartitionScheme.DEFAULT_PARTITION);
+        Filter yesterday = metadataKey("talker").isEqualTo("a@chatroom")
+                .and(metadataKey("seq").isGreaterThanOrEqualTo(millis(LocalDateTime.of(2025, 1, 14, 0, 0)))
+                        .and(metadataKey("seq").isLessThanOrEqualTo(millis(LocalDateTime.of(2025, 1, 14, 23, 59)))));
+        Filter crossMonth = metadataKey("seq").isGreaterThanOrEqualTo(millis(LocalDateTime.of(2024, 12, 30, 0, 0)))
+                .and(metadataKey("seq").isLessThanOrEqualTo(millis(LocalDateTime.of(2025, 1, 2, 0, 0))));
+
+        assertEquals(Set.of("202501", PartitionScheme.DEFAULT_PARTITION), monthly.prune(yesterday, partitions));
+        assertEquals(Set.of("202412", "202501", PartitionScheme.DEFAULT_PARTITION), monthly.prune(crossMonth, partitions));
+        assertEquals(Set.copyOf(partitions), monthly.prune(metadataKey("talker").isEqualTo("a@chatroom"), partitions));
+    }
+
+    private static TextSegment segment(LocalDateTime time) {
+        return TextSegment.from("消息", Metadata.from(Map.of("seq", millis(time))));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
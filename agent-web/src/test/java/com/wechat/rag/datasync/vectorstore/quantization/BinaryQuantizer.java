@@ -0,0 +1,55 @@
+package com.wechat.rag.datasync.vectorstore.quantization;
+
+/**
+ * 二值量化的内存模拟，供QuantizationBenchmarkTest评估召回率
+ * 生产环境的二值量化由Elasticsearch的bbq_hnsw索引完成，不使用本类
+ * 每维只保留符号位，按64维一组打包进long[]
+ * 查询向量保持float32，与符号位做非对称点积（正号加、负号减），比两端都二值化后算汉明距离更准确
+ */
+final class BinaryQuantizer {
+
+    private BinaryQuantizer() {
+    }
+
+    /**
+     * 量化向量
+     *
+     * @param vector float32向量
+     * @return 符号位
+     */
+    static long[] quantize(float[] vector) {
+        long[] bits = new long[(vector.length + Long.SIZE - 1) / Long.SIZE];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0f) {
+                bits[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * float32查询向量与符号位的近似点积
+     *
+     * @param query 查询向量
+     * @param bits  符号位
+     * @return 近似点积（未归一化，仅用于排序）
+     */
+    static float dot(float[] query, long[] bits) {
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            boolean positive = (bits[i / Long.SIZE] & (1L << (i % Long.SIZE))) != 0;
+            sum += positive ? query[i] : -query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 单个编码占用的字节数
+     *
+     * @param dimension 向量维度
+     * @return 字节数
+     */
+    static int bytesPerVector(int dimension) {
+        return (dimension + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+    }
+}
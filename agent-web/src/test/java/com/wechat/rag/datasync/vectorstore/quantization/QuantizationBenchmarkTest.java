@@ -0,0 +1,167 @@
+package com.wechat.rag.datasync.vectorstore.quantization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 量化召回率与内存占用基准
+ * 在聚簇分布的1024维单位向量上，比较量化检索 + 全精度重打分与精确检索的recall@10
+ */
+@Slf4j
+class QuantizationBenchmarkTest {
+    private static final int DIMENSION = 1024;
+    private static final int DOCUMENTS = 5000;
+    private static final int QUERIES = 50;
+    private static final int CLUSTERS = 50;
+    private static final int TOP_K = 10;
+
+    private static float[][] documents;
+    private static float[][] queries;
+    private static List<Set<Integer>> exactResults;
+
+    @BeforeAll
+    static void setUp() {
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, 1f);
+        }
+        documents = new float[DOCUMENTS][];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents[i] = perturb(random, centers[random.nextInt(CLUSTERS)]);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = perturb(random, centers[random.nextInt(CLUSTERS)]);
+        }
+        exactResults = Arrays.stream(queries)
+                .map(query -> topK(doc -> dot(query, documents[doc]), DOCUMENTS, TOP_K))
+                .map(QuantizationBenchmarkTest::toSet)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("int8量化 + 重打分")
+    void testInt8Recall() {
+        ScalarQuantizer.Int8Vector[] codes = Arrays.stream(documents)
+                .map(ScalarQuantizer::quantize)
+                .toArray(ScalarQuantizer.Int8Vector[]::new);
+
+        double recallWithoutRescore = recall(query -> topK(doc -> ScalarQuantizer.dot(query, codes[doc]), DOCUMENTS, TOP_K));
+        double recall = recall(query -> rescore(query, topK(doc -> ScalarQuantizer.dot(query, codes[doc]), DOCUMENTS, TOP_K * 2)));
+
+        report("int8", ScalarQuantizer.bytesPerVector(DIMENSION), recallWithoutRescore, 2, recall);
+        assertTrue(recall >= 0.98, "int8 recall@10 = " + recall);
+    }
+
+    @Test
+    @DisplayName("二值量化 + 重打分")
+    void testBinaryRecall() {
+        long[][] codes = Arrays.stream(documents)
+                .map(BinaryQuantizer::quantize)
+                .toArray(long[][]::new);
+
+        double recallWithoutRescore = recall(query -> topK(doc -> BinaryQuantizer.dot(query, codes[doc]), DOCUMENTS, TOP_K));
+        double recall = recall(query -> rescore(query, topK(doc -> BinaryQuantizer.dot(query, codes[doc]), DOCUMENTS, TOP_K * 10)));
+
+        report("binary", BinaryQuantizer.bytesPerVector(DIMENSION), recallWithoutRescore, 10, recall);
+        assertTrue(recall >= 0.9, "binary recall@10 = " + recall);
+    }
+
+    private double recall(Function<float[], int[]> search) {
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            for (int doc : search.apply(queries[q])) {
+                if (exactResults.get(q).contains(doc)) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (QUERIES * TOP_K);
+    }
+
+    /**
+     * 用全精度向量对候选重新打分
+     */
+    private int[] rescore(float[] query, int[] candidates) {
+        return Arrays.stream(candidates).boxed()
+                .sorted(Comparator.comparingDouble((Integer doc) -> dot(query, documents[doc])).reversed())
+                .limit(TOP_K)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private void report(String name, int bytesPerVector, double recallWithoutRescore, int oversample, double recall) {
+        int floatBytes = DIMENSION * Float.BYTES;
+        log.info("{} 每向量{}字节 (float32的{}%), recall@10={}, {}x候选重打分后recall@10={}",
+                name, bytesPerVector, String.format("%.1f", 100.0 * bytesPerVector / floatBytes),
+                String.format("%.3f", recallWithoutRescore), oversample, String.format("%.3f", recall));
+    }
+
+    private static int[] topK(IntToDoubleFunction score, int size, int k) {
+        double[] scores = new double[size];
+        for (int doc = 0; doc < size; doc++) {
+            scores[doc] = score.applyAsDouble(doc);
+        }
+        return IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingDouble((Integer doc) -> scores[doc]).reversed())
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> set = new HashSet<>();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    private static float[] gaussian(Random random, float sigma) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma;
+        }
+        return normalize(vector);
+    }
+
+    private static float[] perturb(Random random, float[] center) {
+        float[] noise = gaussian(random, 1f);
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = center[i] + 0.8f * noise[i];
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= (float) norm;
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}